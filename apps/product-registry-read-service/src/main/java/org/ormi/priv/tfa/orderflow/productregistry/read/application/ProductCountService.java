@@ -0,0 +1,190 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.application;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductLifecycle;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewRepository;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
+import org.ormi.priv.tfa.orderflow.productregistry.read.application.ReadProductService.SearchTotal;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import jakarta.transaction.Transactional;
+
+/**
+ * Totaux des listes de produits sans compter la table à chaque page.
+ *
+ * Le nombre de produits par statut est tenu à jour par les projections validées ici et recalé périodiquement sur la
+ * base, pour les projections des autres instances et les reconstructions. Les totaux par motif de SKU sont gardés
+ * quelques secondes, et oubliés dès qu'un produit est enregistré. Un appelant qui accepte une approximation reçoit
+ * l'estimation du planificateur plutôt qu'un comptage.
+ */
+
+@ApplicationScoped
+public class ProductCountService {
+
+    private static final Logger LOG = Logger.getLogger(ProductCountService.class);
+
+    private final ProductViewRepository repository;
+    private final TransactionSynchronizationRegistry transactions;
+    private final Duration refreshInterval;
+    private final Duration patternTtl;
+    private final int patternCacheSize;
+
+    private final ScheduledExecutorService refresher = Executors
+            .newSingleThreadScheduledExecutor(r -> new Thread(r, "product-count-refresh"));
+    // Changes whenever the set of SKUs may have changed, outdating the cached pattern counts
+    private final AtomicLong epoch = new AtomicLong();
+    private final Map<String, PatternCount> patternCounts = new ConcurrentHashMap<>();
+    // Guarded by this, null until loaded
+    private long[] byStatus;
+
+    @Inject
+    public ProductCountService(
+            ProductViewRepository repository,
+            TransactionSynchronizationRegistry transactions,
+            @ConfigProperty(name = "product-view.counts.refresh-interval", defaultValue = "60s") Duration refreshInterval,
+            @ConfigProperty(name = "product-view.counts.pattern-ttl", defaultValue = "5s") Duration patternTtl,
+            @ConfigProperty(name = "product-view.counts.pattern-cache-size", defaultValue = "1000") int patternCacheSize) {
+        this.repository = repository;
+        this.transactions = transactions;
+        this.refreshInterval = refreshInterval;
+        this.patternTtl = patternTtl;
+        this.patternCacheSize = patternCacheSize;
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        refresher.scheduleWithFixedDelay(this::refresh, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Counts the products whose SKU contains the pattern.
+     *
+     * @param approximate whether an estimate will do when the count is not known already
+     */
+    public SearchTotal count(String skuIdPattern, boolean approximate) {
+        final String pattern = normalize(skuIdPattern);
+        if (pattern.isEmpty()) {
+            final OptionalLong total = total();
+            if (total.isPresent()) {
+                return new SearchTotal(total.getAsLong(), false);
+            }
+        } else {
+            final PatternCount cached = patternCounts.get(pattern);
+            if (cached != null && cached.epoch() == epoch.get() && cached.expiresAt() - System.nanoTime() > 0) {
+                return new SearchTotal(cached.count(), false);
+            }
+        }
+        if (approximate) {
+            return new SearchTotal(repository.estimateViewsBySkuIdPattern(pattern), true);
+        }
+        final long currentEpoch = epoch.get();
+        final long count = repository.countPaginatedViewsBySkuIdPattern(pattern);
+        if (!pattern.isEmpty()) {
+            if (patternCounts.size() >= patternCacheSize) {
+                patternCounts.clear();
+            }
+            patternCounts.put(pattern, new PatternCount(count, currentEpoch, System.nanoTime() + patternTtl.toNanos()));
+        }
+        return new SearchTotal(count, false);
+    }
+
+    /**
+     * Accounts for a projected view once its transaction commits, right away outside of a transaction.
+     *
+     * @param previous the view the projection started from, empty for a new product
+     */
+    public void onProjected(Optional<ProductView> previous, ProductView projected) {
+        if (previous.isPresent() && previous.get().getStatus() == projected.getStatus()
+                && previous.get().getSkuId().equals(projected.getSkuId())) {
+            return;
+        }
+        if (transactions.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            apply(previous, projected);
+            return;
+        }
+        transactions.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    apply(previous, projected);
+                }
+            }
+        });
+    }
+
+    private synchronized void apply(Optional<ProductView> previous, ProductView projected) {
+        if (previous.isEmpty() || !previous.get().getSkuId().equals(projected.getSkuId())) {
+            epoch.incrementAndGet();
+        }
+        if (byStatus != null) {
+            previous.ifPresent(view -> byStatus[view.getStatus().ordinal()]--);
+            byStatus[projected.getStatus().ordinal()]++;
+        }
+    }
+
+    private synchronized OptionalLong total() {
+        if (byStatus == null) {
+            return OptionalLong.empty();
+        }
+        long total = 0;
+        for (long count : byStatus) {
+            total += count;
+        }
+        return OptionalLong.of(total);
+    }
+
+    void refresh() {
+        try {
+            final Map<ProductLifecycle, Long> counts = load();
+            final long[] loaded = new long[ProductLifecycle.values().length];
+            counts.forEach((status, count) -> loaded[status.ordinal()] = count);
+            synchronized (this) {
+                if (byStatus != null && !Arrays.equals(byStatus, loaded)) {
+                    // Projected elsewhere, the cached pattern counts may be off too
+                    epoch.incrementAndGet();
+                }
+                byStatus = loaded;
+            }
+        } catch (RuntimeException e) {
+            LOG.warnf("Product counts refresh failed: %s", e.getMessage());
+        }
+    }
+
+    @Transactional
+    Map<ProductLifecycle, Long> load() {
+        return repository.countViewsByStatus();
+    }
+
+    private static String normalize(String skuIdPattern) {
+        return skuIdPattern == null || skuIdPattern.isBlank() ? "" : skuIdPattern;
+    }
+
+    private record PatternCount(long count, long epoch, long expiresAt) {
+    }
+}
@@ -1,6 +1,11 @@
 package org.ormi.priv.tfa.orderflow.productregistry.read.application;
 
+import java.util.Optional;
+
 import org.ormi.priv.tfa.orderflow.kernel.product.ProductId;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewSearch.Cursor;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewSearch.SortKey;
+import org.ormi.priv.tfa.orderflow.productregistry.read.application.ReadProductService.SearchTotal;
 
 /**
  * Interface scellée (sealed interface) définissant les différents types de requêtes de lecture (Query) supportées pour le registre de produits.
@@ -15,4 +20,26 @@ public sealed interface ProductQuery {
 
     public record ListProductBySkuIdPatternQuery(String skuIdPattern, int page, int size) implements ProductQuery {
     }
+
+    /**
+     * Page of a search after a cursor. The total is computed for the first page, the next ones pass it back.
+     */
+    public record SearchProductsQuery(
+            String skuIdPattern,
+            SortKey sort,
+            boolean descending,
+            Optional<Cursor> after,
+            int size,
+            TotalMode totalMode,
+            Optional<SearchTotal> knownTotal) implements ProductQuery {
+    }
+
+    public enum TotalMode {
+        EXACT,
+        ESTIMATE,
+        NONE
+    }
+
+    public record ListProductEventsQuery(ProductId productId, int page, int size) implements ProductQuery {
+    }
 }
@@ -0,0 +1,132 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.application;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductId;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Cache en mémoire des vues produit servies par {@code GET /products/{id}}, borné en poids et à admission selon la
+ * fréquence (W-TinyLFU) : un produit lu une seule fois n'évince pas les produits les plus demandés.
+ *
+ * Les vues projetées ici remplacent l'entrée à la validation de leur transaction ; celles projetées par les autres
+ * instances sont relues à l'expiration. Les produits inconnus sont gardés peu de temps, et les lectures simultanées
+ * d'un même produit absent ne font qu'un chargement.
+ */
+
+@ApplicationScoped
+public class ProductViewCache {
+
+    // Rough size in bytes of an unknown product, of a view without its texts, and of each event and catalog reference
+    private static final int ABSENT_WEIGHT = 64;
+    private static final int VIEW_WEIGHT = 512;
+    private static final int EVENT_WEIGHT = 256;
+    private static final int CATALOG_WEIGHT = 64;
+
+    private final TransactionSynchronizationRegistry transactions;
+    private final boolean enabled;
+    private final Cache<UUID, Optional<ProductView>> cache;
+
+    @Inject
+    public ProductViewCache(
+            TransactionSynchronizationRegistry transactions,
+            MeterRegistry registry,
+            @ConfigProperty(name = "product-view.cache.enabled", defaultValue = "true") boolean enabled,
+            @ConfigProperty(name = "product-view.cache.max-weight", defaultValue = "64M") MemorySize maxWeight,
+            @ConfigProperty(name = "product-view.cache.ttl", defaultValue = "60s") Duration ttl,
+            @ConfigProperty(name = "product-view.cache.negative-ttl", defaultValue = "5s") Duration negativeTtl) {
+        this.transactions = transactions;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight.asLongValue())
+                .<UUID, Optional<ProductView>>weigher((id, view) -> view.map(ProductViewCache::weigh)
+                        .orElse(ABSENT_WEIGHT))
+                .expireAfter(new Expiry<UUID, Optional<ProductView>>() {
+                    @Override
+                    public long expireAfterCreate(UUID id, Optional<ProductView> view, long currentTime) {
+                        return (view.isPresent() ? ttl : negativeTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(UUID id, Optional<ProductView> view, long currentTime,
+                            long currentDuration) {
+                        return expireAfterCreate(id, view, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(UUID id, Optional<ProductView> view, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "product_view");
+    }
+
+    /**
+     * Gets the view from the cache, loading it once for all the concurrent readers on a miss.
+     */
+    public Optional<ProductView> findById(ProductId id, Function<ProductId, Optional<ProductView>> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        return cache.get(id.value(), key -> loader.apply(id));
+    }
+
+    /**
+     * Replaces the cached view of a projected product once its transaction commits, right away outside of a
+     * transaction. A product not cached is left out, and a version older than the cached one is ignored.
+     */
+    public void onSaved(ProductView view) {
+        if (!enabled) {
+            return;
+        }
+        if (transactions.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            put(view);
+            return;
+        }
+        transactions.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    put(view);
+                }
+            }
+        });
+    }
+
+    private void put(ProductView view) {
+        // Waits for a load of the same product in progress, which cannot overwrite the view afterwards
+        cache.asMap().computeIfPresent(view.getId().value(), (id, cached) -> cached.isEmpty()
+                || cached.get().getVersion() < view.getVersion() ? Optional.of(view) : cached);
+    }
+
+    private static int weigh(ProductView view) {
+        return VIEW_WEIGHT
+                + 2 * (view.getName().length() + view.getDescription().length())
+                + EVENT_WEIGHT * view.getEvents().size()
+                + CATALOG_WEIGHT * view.getCatalogs().size();
+    }
+}
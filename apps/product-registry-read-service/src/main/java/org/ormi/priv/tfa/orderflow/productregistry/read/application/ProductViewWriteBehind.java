@@ -0,0 +1,181 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.application;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductId;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewRepository;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+
+/**
+ * Écriture différée des vues produit : la dernière vue projetée de chaque produit est gardée en mémoire et servie en
+ * lecture, puis écrite par lots à chaque fenêtre d'écriture. Un produit mis à jour plusieurs fois dans la fenêtre
+ * n'est écrit qu'une fois.
+ *
+ * Les acquittements de l'outbox attendent l'écriture (voir {@link #flushed()}) : après un crash, les événements des
+ * vues non écrites sont projetés à nouveau. Désactivée, les vues sont écrites immédiatement.
+ */
+
+@ApplicationScoped
+public class ProductViewWriteBehind {
+
+    private static final Logger LOG = Logger.getLogger(ProductViewWriteBehind.class);
+
+    private final ProductViewRepository repository;
+    private final boolean enabled;
+    private final Duration interval;
+    private final int maxPending;
+
+    private final ScheduledExecutorService flusher = Executors
+            .newSingleThreadScheduledExecutor(r -> new Thread(r, "product-view-write-behind"));
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    // Guarded by this
+    private Map<UUID, ProductView> dirty = new HashMap<>();
+    private Map<UUID, ProductView> flushing = Map.of();
+    // Completed by the next flush, for the views in dirty
+    private CompletableFuture<Void> pending = new CompletableFuture<>();
+    // Completed by the flush in progress, for the views in flushing
+    private CompletableFuture<Void> inFlight = CompletableFuture.completedFuture(null);
+
+    @Inject
+    public ProductViewWriteBehind(
+            ProductViewRepository repository,
+            @ConfigProperty(name = "product-view.write-behind.enabled", defaultValue = "false") boolean enabled,
+            @ConfigProperty(name = "product-view.write-behind.interval", defaultValue = "200ms") Duration interval,
+            @ConfigProperty(name = "product-view.write-behind.max-pending", defaultValue = "1000") int maxPending) {
+        this.repository = repository;
+        this.enabled = enabled;
+        this.interval = interval;
+        this.maxPending = maxPending;
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (enabled) {
+            flusher.scheduleWithFixedDelay(this::flush, interval.toMillis(), interval.toMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the periodic flush and writes the views still buffered.
+     */
+    void onStop(@Observes ShutdownEvent event) {
+        if (!enabled) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(interval.toMillis() * 10, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * Gets the view, the buffered one if not written yet.
+     */
+    public Optional<ProductView> findById(ProductId id) {
+        if (enabled) {
+            synchronized (this) {
+                final ProductView buffered = dirty.getOrDefault(id.value(), flushing.get(id.value()));
+                if (buffered != null) {
+                    return Optional.of(buffered);
+                }
+            }
+        }
+        return repository.findById(id);
+    }
+
+    /**
+     * Saves the view, on the next flush when enabled.
+     */
+    public void save(ProductView view) {
+        if (!enabled) {
+            repository.save(view);
+            return;
+        }
+        final int size;
+        synchronized (this) {
+            dirty.put(view.getId().value(), view);
+            size = dirty.size();
+        }
+        if (size >= maxPending && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+
+    /**
+     * Gets a stage completed once the views saved so far are written and durable in the repository. Never completed
+     * exceptionally: a failed flush is retried with the next one.
+     */
+    public CompletionStage<Void> flushed() {
+        if (!enabled) {
+            return repository.durable();
+        }
+        synchronized (this) {
+            // With nothing left to write, only the flush in progress is waited for: the next one may never come
+            final CompletableFuture<Void> written = dirty.isEmpty() ? inFlight : pending;
+            return written.thenCompose(v -> repository.durable());
+        }
+    }
+
+    void flush() {
+        final Map<UUID, ProductView> batch;
+        final CompletableFuture<Void> done;
+        synchronized (this) {
+            if (dirty.isEmpty()) {
+                return;
+            }
+            batch = dirty;
+            flushing = batch;
+            dirty = new HashMap<>();
+            done = pending;
+            inFlight = done;
+            pending = new CompletableFuture<>();
+        }
+        try {
+            write(batch.values());
+        } catch (Exception e) {
+            LOG.errorf(e, "Failed to write %d product views, retrying on next flush", batch.size());
+            synchronized (this) {
+                // Views saved since are newer
+                batch.forEach(dirty::putIfAbsent);
+                flushing = Map.of();
+                pending.whenComplete((v, err) -> done.complete(null));
+            }
+            return;
+        }
+        synchronized (this) {
+            flushing = Map.of();
+        }
+        done.complete(null);
+    }
+
+    @Transactional
+    void write(Collection<ProductView> views) {
+        repository.saveAll(views);
+    }
+}
@@ -1,13 +1,15 @@
 package org.ormi.priv.tfa.orderflow.productregistry.read.application;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
+import org.jboss.logging.Logger;
 import org.ormi.priv.tfa.orderflow.contracts.productregistry.v1.read.ProductStreamElementDto;
 import org.ormi.priv.tfa.orderflow.cqrs.Projector.ProjectionResult;
 import org.ormi.priv.tfa.orderflow.kernel.Product;
 import org.ormi.priv.tfa.orderflow.kernel.product.ProductEventV1Envelope;
 import org.ormi.priv.tfa.orderflow.kernel.product.ProductId;
-import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewRepository;
 import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
 import org.ormi.priv.tfa.orderflow.productregistry.read.projection.ProductViewProjector;
 
@@ -25,35 +27,48 @@ import jakarta.transaction.Transactional;
 public class ProjectionDispatcher {
     private static final String PRODUCT_AGGREGATE_TYPE = Product.class.getSimpleName();
 
+    private static final Logger LOG = Logger.getLogger(ProjectionDispatcher.class);
+
     private final Instance<ProductViewProjector> productViewProjector;
-    private final ProductViewRepository productViewRepository;
+    private final ProductViewWriteBehind productViewWriteBehind;
+    private final ProductViewCache productViewCache;
+    private final ProductCountService productCounts;
     private final ProductEventBroadcaster productEventBroadcaster;
 
     @Inject
     public ProjectionDispatcher(
             Instance<ProductViewProjector> productViewProjector,
-            ProductViewRepository productViewRepository,
+            ProductViewWriteBehind productViewWriteBehind,
+            ProductViewCache productViewCache,
+            ProductCountService productCounts,
             ProductEventBroadcaster productEventBroadcaster) {
         this.productViewProjector = productViewProjector;
-        this.productViewRepository = productViewRepository;
+        this.productViewWriteBehind = productViewWriteBehind;
+        this.productViewCache = productViewCache;
+        this.productCounts = productCounts;
         this.productEventBroadcaster = productEventBroadcaster;
     }
 
     @Transactional
     public ProjectionResult<ProductView> dispatch(ProductEventV1Envelope<?> event) throws IllegalStateException {
         if (event.aggregateType().equals(PRODUCT_AGGREGATE_TYPE)) {
-            final Optional<ProductView> currentView = productViewRepository
+            final Optional<ProductView> currentView = productViewWriteBehind
                     .findById(new ProductId(event.aggregateId()));
             final ProjectionResult<ProductView> result = productViewProjector.get().project(currentView, event);
             if (result.isFailure()) {
-                // TODO: Hey ! Log the failure. It is not a normal case
+                LOG.warnf("Projection of %s v%d failed for aggregate %s: %s", event.event().eventType(),
+                        event.sequence(), event.aggregateId(), result.getError());
                 return result;
             }
             if (result.isNoOp()) {
-                // TODO: Log info. It may happen if ordering is temporarily broken
+                // It may happen if ordering is temporarily broken, or on redelivery
+                LOG.debugf("Projection of %s v%d skipped for aggregate %s: %s", event.event().eventType(),
+                        event.sequence(), event.aggregateId(), result.getNoopReason());
             }
             if (result.isSuccess()) {
-                productViewRepository.save(result.getProjection());
+                productViewWriteBehind.save(result.getProjection());
+                productViewCache.onSaved(result.getProjection());
+                productCounts.onProjected(currentView, result.getProjection());
                 productEventBroadcaster.broadcast(new ProductStreamElementDto(
                     event.event().eventType(),
                     event.aggregateId().toString(),
@@ -64,4 +79,80 @@ public class ProjectionDispatcher {
         }
         throw new IllegalStateException("Unmatched aggregate type: " + event.aggregateType());
     }
+
+    /**
+     * Projects consecutive events of a single product with one load and one save of its view.
+     *
+     * @param events the events of the product, in sequence order
+     * @return the results of the projected prefix of the events, ending with the first failure if any
+     */
+    @Transactional
+    public List<ProjectionResult<ProductView>> dispatchAll(List<ProductEventV1Envelope<?>> events)
+            throws IllegalStateException {
+        final ProductEventV1Envelope<?> first = events.get(0);
+        for (ProductEventV1Envelope<?> event : events) {
+            if (!event.aggregateType().equals(PRODUCT_AGGREGATE_TYPE)) {
+                throw new IllegalStateException("Unmatched aggregate type: " + event.aggregateType());
+            }
+            if (!event.aggregateId().equals(first.aggregateId())) {
+                throw new IllegalStateException("Batch spans several aggregates: " + first.aggregateId() + ", "
+                        + event.aggregateId());
+            }
+        }
+        final Optional<ProductView> currentView = productViewWriteBehind
+                .findById(new ProductId(first.aggregateId()));
+        final long currentVersion = currentView.map(ProductView::getVersion).orElse(0L);
+        final ProjectionResult<ProductView> result = productViewProjector.get()
+                .projectAll(currentView, events, currentVersion);
+        if (!result.isFailure()) {
+            // Events up to the current version are stale, every other one was applied
+            final List<ProjectionResult<ProductView>> results = new ArrayList<>(events.size());
+            for (ProductEventV1Envelope<?> event : events) {
+                results.add(event.sequence() <= currentVersion
+                        ? ProjectionResult.noOp("Stale event ignored")
+                        : result);
+            }
+            if (result.isSuccess()) {
+                commit(currentView, result.getProjection(), events, currentVersion);
+            }
+            return results;
+        }
+        // Find out the applied prefix one event at a time, the view is still only saved once
+        final List<ProjectionResult<ProductView>> results = new ArrayList<>(events.size());
+        Optional<ProductView> view = currentView;
+        boolean applied = false;
+        for (ProductEventV1Envelope<?> event : events) {
+            final ProjectionResult<ProductView> next = productViewProjector.get().project(view, event);
+            results.add(next);
+            if (next.isFailure()) {
+                LOG.warnf("Projection of %s v%d failed for aggregate %s: %s", event.event().eventType(),
+                        event.sequence(), event.aggregateId(), next.getError());
+                break;
+            }
+            if (next.isSuccess()) {
+                view = Optional.of(next.getProjection());
+                applied = true;
+            }
+        }
+        if (applied) {
+            commit(currentView, view.get(), events.subList(0, results.size() - 1), currentVersion);
+        }
+        return results;
+    }
+
+    private void commit(Optional<ProductView> currentView, ProductView view, List<ProductEventV1Envelope<?>> events,
+            long currentVersion) {
+        productViewWriteBehind.save(view);
+        productViewCache.onSaved(view);
+        productCounts.onProjected(currentView, view);
+        for (ProductEventV1Envelope<?> event : events) {
+            if (event.sequence() > currentVersion) {
+                productEventBroadcaster.broadcast(new ProductStreamElementDto(
+                    event.event().eventType(),
+                    event.aggregateId().toString(),
+                    event.timestamp()
+                ));
+            }
+        }
+    }
 }
@@ -6,7 +6,12 @@ import java.util.Optional;
 import org.ormi.priv.tfa.orderflow.contracts.productregistry.v1.read.ProductStreamElementDto;
 import org.ormi.priv.tfa.orderflow.kernel.product.ProductId;
 import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewRepository;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewSearch;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewSearch.Cursor;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewSearch.SortKey;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductSummaryRow;
 import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView.ProductViewEvent;
 
 import io.smallrye.mutiny.Multi;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -20,18 +25,27 @@ import jakarta.inject.Inject;
 public class ReadProductService {
 
     private final ProductViewRepository repository;
+    private final ProductViewWriteBehind writeBehind;
+    private final ProductViewCache productViewCache;
+    private final ProductCountService productCounts;
     private final ProductEventBroadcaster productEventBroadcaster;
 
     @Inject
     public ReadProductService(
         ProductViewRepository repository,
+        ProductViewWriteBehind writeBehind,
+        ProductViewCache productViewCache,
+        ProductCountService productCounts,
         ProductEventBroadcaster productEventBroadcaster) {
         this.repository = repository;
+        this.writeBehind = writeBehind;
+        this.productViewCache = productViewCache;
+        this.productCounts = productCounts;
         this.productEventBroadcaster = productEventBroadcaster;
     }
 
     public Optional<ProductView> findById(ProductId productId) {
-        return repository.findById(productId);
+        return productViewCache.findById(productId, writeBehind::findById);
     }
 
     public Optional<ProductView> handle(ProductQuery.GetProductByIdQuery query) {
@@ -40,8 +54,8 @@ public class ReadProductService {
 
     public SearchPaginatedResult searchProducts(String skuIdPattern, int page, int size) {
         return new SearchPaginatedResult(
-                repository.searchPaginatedViewsOrderBySkuId(skuIdPattern, page, size),
-                repository.countPaginatedViewsBySkuIdPattern(skuIdPattern));
+                repository.searchPaginatedSummariesOrderBySkuId(skuIdPattern, page, size),
+                productCounts.count(skuIdPattern, false).value());
     }
 
     public SearchPaginatedResult handle(ProductQuery.ListProductQuery query) {
@@ -52,18 +66,72 @@ public class ReadProductService {
         return searchProducts(query.skuIdPattern(), query.page(), query.size());
     }
 
+    /**
+     * Searches a page of products after a cursor, reading one more view to tell whether a next page exists. The
+     * total is only counted on the first page, and not at all when that page is the last one.
+     */
+    public SearchPageResult handle(ProductQuery.SearchProductsQuery query) {
+        final List<ProductSummaryRow> rows = repository.searchSummaries(new ProductViewSearch(
+                query.skuIdPattern(), query.sort(), query.descending(), query.after(), query.size() + 1));
+        final boolean hasNext = rows.size() > query.size();
+        final List<ProductSummaryRow> page = hasNext ? rows.subList(0, query.size()) : rows;
+        final Optional<Cursor> next = hasNext
+                ? Optional.of(cursorOf(query.sort(), page.get(page.size() - 1)))
+                : Optional.empty();
+        final Optional<SearchTotal> total;
+        if (query.after().isPresent() || query.totalMode() == ProductQuery.TotalMode.NONE) {
+            total = query.knownTotal();
+        } else if (!hasNext) {
+            total = Optional.of(new SearchTotal(page.size(), false));
+        } else {
+            total = Optional.of(productCounts.count(query.skuIdPattern(),
+                    query.totalMode() == ProductQuery.TotalMode.ESTIMATE));
+        }
+        return new SearchPageResult(page, next, total);
+    }
+
+    /**
+     * Lists the history of a product, oldest events first.
+     *
+     * @return the page, or empty if the product does not exist
+     */
+    public Optional<EventPaginatedResult> handle(ProductQuery.ListProductEventsQuery query) {
+        final long total = repository.countEvents(query.productId());
+        if (total == 0 && findById(query.productId()).isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new EventPaginatedResult(
+                total == 0 ? List.of()
+                        : repository.findPaginatedEventsOrderBySequence(query.productId(), query.page(), query.size()),
+                total));
+    }
+
     public Multi<ProductStreamElementDto> streamProductEvents(ProductId productId) {
         return productEventBroadcaster.streamByProductId(productId.value().toString());
     }
 
     public Multi<ProductStreamElementDto> streamProductListEvents(String skuIdPattern, int page, int size) {
-        final List<ProductView> products = searchProducts(skuIdPattern, page, size).page();
+        final List<ProductSummaryRow> products = repository.searchPaginatedSummariesOrderBySkuId(skuIdPattern, page,
+                size);
         final List<String> productIds = products.stream()
-                .map(p -> p.getId().value().toString())
+                .map(p -> p.id().toString())
                 .toList();
         return productEventBroadcaster.streamByProductIds(productIds);
     }
 
-    public record SearchPaginatedResult(List<ProductView> page, long total) {
+    private static Cursor cursorOf(SortKey sort, ProductSummaryRow row) {
+        return new Cursor(sort.keyOf(row), row.id());
+    }
+
+    public record SearchPaginatedResult(List<ProductSummaryRow> page, long total) {
+    }
+
+    public record SearchPageResult(List<ProductSummaryRow> page, Optional<Cursor> next, Optional<SearchTotal> total) {
+    }
+
+    public record SearchTotal(long value, boolean estimated) {
+    }
+
+    public record EventPaginatedResult(List<ProductViewEvent> page, long total) {
     }
 }
\ No newline at end of file
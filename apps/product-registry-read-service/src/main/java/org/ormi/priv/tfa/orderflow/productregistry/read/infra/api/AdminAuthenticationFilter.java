@@ -0,0 +1,54 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.api;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Optional;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * Authentification des ressources d'administration par un jeton porteur ({@code Authorization: Bearer <jeton>}).
+ *
+ * Sans jeton configuré, les ressources d'administration sont fermées.
+ */
+
+@Provider
+@AdminEndpoint
+@Priority(Priorities.AUTHENTICATION)
+public class AdminAuthenticationFilter implements ContainerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final Optional<byte[]> token;
+
+    @Inject
+    public AdminAuthenticationFilter(@ConfigProperty(name = "admin.token") Optional<String> token) {
+        this.token = token.filter(t -> !t.isBlank()).map(t -> t.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        if (token.isEmpty()) {
+            requestContext.abortWith(Response.status(Response.Status.FORBIDDEN).build());
+            return;
+        }
+        final String authorization = requestContext.getHeaderString(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)
+                // Constant time, the comparison does not leak how much of the token matched
+                || !MessageDigest.isEqual(token.get(),
+                        authorization.substring(BEARER_PREFIX.length()).getBytes(StandardCharsets.UTF_8))) {
+            requestContext.abortWith(Response.status(Response.Status.UNAUTHORIZED)
+                    .header(HttpHeaders.WWW_AUTHENTICATE, "Bearer")
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import jakarta.ws.rs.NameBinding;
+
+/**
+ * Marque les ressources d'administration, réservées aux appels portant le jeton d'administration.
+ */
+
+@NameBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface AdminEndpoint {
+}
@@ -0,0 +1,69 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.api;
+
+import org.jboss.resteasy.reactive.RestResponse;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxDeadLetterRepository;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.web.dto.OutboxDeadLetterDto;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.web.dto.OutboxDeadLetterDto.OutboxDeadLetterPageDto;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.web.dto.OutboxDeadLetterDto.OutboxDeadLetterResultDto;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.web.dto.OutboxDeadLetterDto.OutboxDeadLetterSelectionDto;
+
+import jakarta.inject.Inject;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+
+/**
+ * Ressource REST d'administration des messages Outbox en échec définitif : consultation par type d'agrégat, rejeu et
+ * suppression en masse.
+ */
+@AdminEndpoint
+@Path("/admin/outbox/dead-letters")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class OutboxDeadLetterResource {
+
+    private final OutboxDeadLetterRepository deadLetters;
+
+    @Inject
+    public OutboxDeadLetterResource(OutboxDeadLetterRepository deadLetters) {
+        this.deadLetters = deadLetters;
+    }
+
+    @GET
+    public RestResponse<OutboxDeadLetterPageDto> list(
+            @QueryParam("aggregateType") @NotBlank String aggregateType,
+            @QueryParam("page") @DefaultValue("0") @Min(0) int page,
+            @QueryParam("size") @DefaultValue("50") @Min(1) @Max(500) int size) {
+        return RestResponse.ok(new OutboxDeadLetterPageDto(
+                deadLetters.findByAggregateType(aggregateType, page, size).stream()
+                        .map(OutboxDeadLetterDto::of)
+                        .toList(),
+                page, size, deadLetters.countByAggregateType(aggregateType)));
+    }
+
+    @POST
+    @Path("/replay")
+    public RestResponse<OutboxDeadLetterResultDto> replay(OutboxDeadLetterSelectionDto selection) {
+        if (selection == null || selection.ids() == null || selection.ids().isEmpty()) {
+            return RestResponse.status(RestResponse.Status.BAD_REQUEST);
+        }
+        return RestResponse.ok(new OutboxDeadLetterResultDto(deadLetters.replay(selection.ids())));
+    }
+
+    @POST
+    @Path("/discard")
+    public RestResponse<OutboxDeadLetterResultDto> discard(OutboxDeadLetterSelectionDto selection) {
+        if (selection == null || selection.ids() == null || selection.ids().isEmpty()) {
+            return RestResponse.status(RestResponse.Status.BAD_REQUEST);
+        }
+        return RestResponse.ok(new OutboxDeadLetterResultDto(deadLetters.discard(selection.ids())));
+    }
+}
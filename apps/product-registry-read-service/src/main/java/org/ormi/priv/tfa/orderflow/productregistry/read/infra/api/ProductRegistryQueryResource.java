@@ -1,19 +1,30 @@
 package org.ormi.priv.tfa.orderflow.productregistry.read.infra.api;
 
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import org.jboss.resteasy.reactive.RestResponse;
+import org.ormi.priv.tfa.orderflow.contracts.productregistry.v1.read.PaginatedProductEventListDto;
 import org.ormi.priv.tfa.orderflow.contracts.productregistry.v1.read.PaginatedProductListDto;
+import org.ormi.priv.tfa.orderflow.contracts.productregistry.v1.read.ProductSummaryDto;
 import org.ormi.priv.tfa.orderflow.contracts.productregistry.v1.read.ProductViewDto;
 import org.ormi.priv.tfa.orderflow.kernel.product.ProductIdMapper;
-import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductSummary;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewSearch.Cursor;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewSearch.SortKey;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductSummaryRow;
 import org.ormi.priv.tfa.orderflow.productregistry.read.application.ProductQuery;
 import org.ormi.priv.tfa.orderflow.productregistry.read.application.ReadProductService;
+import org.ormi.priv.tfa.orderflow.productregistry.read.application.ReadProductService.SearchPageResult;
 import org.ormi.priv.tfa.orderflow.productregistry.read.application.ReadProductService.SearchPaginatedResult;
+import org.ormi.priv.tfa.orderflow.productregistry.read.application.ReadProductService.SearchTotal;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.api.ProductSearchCursorCodec.Token;
 import org.ormi.priv.tfa.orderflow.productregistry.read.infra.web.dto.ProductSummaryDtoMapper;
 import org.ormi.priv.tfa.orderflow.productregistry.read.infra.web.dto.ProductViewDtoMapper;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.web.dto.ProductViewDtoMapper.ProductViewDtoEventMapper;
 
 import jakarta.inject.Inject;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.ws.rs.DefaultValue;
@@ -33,45 +44,85 @@ public class ProductRegistryQueryResource {
 
     private final ReadProductService readProductService;
     private final ProductViewDtoMapper productViewDtoMapper;
+    private final ProductViewDtoEventMapper productViewDtoEventMapper;
     private final ProductSummaryDtoMapper productSummaryDtoMapper;
     private final ProductIdMapper productIdMapper;
+    private final ProductSearchCursorCodec cursorCodec;
 
     @Inject
     public ProductRegistryQueryResource(
             ReadProductService readProductService,
             ProductViewDtoMapper productViewDtoMapper,
+            ProductViewDtoEventMapper productViewDtoEventMapper,
             ProductSummaryDtoMapper productSummaryDtoMapper,
-            ProductIdMapper productIdMapper) {
+            ProductIdMapper productIdMapper,
+            ProductSearchCursorCodec cursorCodec) {
         this.readProductService = readProductService;
         this.productViewDtoMapper = productViewDtoMapper;
+        this.productViewDtoEventMapper = productViewDtoEventMapper;
         this.productSummaryDtoMapper = productSummaryDtoMapper;
         this.productIdMapper = productIdMapper;
+        this.cursorCodec = cursorCodec;
     }
 
+    /**
+     * Searches products page by page. A page gives the cursor of the next one; without a cursor, a page number above
+     * one keeps the offset pagination of the existing clients, whose pages are numbered from 1.
+     */
     @GET
     public RestResponse<PaginatedProductListDto> searchProducts(
             @QueryParam("sku") @DefaultValue("") String sku,
             @QueryParam("page") @DefaultValue("0") @Min(0) int page,
-            @QueryParam("size") @DefaultValue("10") @Min(1) int size) {
-        
-        final SearchPaginatedResult result;
-        if (sku == null || sku.isBlank()) {
-            result = readProductService.handle(new ProductQuery.ListProductQuery(page, size));
-        } else {
-            result = readProductService.handle(new ProductQuery.ListProductBySkuIdPatternQuery(sku, page, size));
+            @QueryParam("size") @DefaultValue("10") @Min(1) int size,
+            @QueryParam("sort") @DefaultValue("skuId") String sort,
+            @QueryParam("order") @DefaultValue("asc") String order,
+            @QueryParam("cursor") String cursor,
+            @QueryParam("total") @DefaultValue("exact") String total) {
+        final String skuIdPattern = sku == null || sku.isBlank() ? "" : sku;
+        if ((cursor == null || cursor.isBlank()) && page > 1) {
+            final SearchPaginatedResult result = skuIdPattern.isEmpty()
+                    ? readProductService.handle(new ProductQuery.ListProductQuery(page, size))
+                    : readProductService.handle(new ProductQuery.ListProductBySkuIdPatternQuery(skuIdPattern, page,
+                            size));
+            return RestResponse.ok(new PaginatedProductListDto(toSummaries(result.page()), page, size,
+                    result.total(), false, null));
         }
-        
-        final PaginatedProductListDto list = new PaginatedProductListDto(result.page().stream()
-                .map(view -> ProductSummary.Builder()
-                        .id(view.getId())
-                        .skuId(view.getSkuId())
-                        .name(view.getName())
-                        .status(view.getStatus())
-                        .catalogs(view.getCatalogs().size())
-                        .build())
-                .map(productSummaryDtoMapper::toDto)
-                .toList(), page, size, result.total());
-        return RestResponse.ok(list);
+
+        final ProductQuery.SearchProductsQuery query;
+        try {
+            final SortKey sortKey = sortKey(sort);
+            final boolean descending = descending(order);
+            final ProductQuery.TotalMode totalMode = totalMode(total);
+            if (cursor == null || cursor.isBlank()) {
+                query = new ProductQuery.SearchProductsQuery(skuIdPattern, sortKey, descending, Optional.empty(),
+                        size, totalMode, Optional.empty());
+            } else {
+                final Token token = cursorCodec.decode(cursor);
+                // A cursor only continues the search it was issued for
+                if (!token.sku().equals(skuIdPattern) || !token.sort().equals(sort) || !token.order().equals(order)
+                        || !token.totalMode().equals(total)) {
+                    return RestResponse.status(RestResponse.Status.BAD_REQUEST);
+                }
+                // Rejects a key that is not of the sort before it reaches the query
+                sortKey.parseKey(token.key());
+                query = new ProductQuery.SearchProductsQuery(skuIdPattern, sortKey, descending,
+                        Optional.of(new Cursor(token.key(), token.id())), size, totalMode,
+                        Optional.ofNullable(token.total()).map(t -> new SearchTotal(t, token.estimated())));
+            }
+        } catch (IllegalArgumentException e) {
+            return RestResponse.status(RestResponse.Status.BAD_REQUEST);
+        }
+
+        final SearchPageResult result = readProductService.handle(query);
+        final String nextCursor = result.next()
+                .map(next -> cursorCodec.encode(new Token(skuIdPattern, sort, order, total, next.key(), next.id(),
+                        result.total().map(SearchTotal::value).orElse(null),
+                        result.total().map(SearchTotal::estimated).orElse(false))))
+                .orElse(null);
+        return RestResponse.ok(new PaginatedProductListDto(toSummaries(result.page()), page, size,
+                result.total().map(SearchTotal::value).orElse(null),
+                result.total().map(SearchTotal::estimated).orElse(false),
+                nextCursor));
     }
 
     @GET
@@ -89,4 +140,56 @@ public class ProductRegistryQueryResource {
             return RestResponse.status(RestResponse.Status.BAD_REQUEST);
         }
     }
-}
\ No newline at end of file
+
+    @GET
+    @Path("/{id}/events")
+    public RestResponse<PaginatedProductEventListDto> getProductEvents(
+            @PathParam("id") @NotBlank String id,
+            @QueryParam("page") @DefaultValue("0") @Min(0) int page,
+            @QueryParam("size") @DefaultValue("50") @Min(1) @Max(500) int size) {
+        try {
+            final UUID uuid = UUID.fromString(id);
+            return readProductService
+                    .handle(new ProductQuery.ListProductEventsQuery(productIdMapper.map(uuid), page, size))
+                    .map(result -> RestResponse.ok(new PaginatedProductEventListDto(result.page().stream()
+                            .map(productViewDtoEventMapper::toDto)
+                            .toList(), page, size, result.total())))
+                    .orElseGet(() -> RestResponse.status(RestResponse.Status.NOT_FOUND));
+        } catch (IllegalArgumentException e) {
+            return RestResponse.status(RestResponse.Status.BAD_REQUEST);
+        }
+    }
+
+    private List<ProductSummaryDto> toSummaries(List<ProductSummaryRow> rows) {
+        return rows.stream()
+                .map(productSummaryDtoMapper::toDto)
+                .toList();
+    }
+
+    private static SortKey sortKey(String sort) {
+        return switch (sort) {
+            case "skuId" -> SortKey.SKU_ID;
+            case "name" -> SortKey.NAME;
+            case "updatedAt" -> SortKey.UPDATED_AT;
+            case "status" -> SortKey.STATUS;
+            default -> throw new IllegalArgumentException("Unknown sort: " + sort);
+        };
+    }
+
+    private static boolean descending(String order) {
+        return switch (order) {
+            case "asc" -> false;
+            case "desc" -> true;
+            default -> throw new IllegalArgumentException("Unknown order: " + order);
+        };
+    }
+
+    private static ProductQuery.TotalMode totalMode(String total) {
+        return switch (total) {
+            case "exact" -> ProductQuery.TotalMode.EXACT;
+            case "estimate" -> ProductQuery.TotalMode.ESTIMATE;
+            case "none" -> ProductQuery.TotalMode.NONE;
+            default -> throw new IllegalArgumentException("Unknown total: " + total);
+        };
+    }
+}
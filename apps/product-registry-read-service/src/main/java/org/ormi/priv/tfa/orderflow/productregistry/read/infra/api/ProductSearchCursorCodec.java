@@ -0,0 +1,69 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.api;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.UUID;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Jeton opaque de continuation de la recherche de produits : la recherche (motif, tri, sens), la position après la
+ * dernière vue de la page et le total calculé à la première page, en JSON encodé base64url.
+ */
+
+@ApplicationScoped
+public class ProductSearchCursorCodec {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final ObjectMapper objectMapper;
+
+    @Inject
+    public ProductSearchCursorCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public String encode(Token token) {
+        try {
+            return ENCODER.encodeToString(objectMapper.writeValueAsBytes(token));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode search cursor", e);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not issued by {@link #encode(Token)}
+     */
+    public Token decode(String cursor) {
+        final Token token;
+        try {
+            token = objectMapper.readValue(DECODER.decode(cursor), Token.class);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid search cursor", e);
+        }
+        if (token.sku() == null || token.sort() == null || token.order() == null || token.totalMode() == null
+                || token.key() == null || token.id() == null) {
+            throw new IllegalArgumentException("Incomplete search cursor");
+        }
+        return token;
+    }
+
+    /**
+     * Content of a cursor, with the query parameters of the search as given to the resource.
+     */
+    public record Token(
+            String sku,
+            String sort,
+            String order,
+            String totalMode,
+            String key,
+            UUID id,
+            Long total,
+            boolean estimated) {
+    }
+}
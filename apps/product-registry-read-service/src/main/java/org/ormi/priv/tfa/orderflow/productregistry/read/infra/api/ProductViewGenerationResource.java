@@ -0,0 +1,49 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.api;
+
+import java.sql.SQLException;
+
+import org.jboss.resteasy.reactive.RestResponse;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.rebuild.ProductViewGenerations;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.web.dto.ProductViewGenerationDto;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+/**
+ * Ressource REST d'administration des générations de la vue produit : reconstruction dans une table fantôme puis
+ * bascule, et suivi.
+ */
+@AdminEndpoint
+@Path("/admin/product-views/generations")
+@Produces(MediaType.APPLICATION_JSON)
+public class ProductViewGenerationResource {
+
+    private final ProductViewGenerations generations;
+
+    @Inject
+    public ProductViewGenerationResource(ProductViewGenerations generations) {
+        this.generations = generations;
+    }
+
+    @POST
+    public RestResponse<ProductViewGenerationDto> start() throws SQLException {
+        try {
+            return RestResponse.accepted(ProductViewGenerationDto.of(generations.start()));
+        } catch (IllegalStateException e) {
+            // An in place rebuild is running
+            return RestResponse.status(RestResponse.Status.CONFLICT);
+        }
+    }
+
+    @GET
+    public RestResponse<ProductViewGenerationDto> status() throws SQLException {
+        return generations.status()
+                .map(ProductViewGenerationDto::of)
+                .map(RestResponse::ok)
+                .orElseGet(() -> RestResponse.notFound());
+    }
+}
@@ -0,0 +1,48 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.api;
+
+import java.sql.SQLException;
+
+import org.jboss.resteasy.reactive.RestResponse;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.rebuild.ProductViewRebuilder;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.web.dto.ProductViewRebuildDto;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+/**
+ * Ressource REST d'administration de la reconstruction de la vue produit depuis l'Event log : lancement ou reprise, et suivi.
+ */
+@AdminEndpoint
+@Path("/admin/product-views/rebuild")
+@Produces(MediaType.APPLICATION_JSON)
+public class ProductViewRebuildResource {
+
+    private final ProductViewRebuilder rebuilder;
+
+    @Inject
+    public ProductViewRebuildResource(ProductViewRebuilder rebuilder) {
+        this.rebuilder = rebuilder;
+    }
+
+    @POST
+    public RestResponse<ProductViewRebuildDto> start() throws SQLException {
+        try {
+            return RestResponse.accepted(ProductViewRebuildDto.of(rebuilder.start()));
+        } catch (IllegalStateException e) {
+            // A shadow generation is being rebuilt
+            return RestResponse.status(RestResponse.Status.CONFLICT);
+        }
+    }
+
+    @GET
+    public RestResponse<ProductViewRebuildDto> status() throws SQLException {
+        return rebuilder.status()
+                .map(ProductViewRebuildDto::of)
+                .map(RestResponse::ok)
+                .orElseGet(() -> RestResponse.notFound());
+    }
+}
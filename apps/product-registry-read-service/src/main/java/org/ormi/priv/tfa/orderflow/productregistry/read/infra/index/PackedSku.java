@@ -0,0 +1,63 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.index;
+
+/**
+ * Codage d'un SKU (`XXX-00000`) dans un entier : les trois lettres en base 26 puis les cinq chiffres. L'ordre des
+ * entiers est celui des SKU, 26^3 * 10^5 tenant dans un int.
+ */
+
+final class PackedSku {
+
+    static final int LENGTH = 9;
+    static final int LETTERS = 3;
+    static final int DASH = 3;
+    static final int DIGITS = 5;
+    static final int DIGIT_RANGE = 100_000;
+    static final int MAX = 26 * 26 * 26 * DIGIT_RANGE - 1;
+
+    private PackedSku() {
+    }
+
+    /**
+     * Packs a SKU of the validated format.
+     */
+    static int pack(String sku) {
+        int letters = 0;
+        for (int i = 0; i < LETTERS; i++) {
+            letters = letters * 26 + (sku.charAt(i) - 'A');
+        }
+        int digits = 0;
+        for (int i = DASH + 1; i < LENGTH; i++) {
+            digits = digits * 10 + (sku.charAt(i) - '0');
+        }
+        return letters * DIGIT_RANGE + digits;
+    }
+
+    static String unpack(int packed) {
+        final char[] sku = new char[LENGTH];
+        int letters = packed / DIGIT_RANGE;
+        int digits = packed % DIGIT_RANGE;
+        for (int i = LETTERS - 1; i >= 0; i--) {
+            sku[i] = (char) ('A' + letters % 26);
+            letters /= 26;
+        }
+        sku[DASH] = '-';
+        for (int i = LENGTH - 1; i > DASH; i--) {
+            sku[i] = (char) ('0' + digits % 10);
+            digits /= 10;
+        }
+        return new String(sku);
+    }
+
+    /**
+     * Tells whether the character may appear at the given position of a SKU.
+     */
+    static boolean fits(char c, int position) {
+        if (position < LETTERS) {
+            return c >= 'A' && c <= 'Z';
+        }
+        if (position == DASH) {
+            return c == '-';
+        }
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,162 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Index des SKU codés des vues produit : un tableau d'entiers trié, en parallèle des identifiants de produit. Une page
+ * de recherche se lit dans l'ordre des SKU, un préfixe se résout par recherche dichotomique.
+ *
+ * Non thread-safe, voir {@link ProductSkuIndex}.
+ */
+
+final class PackedSkuIndex {
+
+    private static final int MIN_CAPACITY = 1024;
+
+    private int[] skus = new int[MIN_CAPACITY];
+    private UUID[] ids = new UUID[MIN_CAPACITY];
+    private int size;
+    private final Map<UUID, Entry> entries = new HashMap<>();
+
+    /**
+     * Indexes the SKU of a product, unless a later version of the product is already indexed.
+     */
+    void put(UUID id, String sku, long version) {
+        final int packed = PackedSku.pack(sku);
+        final Entry previous = entries.get(id);
+        if (previous != null) {
+            if (previous.version() >= version) {
+                return;
+            }
+            if (previous.sku() != packed) {
+                remove(previous.sku());
+            }
+        }
+        entries.put(id, new Entry(packed, version));
+        if (previous == null || previous.sku() != packed) {
+            insert(packed, id);
+        }
+    }
+
+    /**
+     * Gets the products of the matching SKUs of the page, in SKU order.
+     */
+    List<UUID> search(SkuMatcher matcher, long offset, int limit) {
+        final List<UUID> page = new ArrayList<>(limit);
+        if (matcher.isRange()) {
+            final long from = indexOf(matcher.from()) + offset;
+            final long to = Math.min(indexOf(matcher.to()), from + limit);
+            for (long i = from; i < to; i++) {
+                page.add(ids[(int) i]);
+            }
+            return page;
+        }
+        long skipped = 0;
+        for (int i = 0; i < size && page.size() < limit; i++) {
+            if (matcher.matches(skus[i]) && skipped++ >= offset) {
+                page.add(ids[i]);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Gets the products of the matching SKUs strictly after the given packed SKU, in SKU order or in reverse order.
+     * Starts from the first or from the last SKU when {@code after} is out of the packed range.
+     */
+    List<UUID> searchAfter(SkuMatcher matcher, int after, boolean descending, int limit) {
+        final List<UUID> page = new ArrayList<>(limit);
+        final int from = indexOf(matcher.from());
+        final int to = indexOf(matcher.to());
+        if (descending) {
+            for (int i = Math.min(to, indexOf(after)) - 1; i >= from && page.size() < limit; i--) {
+                if (matcher.matches(skus[i])) {
+                    page.add(ids[i]);
+                }
+            }
+        } else {
+            for (int i = Math.max(from, indexOf(after + 1)); i < to && page.size() < limit; i++) {
+                if (matcher.matches(skus[i])) {
+                    page.add(ids[i]);
+                }
+            }
+        }
+        return page;
+    }
+
+    long count(SkuMatcher matcher) {
+        if (matcher.isRange()) {
+            return indexOf(matcher.to()) - indexOf(matcher.from());
+        }
+        long count = 0;
+        for (int i = 0; i < size; i++) {
+            if (matcher.matches(skus[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Copies the products indexed at a later version than in the given index, so that a reload started before them
+     * does not lose them.
+     */
+    void keepNewer(PackedSkuIndex previous) {
+        previous.entries.forEach((id, entry) -> {
+            final Entry current = entries.get(id);
+            if (current == null || current.version() < entry.version()) {
+                put(id, PackedSku.unpack(entry.sku()), entry.version());
+            }
+        });
+    }
+
+    private void insert(int packed, UUID id) {
+        // SKUs are unique, a product moving to the SKU of another one takes its place
+        final int at = Arrays.binarySearch(skus, 0, size, packed);
+        if (at >= 0) {
+            entries.remove(ids[at]);
+            ids[at] = id;
+            return;
+        }
+        final int index = -at - 1;
+        if (size == skus.length) {
+            skus = Arrays.copyOf(skus, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        System.arraycopy(skus, index, skus, index + 1, size - index);
+        System.arraycopy(ids, index, ids, index + 1, size - index);
+        skus[index] = packed;
+        ids[index] = id;
+        size++;
+    }
+
+    private void remove(int packed) {
+        final int index = Arrays.binarySearch(skus, 0, size, packed);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(skus, index + 1, skus, index, size - index - 1);
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        ids[--size] = null;
+    }
+
+    /**
+     * Gets the index of the first SKU not lower than the given one.
+     */
+    private int indexOf(int packed) {
+        final int at = Arrays.binarySearch(skus, 0, size, packed);
+        return at >= 0 ? at : -at - 1;
+    }
+
+    private record Entry(int sku, long version) {
+    }
+}
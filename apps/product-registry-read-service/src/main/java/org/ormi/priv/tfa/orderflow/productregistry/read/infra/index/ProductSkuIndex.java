@@ -0,0 +1,227 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.index;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewRepository;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
+
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.arc.properties.UnlessBuildProperty;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Index en mémoire des SKU des vues produit, pour la recherche par sous-chaîne et son total sans parcours de la table
+ * (un `LIKE '%x%'` ne peut pas utiliser l'index `sku_id`).
+ *
+ * Tenu à jour par les vues projetées ici, après validation de leur transaction, rechargé après une reconstruction ou
+ * une bascule de génération faite ici, et périodiquement pour les produits projetés ou reconstruits ailleurs. Tant
+ * qu'il n'est pas chargé, la recherche reste en base.
+ * Absent avec le dépôt `mmap`, qui n'écrit pas la table et cherche dans ses propres fichiers.
+ */
+
+@ApplicationScoped
+@UnlessBuildProperty(name = "product-view.store", stringValue = "mmap", enableIfMissing = true)
+public class ProductSkuIndex {
+
+    private static final String SQL_LOAD_QUERY = "SELECT id, sku_id, _version FROM read_product_registry.product_view";
+    private static final int FETCH_SIZE = 10_000;
+
+    private static final Logger LOG = Logger.getLogger(ProductSkuIndex.class);
+
+    private final AgroalDataSource dataSource;
+    private final TransactionSynchronizationRegistry transactions;
+    private final boolean enabled;
+    private final Duration refreshInterval;
+
+    private final ScheduledExecutorService refresher = Executors
+            .newSingleThreadScheduledExecutor(r -> new Thread(r, "product-sku-index-refresh"));
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Null until loaded
+    private PackedSkuIndex index;
+
+    @Inject
+    public ProductSkuIndex(
+            AgroalDataSource dataSource,
+            TransactionSynchronizationRegistry transactions,
+            @ConfigProperty(name = "product-view.sku-index.enabled", defaultValue = "true") boolean enabled,
+            @ConfigProperty(name = "product-view.sku-index.refresh-interval", defaultValue = "30s") Duration refreshInterval) {
+        this.dataSource = dataSource;
+        this.transactions = transactions;
+        this.enabled = enabled;
+        this.refreshInterval = refreshInterval;
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (enabled) {
+            refresher.scheduleWithFixedDelay(this::reload, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Reloads the index in the background, for views written to the table without going through the repository:
+     * in place rebuilds and generation cutovers.
+     */
+    public void refresh() {
+        if (enabled && !refresher.isShutdown()) {
+            refresher.execute(this::reload);
+        }
+    }
+
+    /**
+     * Indexes saved views once their transaction commits, right away outside of a transaction.
+     */
+    public void onSaved(Collection<ProductView> views) {
+        if (!enabled) {
+            return;
+        }
+        if (transactions.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            putAll(views);
+            return;
+        }
+        transactions.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    putAll(views);
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets the products of the page of the SKUs containing the pattern, in SKU order. Pages are numbered from 1.
+     *
+     * @return empty if the index cannot answer: not loaded yet, or a pattern with LIKE wildcards
+     */
+    public Optional<List<UUID>> search(String skuIdPattern, int page, int size) {
+        final Optional<SkuMatcher> matcher = SkuMatcher.of(skuIdPattern);
+        if (matcher.isEmpty()) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            return index == null
+                    ? Optional.empty()
+                    : Optional.of(index.search(matcher.get(), ProductViewRepository.offsetOf(page, size), size));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the products of the SKUs containing the pattern that come after the given SKU, in SKU order or in reverse
+     * order.
+     *
+     * @param afterSkuId the last SKU of the previous page, of the validated format
+     * @return empty if the index cannot answer
+     */
+    public Optional<List<UUID>> searchAfter(String skuIdPattern, Optional<String> afterSkuId, boolean descending,
+            int size) {
+        final Optional<SkuMatcher> matcher = SkuMatcher.of(skuIdPattern);
+        if (matcher.isEmpty()) {
+            return Optional.empty();
+        }
+        final int after = afterSkuId.map(PackedSku::pack).orElse(descending ? PackedSku.MAX + 1 : -1);
+        lock.readLock().lock();
+        try {
+            return index == null
+                    ? Optional.empty()
+                    : Optional.of(index.searchAfter(matcher.get(), after, descending, size));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the SKUs containing the pattern.
+     *
+     * @return empty if the index cannot answer
+     */
+    public OptionalLong count(String skuIdPattern) {
+        final Optional<SkuMatcher> matcher = SkuMatcher.of(skuIdPattern);
+        if (matcher.isEmpty()) {
+            return OptionalLong.empty();
+        }
+        lock.readLock().lock();
+        try {
+            return index == null ? OptionalLong.empty() : OptionalLong.of(index.count(matcher.get()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void putAll(Collection<ProductView> views) {
+        lock.writeLock().lock();
+        try {
+            if (index != null) {
+                views.forEach(view -> index.put(view.getId().value(), view.getSkuId().value(), view.getVersion()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void reload() {
+        try {
+            final PackedSkuIndex loaded = new PackedSkuIndex();
+            try (Connection conn = dataSource.getConnection()) {
+                // A cursor rather than the whole table in memory
+                conn.setAutoCommit(false);
+                try (PreparedStatement ps = conn.prepareStatement(SQL_LOAD_QUERY)) {
+                    ps.setFetchSize(FETCH_SIZE);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            loaded.put(rs.getObject(1, UUID.class), rs.getString(2), rs.getLong(3));
+                        }
+                    }
+                } finally {
+                    conn.rollback();
+                }
+            }
+            lock.writeLock().lock();
+            try {
+                if (index != null) {
+                    loaded.keepNewer(index);
+                } else {
+                    LOG.infof("Product SKU index loaded with %d products", loaded.size());
+                }
+                index = loaded;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (SQLException | RuntimeException e) {
+            LOG.warnf("Product SKU index reload failed: %s", e.getMessage());
+        }
+    }
+}
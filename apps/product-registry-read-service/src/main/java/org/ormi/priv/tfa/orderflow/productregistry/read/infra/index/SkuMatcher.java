@@ -0,0 +1,145 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Recherche d'une sous-chaîne dans les SKU codés (voir {@link PackedSku}), sans les décoder.
+ *
+ * Pour chaque position où le motif peut apparaître, il se ramène à une valeur attendue sur une tranche des lettres et
+ * une tranche des chiffres. Un motif qui ne peut apparaître qu'en tête est un intervalle de SKU codés.
+ */
+
+final class SkuMatcher {
+
+    private static final SkuMatcher ALL = range(0, PackedSku.MAX + 1);
+    private static final SkuMatcher NONE = range(0, 0);
+
+    private final Constraint[] constraints;
+    // Packed range [from, to) of the matches when the constraints are empty
+    private final int from;
+    private final int to;
+
+    private SkuMatcher(List<Constraint> constraints, int from, int to) {
+        this.constraints = constraints.toArray(new Constraint[0]);
+        this.from = from;
+        this.to = to;
+    }
+
+    private static SkuMatcher range(int from, int to) {
+        return new SkuMatcher(List.of(), from, to);
+    }
+
+    /**
+     * Gets the matcher of the SKUs containing the pattern.
+     *
+     * @return empty for LIKE wildcards, left to the database
+     */
+    static Optional<SkuMatcher> of(String pattern) {
+        if (pattern.indexOf('%') >= 0 || pattern.indexOf('_') >= 0 || pattern.indexOf('\\') >= 0) {
+            return Optional.empty();
+        }
+        if (pattern.isEmpty()) {
+            return Optional.of(ALL);
+        }
+        final List<Constraint> constraints = new ArrayList<>();
+        for (int offset = 0; offset + pattern.length() <= PackedSku.LENGTH; offset++) {
+            final Constraint constraint = Constraint.at(pattern, offset);
+            if (constraint != null) {
+                constraints.add(constraint);
+            }
+        }
+        if (constraints.isEmpty()) {
+            return Optional.of(NONE);
+        }
+        if (constraints.size() == 1 && Constraint.at(pattern, 0) != null) {
+            // A prefix
+            return Optional.of(range(pad(pattern, 'A', '0'), pad(pattern, 'Z', '9') + 1));
+        }
+        return Optional.of(new SkuMatcher(constraints, 0, PackedSku.MAX + 1));
+    }
+
+    boolean matches(int packed) {
+        if (isRange()) {
+            return packed >= from && packed < to;
+        }
+        final int letters = packed / PackedSku.DIGIT_RANGE;
+        final int digits = packed % PackedSku.DIGIT_RANGE;
+        for (Constraint constraint : constraints) {
+            if (constraint.matches(letters, digits)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tells whether the matches are the packed range [from, to), the index then answers with a binary search.
+     */
+    boolean isRange() {
+        return constraints.length == 0;
+    }
+
+    int from() {
+        return from;
+    }
+
+    int to() {
+        return to;
+    }
+
+    private static int pad(String prefix, char letter, char digit) {
+        final StringBuilder sku = new StringBuilder(prefix);
+        for (int i = prefix.length(); i < PackedSku.LENGTH; i++) {
+            sku.append(i < PackedSku.LETTERS ? letter : i == PackedSku.DASH ? '-' : digit);
+        }
+        return PackedSku.pack(sku.toString());
+    }
+
+    /**
+     * The pattern at a given position: (letters / letterDiv) % letterMod == letterValue, and likewise for the digits.
+     * A modulo of one leaves the part unconstrained.
+     */
+    private record Constraint(int letterDiv, int letterMod, int letterValue, int digitDiv, int digitMod,
+            int digitValue) {
+
+        static Constraint at(String pattern, int offset) {
+            int letterMod = 1;
+            int letterValue = 0;
+            int lastLetter = -1;
+            int digitMod = 1;
+            int digitValue = 0;
+            int lastDigit = -1;
+            for (int i = 0; i < pattern.length(); i++) {
+                final int position = offset + i;
+                final char c = pattern.charAt(i);
+                if (!PackedSku.fits(c, position)) {
+                    return null;
+                }
+                if (position < PackedSku.LETTERS) {
+                    letterMod *= 26;
+                    letterValue = letterValue * 26 + (c - 'A');
+                    lastLetter = position;
+                } else if (position > PackedSku.DASH) {
+                    digitMod *= 10;
+                    digitValue = digitValue * 10 + (c - '0');
+                    lastDigit = position;
+                }
+            }
+            int letterDiv = 1;
+            for (int i = lastLetter + 1; lastLetter >= 0 && i < PackedSku.LETTERS; i++) {
+                letterDiv *= 26;
+            }
+            int digitDiv = 1;
+            for (int i = lastDigit + 1; lastDigit >= 0 && i < PackedSku.LENGTH; i++) {
+                digitDiv *= 10;
+            }
+            return new Constraint(letterDiv, letterMod, letterValue, digitDiv, digitMod, digitValue);
+        }
+
+        boolean matches(int letters, int digits) {
+            return (letters / letterDiv) % letterMod == letterValue && (digits / digitDiv) % digitMod == digitValue;
+        }
+    }
+}
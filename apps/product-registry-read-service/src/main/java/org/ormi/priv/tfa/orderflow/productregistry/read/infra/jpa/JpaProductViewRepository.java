@@ -1,45 +1,131 @@
 package org.ormi.priv.tfa.orderflow.productregistry.read.infra.jpa;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
 import org.ormi.priv.tfa.orderflow.kernel.product.ProductId;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductLifecycle;
 import org.ormi.priv.tfa.orderflow.kernel.product.SkuId;
 import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewRepository;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewSearch;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewSearch.Cursor;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewSearch.SortKey;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductSummaryRow;
 import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView.ProductViewEvent;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductViewHistory;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.index.ProductSkuIndex;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.quarkus.arc.DefaultBean;
+import io.quarkus.arc.properties.UnlessBuildProperty;
 import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import io.quarkus.panache.common.Parameters;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.TypedQuery;
 
 @ApplicationScoped
+@DefaultBean
+@UnlessBuildProperty(name = "product-view.store", stringValue = "mmap", enableIfMissing = true)
 public class JpaProductViewRepository implements PanacheRepositoryBase<ProductViewEntity, UUID>, ProductViewRepository {
 
+    // A single statement: the history is append-only and a view already projected further is kept, so that stale
+    // and redelivered events need no prior read
+    private static final String SQL_UPSERT_QUERY = "WITH appended AS ("
+            + "INSERT INTO read_product_registry.product_view_event (product_id, sequence, event) "
+            + "SELECT ?, CAST(e ->> 'sequence' AS bigint), e FROM jsonb_array_elements(CAST(? AS jsonb)) e "
+            + "ON CONFLICT (product_id, sequence) DO NOTHING) "
+            + "INSERT INTO read_product_registry.product_view AS v "
+            + "(id, _version, sku_id, name, description, status, events, catalogs, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, CAST(? AS jsonb), CAST(? AS jsonb), ?, ?) "
+            + "ON CONFLICT (id) DO UPDATE SET _version = EXCLUDED._version, sku_id = EXCLUDED.sku_id, "
+            + "name = EXCLUDED.name, description = EXCLUDED.description, status = EXCLUDED.status, "
+            + "events = EXCLUDED.events, catalogs = EXCLUDED.catalogs, updated_at = EXCLUDED.updated_at "
+            + "WHERE v._version < EXCLUDED._version";
+    private static final String SQL_EVENTS_PAGE_QUERY = "SELECT CAST(COALESCE(jsonb_agg(h.event ORDER BY h.sequence), "
+            + "'[]') AS text) FROM (SELECT event, sequence FROM read_product_registry.product_view_event "
+            + "WHERE product_id = ?1 ORDER BY sequence LIMIT ?2 OFFSET ?3) h";
+    // Only the listed columns, catalog_count is computed by the table from the catalogs
+    private static final String JPQL_SUMMARY_QUERY = "SELECT new "
+            + "org.ormi.priv.tfa.orderflow.kernel.product.views.ProductSummaryRow("
+            + "v.id, v.skuId, v.name, v.status, v.catalogCount, v.updatedAt) FROM ProductViewEntity v ";
+    private static final String SQL_ESTIMATE_QUERY = "EXPLAIN (FORMAT JSON) SELECT 1 "
+            + "FROM read_product_registry.product_view WHERE sku_id LIKE ?";
+    // The view has no statistics of its own, they are on the table of the active generation
+    private static final String SQL_ROW_ESTIMATE_QUERY = "SELECT COALESCE(MAX(CAST(c.reltuples AS bigint)), -1) "
+            + "FROM pg_class c JOIN read_product_registry.product_view_generation g ON g.table_name = c.relname "
+            + "WHERE c.relnamespace = CAST('read_product_registry' AS regnamespace) AND g.status = 'ACTIVE'";
+    private static final String SQL_COUNT_EVENTS_QUERY = "SELECT count(*) FROM read_product_registry.product_view_event "
+            + "WHERE product_id = ?1";
+
     private final ProductViewJpaMapper mapper;
     private final ObjectMapper objectMapper;
+    private final ProductSkuIndex skuIndex;
+    private final int inlineEvents;
 
-    public JpaProductViewRepository(ProductViewJpaMapper mapper, ObjectMapper objectMapper) {
+    @Inject
+    public JpaProductViewRepository(
+            ProductViewJpaMapper mapper,
+            ObjectMapper objectMapper,
+            ProductSkuIndex skuIndex,
+            @ConfigProperty(name = "product-view.inline-events", defaultValue = "20") int inlineEvents) {
         this.mapper = mapper;
         this.objectMapper = objectMapper;
+        this.skuIndex = skuIndex;
+        this.inlineEvents = inlineEvents;
     }
 
     @Override
     public void save(ProductView productView) {
-        findByIdOptional(productView.getId().value())
-                .ifPresentOrElse(e -> {
-                    mapper.updateEntity(productView, e, objectMapper);
-                }, () -> {
-                    ProductViewEntity newEntity = mapper.toEntity(productView, objectMapper);
-                    getEntityManager().merge(newEntity);
-                });
+        saveAll(List.of(productView));
+    }
+
+    @Override
+    public void saveAll(Collection<ProductView> productViews) {
+        if (productViews.isEmpty()) {
+            return;
+        }
+        getEntityManager().unwrap(Session.class).doWork(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(SQL_UPSERT_QUERY)) {
+                for (ProductView productView : productViews) {
+                    bind(ps, productView);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        });
+        skuIndex.onSaved(productViews);
     }
 
     @Override
     public Optional<ProductView> findById(ProductId id) {
-        return findByIdOptional(id.value())
-                .map(e -> mapper.toDomain(e, objectMapper));
+        // Saves bypass the persistence context, a managed copy would go stale
+        final ProductViewEntity entity = getEntityManager().find(ProductViewEntity.class, id.value(),
+                Map.of(HibernateHints.HINT_READ_ONLY, true));
+        if (entity == null) {
+            return Optional.empty();
+        }
+        getEntityManager().detach(entity);
+        return Optional.of(mapper.toDomain(entity, objectMapper));
     }
 
     @Override
@@ -51,8 +137,12 @@ public class JpaProductViewRepository implements PanacheRepositoryBase<ProductVi
 
     @Override
     public List<ProductView> searchPaginatedViewsOrderBySkuId(String skuIdPattern, int page, int size) {
+        final Optional<List<UUID>> ids = skuIndex.search(skuIdPattern, page, size);
+        if (ids.isPresent()) {
+            return findAllInOrder(ids.get());
+        }
         return find("skuId LIKE ?1 ORDER BY skuId", "%" + skuIdPattern + "%")
-                .page(page - 1, size)
+                .page(Math.max(page - 1, 0), size)
                 .list()
                 .stream()
                 .map(e -> mapper.toDomain(e, objectMapper))
@@ -61,7 +151,207 @@ public class JpaProductViewRepository implements PanacheRepositoryBase<ProductVi
 
     @Override
     public long countPaginatedViewsBySkuIdPattern(String skuIdPattern) {
-        return count("skuId LIKE ?1", "%" + skuIdPattern + "%");
+        return skuIndex.count(skuIdPattern)
+                .orElseGet(() -> count("skuId LIKE ?1", "%" + skuIdPattern + "%"));
+    }
+
+    @Override
+    public List<ProductView> searchViews(ProductViewSearch search) {
+        if (search.sort() == SortKey.SKU_ID) {
+            final Optional<List<UUID>> ids = skuIndex.searchAfter(search.skuIdPattern(),
+                    search.after().map(Cursor::key), search.descending(), search.size());
+            if (ids.isPresent()) {
+                return findAllInOrder(ids.get());
+            }
+        }
+        final Keyset keyset = keyset(search);
+        return find("FROM ProductViewEntity v WHERE " + keyset.clause(), keyset.params())
+                .page(0, search.size())
+                .list()
+                .stream()
+                .map(e -> mapper.toDomain(e, objectMapper))
+                .toList();
+    }
+
+    @Override
+    public List<ProductSummaryRow> searchPaginatedSummariesOrderBySkuId(String skuIdPattern, int page, int size) {
+        final Optional<List<UUID>> ids = skuIndex.search(skuIdPattern, page, size);
+        if (ids.isPresent()) {
+            return findSummariesInOrder(ids.get());
+        }
+        return getEntityManager()
+                .createQuery(JPQL_SUMMARY_QUERY + "WHERE v.skuId LIKE :pattern ORDER BY v.skuId",
+                        ProductSummaryRow.class)
+                .setParameter("pattern", "%" + skuIdPattern + "%")
+                .setFirstResult(Math.toIntExact(ProductViewRepository.offsetOf(page, size)))
+                .setMaxResults(size)
+                .getResultList();
+    }
+
+    @Override
+    public List<ProductSummaryRow> searchSummaries(ProductViewSearch search) {
+        if (search.sort() == SortKey.SKU_ID) {
+            final Optional<List<UUID>> ids = skuIndex.searchAfter(search.skuIdPattern(),
+                    search.after().map(Cursor::key), search.descending(), search.size());
+            if (ids.isPresent()) {
+                return findSummariesInOrder(ids.get());
+            }
+        }
+        final Keyset keyset = keyset(search);
+        final TypedQuery<ProductSummaryRow> query = getEntityManager()
+                .createQuery(JPQL_SUMMARY_QUERY + "WHERE " + keyset.clause(), ProductSummaryRow.class)
+                .setMaxResults(search.size());
+        keyset.params().map().forEach(query::setParameter);
+        return query.getResultList();
+    }
+
+    @Override
+    public long estimateViewsBySkuIdPattern(String skuIdPattern) {
+        final OptionalLong indexed = skuIndex.count(skuIdPattern);
+        if (indexed.isPresent()) {
+            return indexed.getAsLong();
+        }
+        if (skuIdPattern.isEmpty()) {
+            // -1 when never analyzed or without an active generation
+            final long rows = ((Number) getEntityManager().createNativeQuery(SQL_ROW_ESTIMATE_QUERY)
+                    .getSingleResult()).longValue();
+            return rows >= 0 ? rows : count();
+        }
+        // Rows expected by the planner, from the table statistics
+        return getEntityManager().unwrap(Session.class).doReturningWork(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(SQL_ESTIMATE_QUERY)) {
+                ps.setString(1, "%" + skuIdPattern + "%");
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return objectMapper.readTree(rs.getString(1)).path(0).path("Plan").path("Plan Rows").asLong();
+                } catch (JsonProcessingException e) {
+                    throw new SQLException("Failed to read the query plan", e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public Map<ProductLifecycle, Long> countViewsByStatus() {
+        final Map<ProductLifecycle, Long> counts = new EnumMap<>(ProductLifecycle.class);
+        getEntityManager()
+                .createQuery("SELECT v.status, count(v) FROM ProductViewEntity v GROUP BY v.status", Object[].class)
+                .getResultList()
+                .forEach(row -> counts.put((ProductLifecycle) row[0], (Long) row[1]));
+        return counts;
+    }
+
+    @Override
+    public List<ProductViewEvent> findPaginatedEventsOrderBySequence(ProductId id, int page, int size) {
+        final String events = (String) getEntityManager().createNativeQuery(SQL_EVENTS_PAGE_QUERY)
+                .setParameter(1, id.value())
+                .setParameter(2, size)
+                .setParameter(3, (long) page * size)
+                .getSingleResult();
+        try {
+            return mapper.jsonNodeToProductViewEventList(objectMapper.readTree(events), objectMapper);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to deserialize events of product " + id.value(), e);
+        }
+    }
+
+    @Override
+    public long countEvents(ProductId id) {
+        return ((Number) getEntityManager().createNativeQuery(SQL_COUNT_EVENTS_QUERY)
+                .setParameter(1, id.value())
+                .getSingleResult()).longValue();
+    }
+
+    /**
+     * Gets the predicate and order of a search on (sort column, id), walked by the (column, id) indexes of the view
+     * table.
+     */
+    private static Keyset keyset(ProductViewSearch search) {
+        final String column = column(search.sort());
+        final String direction = search.descending() ? "DESC" : "ASC";
+        final Parameters params = Parameters.with("pattern", "%" + search.skuIdPattern() + "%");
+        final StringBuilder clause = new StringBuilder("v.skuId LIKE :pattern");
+        search.after().ifPresent(after -> {
+            final String comparison = search.descending() ? "<" : ">";
+            clause.append(" AND (").append(column).append(' ').append(comparison).append(" :key OR (")
+                    .append(column).append(" = :key AND v.id ").append(comparison).append(" :id))");
+            params.and("key", search.sort().parseKey(after.key())).and("id", after.id());
+        });
+        clause.append(" ORDER BY ").append(column).append(' ').append(direction)
+                .append(", v.id ").append(direction);
+        return new Keyset(clause.toString(), params);
+    }
+
+    private List<ProductSummaryRow> findSummariesInOrder(List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        final Map<UUID, ProductSummaryRow> rows = getEntityManager()
+                .createQuery(JPQL_SUMMARY_QUERY + "WHERE v.id IN :ids", ProductSummaryRow.class)
+                .setParameter("ids", ids)
+                .getResultStream()
+                .collect(Collectors.toMap(ProductSummaryRow::id, Function.identity()));
+        return ids.stream()
+                .map(rows::get)
+                .filter(Objects::nonNull)
+                .toList();
     }
 
+    /**
+     * Loads the views of the given ids by primary key, in the order of the ids.
+     */
+    private List<ProductView> findAllInOrder(List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        final Map<UUID, ProductViewEntity> entities = list("id IN ?1", ids).stream()
+                .collect(Collectors.toMap(ProductViewEntity::getId, Function.identity()));
+        return ids.stream()
+                .map(entities::get)
+                .filter(Objects::nonNull)
+                .map(e -> mapper.toDomain(e, objectMapper))
+                .toList();
+    }
+
+    private static String column(SortKey sort) {
+        return switch (sort) {
+            case SKU_ID -> "v.skuId";
+            case NAME -> "v.name";
+            case UPDATED_AT -> "v.updatedAt";
+            case STATUS -> "v.status";
+        };
+    }
+
+    private void bind(PreparedStatement ps, ProductView productView) throws SQLException {
+        final ProductViewEntity entity = mapper.toEntity(productView, objectMapper);
+        // Events already recorded are skipped by the history insert
+        final String history = toJson(entity.getEvents());
+        final ProductViewHistory events = productView.getEvents();
+        if (events.size() > inlineEvents) {
+            entity.setEvents(mapper.productViewEventListToJsonNode(events.latest(inlineEvents), objectMapper));
+        }
+        ps.setObject(1, entity.getId());
+        ps.setString(2, history);
+        ps.setObject(3, entity.getId());
+        ps.setLong(4, entity.getVersion());
+        ps.setString(5, entity.getSkuId());
+        ps.setString(6, entity.getName());
+        ps.setString(7, entity.getDescription());
+        ps.setString(8, entity.getStatus().name());
+        ps.setString(9, toJson(entity.getEvents()));
+        ps.setString(10, toJson(entity.getCatalogs()));
+        ps.setTimestamp(11, Timestamp.from(entity.getCreatedAt()));
+        ps.setTimestamp(12, Timestamp.from(entity.getUpdatedAt()));
+    }
+
+    private String toJson(JsonNode node) throws SQLException {
+        try {
+            return objectMapper.writeValueAsString(node);
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Failed to serialize product view", e);
+        }
+    }
+
+    private record Keyset(String clause, Parameters params) {
+    }
 }
@@ -56,6 +56,9 @@ public class ProductViewEntity {
     @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "catalogs", nullable = false, columnDefinition = "jsonb")
     private JsonNode catalogs;
+    // Generated by the table, for the lists
+    @Column(name = "catalog_count", insertable = false, updatable = false, columnDefinition = "int")
+    private Integer catalogCount;
     @Column(name = "created_at", nullable = false, updatable = false, columnDefinition = "timestamptz")
     private Instant createdAt;
     @Column(name = "updated_at", nullable = false, columnDefinition = "timestamptz")
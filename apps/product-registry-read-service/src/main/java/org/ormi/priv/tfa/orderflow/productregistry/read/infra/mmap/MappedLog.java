@@ -0,0 +1,195 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.mmap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Journal en ajout seul, découpé en segments de taille fixe projetés en mémoire. Chaque entrée est précédée de sa
+ * longueur et de son CRC ; la longueur est écrite en dernier, une entrée incomplète après un crash est donc ignorée.
+ *
+ * Une position dans le journal code le segment sur les 32 bits de poids fort et la position dans le segment sur les
+ * 32 bits de poids faible.
+ */
+
+final class MappedLog {
+
+    private static final int ENTRY_HEADER = Integer.BYTES * 2;
+
+    private final Path dir;
+    private final String prefix;
+    private final int segmentSize;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private int segment;
+    private int position;
+    private long size;
+
+    private MappedLog(Path dir, String prefix, int segmentSize) {
+        this.dir = dir;
+        this.prefix = prefix;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Opens the segments of the given prefix, the end of the log being found by {@link #replay}.
+     */
+    static MappedLog open(Path dir, String prefix, int segmentSize) throws IOException {
+        final MappedLog log = new MappedLog(dir, prefix, segmentSize);
+        for (int i = 0; Files.exists(log.segmentPath(i)); i++) {
+            log.segments.add(log.map(i));
+        }
+        if (log.segments.isEmpty()) {
+            log.segments.add(log.map(0));
+        }
+        return log;
+    }
+
+    static long offset(int segment, int position) {
+        return ((long) segment << 32) | position;
+    }
+
+    /**
+     * Checks whether an entry of the given length fits in a segment.
+     */
+    boolean fits(int length) {
+        return length + ENTRY_HEADER <= segmentSize;
+    }
+
+    /**
+     * Appends an entry.
+     *
+     * @return the offset of the entry
+     */
+    long append(ByteBuffer body) {
+        final int length = body.remaining();
+        if (!fits(length)) {
+            throw new IllegalArgumentException("Entry of " + length + " bytes exceeds the segment size");
+        }
+        if (position + ENTRY_HEADER + length > segmentSize) {
+            // The zero length left at the end of the segment sends readers to the next one
+            size += segmentSize - position;
+            segment++;
+            position = 0;
+            if (segment == segments.size()) {
+                segments.add(uncheckedMap(segment));
+            }
+        }
+        final MappedByteBuffer buffer = segments.get(segment);
+        final CRC32C crc = new CRC32C();
+        crc.update(body.duplicate());
+        buffer.put(position + ENTRY_HEADER, body, body.position(), length);
+        buffer.putInt(position + Integer.BYTES, (int) crc.getValue());
+        buffer.putInt(position, length);
+        final long offset = offset(segment, position);
+        position += ENTRY_HEADER + length;
+        size += ENTRY_HEADER + length;
+        return offset;
+    }
+
+    /**
+     * Gets the body of the entry at the given offset, as a read-only view of the mapping.
+     */
+    ByteBuffer read(long offset) {
+        final MappedByteBuffer buffer = segments.get((int) (offset >>> 32));
+        final int at = (int) offset;
+        return buffer.slice(at + ENTRY_HEADER, buffer.getInt(at)).asReadOnlyBuffer();
+    }
+
+    /**
+     * Reads the valid entries from the given offset and moves the end of the log after the last one. Segments past a
+     * torn entry are discarded.
+     */
+    void replay(long from, EntryConsumer consumer) throws IOException {
+        int seg = (int) (from >>> 32);
+        int pos = (int) from;
+        while (seg < segments.size()) {
+            final MappedByteBuffer buffer = segments.get(seg);
+            final int length = pos + ENTRY_HEADER <= segmentSize ? buffer.getInt(pos) : 0;
+            if (length <= 0 || pos + ENTRY_HEADER + length > segmentSize) {
+                if (seg + 1 < segments.size() && segments.get(seg + 1).getInt(0) > 0) {
+                    seg++;
+                    pos = 0;
+                    continue;
+                }
+                break;
+            }
+            final ByteBuffer body = buffer.slice(pos + ENTRY_HEADER, length);
+            final CRC32C crc = new CRC32C();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(pos + Integer.BYTES)) {
+                break;
+            }
+            consumer.accept(offset(seg, pos), body.asReadOnlyBuffer());
+            pos += ENTRY_HEADER + length;
+        }
+        segment = seg;
+        position = pos;
+        // Anything after the end is garbage from a torn write, later appends overwrite it
+        final MappedByteBuffer last = segments.get(seg);
+        for (int i = pos; i < Math.min(pos + ENTRY_HEADER, segmentSize); i++) {
+            last.put(i, (byte) 0);
+        }
+        while (segments.size() > seg + 1) {
+            segments.remove(segments.size() - 1);
+            Files.deleteIfExists(segmentPath(segments.size()));
+        }
+        size = (long) seg * segmentSize + pos;
+    }
+
+    long end() {
+        return offset(segment, position);
+    }
+
+    /**
+     * Gets the number of bytes written, counting the unused tails of full segments.
+     */
+    long size() {
+        return size;
+    }
+
+    void force() {
+        for (int i = 0; i <= segment; i++) {
+            segments.get(i).force();
+        }
+    }
+
+    void delete() throws IOException {
+        segments.clear();
+        for (int i = 0; Files.exists(segmentPath(i)); i++) {
+            Files.delete(segmentPath(i));
+        }
+    }
+
+    private MappedByteBuffer uncheckedMap(int index) {
+        try {
+            return map(index);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private MappedByteBuffer map(int index) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(index), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private Path segmentPath(int index) {
+        return dir.resolve(String.format("%s-%06d.log", prefix, index));
+    }
+
+    @FunctionalInterface
+    interface EntryConsumer {
+        void accept(long offset, ByteBuffer body) throws IOException;
+    }
+}
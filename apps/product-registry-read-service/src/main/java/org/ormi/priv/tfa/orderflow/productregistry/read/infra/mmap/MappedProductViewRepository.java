@@ -0,0 +1,174 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.mmap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductId;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductLifecycle;
+import org.ormi.priv.tfa.orderflow.kernel.product.SkuId;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewRepository;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewSearch;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView.ProductViewEvent;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.jpa.ProductViewJpaMapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.quarkus.arc.properties.IfBuildProperty;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+/**
+ * Dépôt des vues produit hors tas, dans des fichiers projetés en mémoire, à la place de la table
+ * `product_view` lorsque `product-view.store` vaut `mmap` à la construction.
+ *
+ * Les écritures sont durables au point de reprise suivant (`product-view.mmap.checkpoint-interval`), que les
+ * acquittements de l'outbox attendent ; un crash du processus seul ne perd rien, les pages projetées restant dans le
+ * cache du système.
+ */
+
+@ApplicationScoped
+@IfBuildProperty(name = "product-view.store", stringValue = "mmap")
+public class MappedProductViewRepository implements ProductViewRepository {
+
+    private static final Logger LOG = Logger.getLogger(MappedProductViewRepository.class);
+
+    private final ProductViewEntryCodec codec;
+    private final Path path;
+    private final int segmentSize;
+    private final int inlineEvents;
+    private final Duration checkpointInterval;
+    private final double compactionThreshold;
+    private final long compactionMinSize;
+
+    private final ScheduledExecutorService scheduler = Executors
+            .newSingleThreadScheduledExecutor(r -> new Thread(r, "product-view-mmap-maintenance"));
+    private volatile MappedProductViewStore store;
+
+    @Inject
+    public MappedProductViewRepository(
+            ProductViewJpaMapper mapper,
+            ObjectMapper objectMapper,
+            @ConfigProperty(name = "product-view.mmap.path", defaultValue = "data/product-views") Path path,
+            @ConfigProperty(name = "product-view.mmap.segment-size", defaultValue = "256M") MemorySize segmentSize,
+            @ConfigProperty(name = "product-view.inline-events", defaultValue = "20") int inlineEvents,
+            @ConfigProperty(name = "product-view.mmap.checkpoint-interval", defaultValue = "5s") Duration checkpointInterval,
+            @ConfigProperty(name = "product-view.mmap.compaction.threshold", defaultValue = "0.5") double compactionThreshold,
+            @ConfigProperty(name = "product-view.mmap.compaction.min-size", defaultValue = "64M") MemorySize compactionMinSize) {
+        this.codec = new ProductViewEntryCodec(mapper, objectMapper);
+        this.path = path;
+        this.segmentSize = Math.toIntExact(segmentSize.asLongValue());
+        this.inlineEvents = inlineEvents;
+        this.checkpointInterval = checkpointInterval;
+        this.compactionThreshold = compactionThreshold;
+        this.compactionMinSize = compactionMinSize.asLongValue();
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        store();
+        scheduler.scheduleWithFixedDelay(this::maintain, checkpointInterval.toMillis(), checkpointInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        scheduler.shutdownNow();
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Override
+    public void save(ProductView productView) {
+        store().save(productView);
+    }
+
+    @Override
+    public Optional<ProductView> findById(ProductId id) {
+        return store().findById(id);
+    }
+
+    @Override
+    public Optional<ProductView> findBySkuId(SkuId skuId) {
+        return store().findBySkuId(skuId);
+    }
+
+    @Override
+    public List<ProductView> searchPaginatedViewsOrderBySkuId(String skuIdPattern, int page, int size) {
+        return store().searchOrderBySkuId(skuIdPattern, page, size);
+    }
+
+    @Override
+    public List<ProductView> searchViews(ProductViewSearch search) {
+        return store().search(search);
+    }
+
+    @Override
+    public long countPaginatedViewsBySkuIdPattern(String skuIdPattern) {
+        return store().countBySkuIdPattern(skuIdPattern);
+    }
+
+    @Override
+    public Map<ProductLifecycle, Long> countViewsByStatus() {
+        return store().countByStatus();
+    }
+
+    @Override
+    public List<ProductViewEvent> findPaginatedEventsOrderBySequence(ProductId id, int page, int size) {
+        return store().findEventsOrderBySequence(id, page, size);
+    }
+
+    @Override
+    public long countEvents(ProductId id) {
+        return store().countEvents(id);
+    }
+
+    @Override
+    public CompletionStage<Void> durable() {
+        return store().durable();
+    }
+
+    private MappedProductViewStore store() {
+        MappedProductViewStore current = store;
+        if (current == null) {
+            synchronized (this) {
+                current = store;
+                if (current == null) {
+                    try {
+                        current = MappedProductViewStore.open(path, segmentSize, inlineEvents, codec);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to open the product view store at " + path, e);
+                    }
+                    LOG.infof("Product view store opened at %s", path);
+                    store = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private void maintain() {
+        try {
+            store.checkpoint();
+            if (store.compactIfNeeded(compactionThreshold, compactionMinSize)) {
+                LOG.infof("Product view store compacted at %s", path);
+            }
+        } catch (Exception e) {
+            LOG.warnf("Product view store maintenance failed: %s", e.getMessage());
+        }
+    }
+}
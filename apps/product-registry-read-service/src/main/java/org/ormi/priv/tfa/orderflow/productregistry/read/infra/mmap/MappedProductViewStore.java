@@ -0,0 +1,521 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.mmap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductId;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductLifecycle;
+import org.ormi.priv.tfa.orderflow.kernel.product.SkuId;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewRepository;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewSearch;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewSearch.SortKey;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView.ProductViewEvent;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.mmap.ProductViewEntryCodec.Header;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.mmap.ProductViewEntryCodec.Texts;
+
+/**
+ * Magasin des vues produit en fichiers projetés en mémoire, organisé en générations : un journal en ajout seul et un
+ * fichier d'enregistrements de taille fixe. Le fichier MANIFEST désigne la génération courante.
+ *
+ * Les enregistrements sont rejoués depuis le journal à partir du dernier point de reprise à l'ouverture ; le compactage
+ * réécrit les vues dans une nouvelle génération puis bascule le MANIFEST, l'ancienne reste valide jusque-là. Des
+ * enregistrements déchirés par un crash, ou en avance sur le journal, sont reconstruits en rejouant tout le journal.
+ *
+ * Les vues enregistrées ne sont durables qu'au point de reprise suivant, que {@link #durable()} permet d'attendre.
+ */
+
+final class MappedProductViewStore {
+
+    private static final String MANIFEST = "MANIFEST";
+    private static final Pattern GENERATION_FILE = Pattern.compile("g(\\d+)[-.].*");
+    private static final long NO_ENTRY = -1L;
+
+    private final Path dir;
+    private final int segmentSize;
+    private final int inlineEvents;
+    private final ProductViewEntryCodec codec;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // On-heap indexes of the slots, rebuilt from the records on open
+    private final Map<UUID, Integer> ids = new HashMap<>();
+    private final TreeMap<String, Integer> skus = new TreeMap<>();
+    private int generation;
+    private MappedLog log;
+    private ProductViewRecords records;
+    // Bytes of the log superseded by a later entry
+    private long garbage;
+    // Completed by the next checkpoint, for the views saved since the last one
+    private CompletableFuture<Void> durable = CompletableFuture.completedFuture(null);
+
+    private MappedProductViewStore(Path dir, int segmentSize, int inlineEvents, ProductViewEntryCodec codec) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.inlineEvents = inlineEvents;
+        this.codec = codec;
+    }
+
+    /**
+     * Opens the store, recovering the entries appended after the last checkpoint.
+     */
+    static MappedProductViewStore open(Path dir, int segmentSize, int inlineEvents, ProductViewEntryCodec codec)
+            throws IOException {
+        Files.createDirectories(dir);
+        final MappedProductViewStore store = new MappedProductViewStore(dir, segmentSize, inlineEvents, codec);
+        final Path manifest = dir.resolve(MANIFEST);
+        store.generation = Files.exists(manifest) ? Integer.parseInt(Files.readString(manifest).strip()) : 0;
+        // Leftovers of an interrupted compaction
+        store.deleteGenerationsExcept(store.generation);
+        store.recover();
+        return store;
+    }
+
+    void save(ProductView view) {
+        lock.writeLock().lock();
+        try {
+            final Integer slot = ids.get(view.getId().value());
+            final long previous = slot == null ? NO_ENTRY : records.entry(slot);
+            final long savedVersion = slot == null ? 0L : records.version(slot);
+            // Only the events projected since the last save are new to the history
+            final List<ProductViewEvent> appended = slot == null
+                    ? view.getEvents()
+                    : view.getEvents().stream()
+                            .filter(event -> event.getSequence() > savedVersion)
+                            .toList();
+            final long eventCount = (slot == null ? 0L : records.eventCount(slot)) + appended.size();
+            append(log, view, previous, eventCount, appended, this::apply);
+            if (durable.isDone()) {
+                durable = new CompletableFuture<>();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to save product view " + view.getId().value(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    Optional<ProductView> findById(ProductId id) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(ids.get(id.value())).map(this::view);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    Optional<ProductView> findBySkuId(SkuId skuId) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(skus.get(skuId.value())).map(this::view);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    List<ProductView> searchOrderBySkuId(String skuIdPattern, int page, int size) {
+        lock.readLock().lock();
+        try {
+            return skus.entrySet().stream()
+                    .filter(e -> e.getKey().contains(skuIdPattern))
+                    .skip(ProductViewRepository.offsetOf(page, size))
+                    .limit(size)
+                    .map(e -> view(e.getValue()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    List<ProductView> search(ProductViewSearch search) {
+        lock.readLock().lock();
+        try {
+            if (search.sort() == SortKey.SKU_ID) {
+                NavigableMap<String, Integer> from = skus;
+                if (search.after().isPresent()) {
+                    final String key = search.after().get().key();
+                    from = search.descending() ? skus.headMap(key, false) : skus.tailMap(key, false);
+                }
+                return (search.descending() ? from.descendingMap() : from).entrySet().stream()
+                        .filter(e -> e.getKey().contains(search.skuIdPattern()))
+                        .limit(search.size())
+                        .map(e -> view(e.getValue()))
+                        .toList();
+            }
+            // The other keys are not indexed, the matching slots are sorted on each search
+            final Comparator<SortedSlot> order = search.descending()
+                    ? Comparator.reverseOrder()
+                    : Comparator.naturalOrder();
+            final Optional<SortedSlot> after = search.after()
+                    .map(cursor -> new SortedSlot(comparable(search.sort().parseKey(cursor.key())), cursor.id(), -1));
+            return skus.entrySet().stream()
+                    .filter(e -> e.getKey().contains(search.skuIdPattern()))
+                    .map(e -> new SortedSlot(sortKey(search.sort(), e.getValue()), records.id(e.getValue()),
+                            e.getValue()))
+                    .filter(slot -> after.map(a -> order.compare(slot, a) > 0).orElse(true))
+                    .sorted(order)
+                    .limit(search.size())
+                    .map(slot -> view(slot.slot()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long countBySkuIdPattern(String skuIdPattern) {
+        lock.readLock().lock();
+        try {
+            return skus.keySet().stream()
+                    .filter(sku -> sku.contains(skuIdPattern))
+                    .count();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    Map<ProductLifecycle, Long> countByStatus() {
+        lock.readLock().lock();
+        try {
+            final Map<ProductLifecycle, Long> counts = new EnumMap<>(ProductLifecycle.class);
+            ids.values().forEach(slot -> counts.merge(records.status(slot), 1L, Long::sum));
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    List<ProductViewEvent> findEventsOrderBySequence(ProductId id, int page, int size) {
+        lock.readLock().lock();
+        try {
+            final Integer slot = ids.get(id.value());
+            return slot == null ? List.of() : events(slot, (long) page * size, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long countEvents(ProductId id) {
+        lock.readLock().lock();
+        try {
+            final Integer slot = ids.get(id.value());
+            return slot == null ? 0L : records.eventCount(slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets a stage completed once the views saved so far are durable, at the next checkpoint or compaction. Never
+     * completed exceptionally: a failed checkpoint is retried with the next one.
+     */
+    CompletionStage<Void> durable() {
+        lock.readLock().lock();
+        try {
+            return durable.minimalCompletionStage();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes the log then records that the slots are up to date with it, bounding the replay on the next open.
+     */
+    void checkpoint() {
+        final CompletableFuture<Void> done;
+        lock.writeLock().lock();
+        try {
+            log.force();
+            records.checkpoint(log.end(), garbage);
+            records.force();
+            done = durable;
+            durable = CompletableFuture.completedFuture(null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // Outside of the lock, the waiters acknowledge outbox messages
+        done.complete(null);
+    }
+
+    /**
+     * Compacts the store once the superseded bytes exceed the given share of a log of at least the given size.
+     *
+     * @return whether the store was compacted
+     */
+    boolean compactIfNeeded(double threshold, long minLogSize) {
+        lock.readLock().lock();
+        try {
+            if (log.size() < minLogSize || garbage < threshold * log.size()) {
+                return false;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        compact();
+        return true;
+    }
+
+    /**
+     * Rewrites every view as a single entry holding its whole history into the next generation, then switches the
+     * MANIFEST to it. Slots keep their numbers, so the indexes stay valid.
+     */
+    void compact() {
+        final CompletableFuture<Void> done;
+        lock.writeLock().lock();
+        final int next = generation + 1;
+        try {
+            deleteGenerationsExcept(generation);
+            final MappedLog nextLog = MappedLog.open(dir, prefix(next), segmentSize);
+            final ProductViewRecords nextRecords = ProductViewRecords.open(recordsPath(next));
+            for (int slot = 0; slot < records.slots(); slot++) {
+                final long eventCount = records.eventCount(slot);
+                final List<ProductViewEvent> events = events(slot, 0, (int) eventCount);
+                final long offset = append(nextLog, view(slot, events), NO_ENTRY, eventCount, events,
+                        (at, body) -> {
+                        });
+                nextRecords.allocate();
+                nextRecords.write(slot, records.id(slot), records.version(slot), offset, eventCount,
+                        records.createdAt(slot), records.updatedAt(slot), records.status(slot), records.sku(slot));
+            }
+            nextLog.force();
+            nextRecords.checkpoint(nextLog.end(), 0L);
+            nextRecords.force();
+            writeManifest(next);
+            final MappedLog previousLog = log;
+            final ProductViewRecords previousRecords = records;
+            generation = next;
+            log = nextLog;
+            records = nextRecords;
+            garbage = 0L;
+            done = durable;
+            durable = CompletableFuture.completedFuture(null);
+            previousLog.delete();
+            previousRecords.delete();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compact product views into generation " + next, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        done.complete(null);
+    }
+
+    void close() {
+        checkpoint();
+    }
+
+    private void recover() throws IOException {
+        log = MappedLog.open(dir, prefix(generation), segmentSize);
+        records = ProductViewRecords.open(recordsPath(generation));
+        if (records.valid()) {
+            garbage = records.garbage();
+            for (int slot = 0; slot < records.slots(); slot++) {
+                ids.put(records.id(slot), slot);
+                skus.put(records.sku(slot), slot);
+            }
+            log.replay(records.checkpoint(), this::apply);
+            if (!aheadOfLog()) {
+                return;
+            }
+            ids.clear();
+            skus.clear();
+        }
+        // Torn records, or records written back after a log entry lost with the crash, are rebuilt from scratch
+        records.reset();
+        garbage = 0L;
+        log.replay(0L, this::apply);
+    }
+
+    private boolean aheadOfLog() {
+        final long end = log.end();
+        for (int slot = 0; slot < records.slots(); slot++) {
+            if (records.entry(slot) >= end) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Appends an entry of the view with the given events, split into a chain of entries when they do not fit in a
+     * segment, and passes each of them to the consumer.
+     *
+     * @param eventCount the number of events of the view up to the last of the given ones
+     * @return the offset of the last entry
+     */
+    private long append(MappedLog target, ProductView view, long previous, long eventCount,
+            List<ProductViewEvent> events, MappedLog.EntryConsumer appended) throws IOException {
+        final ByteBuffer body = codec.encode(view, previous, eventCount, events);
+        if (target.fits(body.remaining()) || events.size() <= 1) {
+            final long offset = target.append(body);
+            appended.accept(offset, target.read(offset));
+            return offset;
+        }
+        final int half = events.size() / 2;
+        final long head = append(target, view, previous, eventCount - (events.size() - half),
+                events.subList(0, half), appended);
+        return append(target, view, head, eventCount, events.subList(half, events.size()), appended);
+    }
+
+    /**
+     * Points the slot of the view at the given entry. Entries already applied, replayed after a checkpoint, are
+     * skipped.
+     */
+    private void apply(long offset, ByteBuffer body) throws IOException {
+        final Header header = codec.header(body);
+        Integer slot = ids.get(header.id());
+        if (slot == null) {
+            slot = records.allocate();
+            ids.put(header.id(), slot);
+        } else {
+            if (records.entry(slot) >= offset) {
+                return;
+            }
+            garbage += ProductViewEntryCodec.supersededBytes(codec.header(log.read(records.entry(slot))));
+            final String sku = records.sku(slot);
+            if (!sku.equals(header.sku())) {
+                skus.remove(sku);
+            }
+        }
+        records.write(slot, header.id(), header.version(), offset, header.eventCount(), header.createdAt(),
+                header.updatedAt(), header.status(), header.sku());
+        skus.put(header.sku(), slot);
+    }
+
+    private ProductView view(int slot) {
+        final long eventCount = records.eventCount(slot);
+        final int inline = (int) Math.min(inlineEvents, eventCount);
+        return view(slot, events(slot, eventCount - inline, inline));
+    }
+
+    private ProductView view(int slot, List<ProductViewEvent> events) {
+        final Texts texts = texts(slot);
+        return ProductView.Builder()
+                .id(new ProductId(records.id(slot)))
+                .version(records.version(slot))
+                .skuId(new SkuId(records.sku(slot)))
+                .name(texts.name())
+                .description(texts.description())
+                .status(records.status(slot))
+                .catalogs(texts.catalogs())
+                .events(events)
+                .createdAt(records.createdAt(slot))
+                .updatedAt(records.updatedAt(slot))
+                .build();
+    }
+
+    private Texts texts(int slot) {
+        try {
+            return codec.texts(log.read(records.entry(slot)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read product view " + records.id(slot), e);
+        }
+    }
+
+    private Comparable<Object> sortKey(SortKey sort, int slot) {
+        return comparable(switch (sort) {
+            case SKU_ID -> records.sku(slot);
+            case NAME -> texts(slot).name();
+            case UPDATED_AT -> records.updatedAt(slot);
+            case STATUS -> records.status(slot);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> comparable(Comparable<?> key) {
+        return (Comparable<Object>) key;
+    }
+
+    /**
+     * Reads the events of the given indexes of the history, walking the entries of the view back from the latest one.
+     */
+    private List<ProductViewEvent> events(int slot, long from, int size) {
+        final long to = Math.min(records.eventCount(slot), from + size);
+        final List<List<ProductViewEvent>> chunks = new ArrayList<>();
+        long offset = records.entry(slot);
+        try {
+            while (offset != NO_ENTRY && from < to) {
+                final ByteBuffer body = log.read(offset);
+                final Header header = codec.header(body);
+                // Index in the history of the first event of the entry
+                final long first = header.eventCount() - header.entryEvents();
+                if (first < to) {
+                    chunks.add(codec.events(body, header, (int) Math.max(0L, from - first),
+                            (int) Math.min(header.entryEvents(), to - first)));
+                }
+                if (first <= from) {
+                    break;
+                }
+                offset = header.previous();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read events of product view " + records.id(slot), e);
+        }
+        Collections.reverse(chunks);
+        return chunks.stream()
+                .flatMap(List::stream)
+                .toList();
+    }
+
+    private void writeManifest(int next) throws IOException {
+        final Path temp = dir.resolve(MANIFEST + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(Integer.toString(next).getBytes(StandardCharsets.US_ASCII)));
+            channel.force(true);
+        }
+        Files.move(temp, dir.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void deleteGenerationsExcept(int kept) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                final Matcher matcher = GENERATION_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches() && Integer.parseInt(matcher.group(1)) != kept) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private Path recordsPath(int generation) {
+        return dir.resolve(prefix(generation) + ".records");
+    }
+
+    private static String prefix(int generation) {
+        return "g" + generation;
+    }
+
+    /**
+     * A slot in the order of a search: by sort key, then by product id.
+     */
+    private record SortedSlot(Comparable<Object> key, UUID id, int slot) implements Comparable<SortedSlot> {
+
+        @Override
+        public int compareTo(SortedSlot other) {
+            final int byKey = key.compareTo(other.key);
+            return byKey != 0 ? byKey : id.compareTo(other.id);
+        }
+    }
+}
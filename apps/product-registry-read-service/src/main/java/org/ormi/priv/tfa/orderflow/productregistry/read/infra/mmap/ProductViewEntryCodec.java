@@ -0,0 +1,179 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.mmap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductLifecycle;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView.ProductViewCatalogRef;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView.ProductViewEvent;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.jpa.ProductViewJpaMapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Encodage binaire des entrées du journal des vues produit.
+ *
+ * Une entrée porte l'état complet de la vue hors événements, les événements projetés depuis l'entrée précédente et la
+ * position de celle-ci : l'historique d'une vue se lit en remontant la chaîne de ses entrées. Les textes variables et
+ * les événements (JSON, même format que la table) ne sont décodés qu'à la lecture.
+ */
+
+final class ProductViewEntryCodec {
+
+    private static final int FORMAT = 1;
+
+    private final ProductViewJpaMapper mapper;
+    private final ObjectMapper objectMapper;
+
+    ProductViewEntryCodec(ProductViewJpaMapper mapper, ObjectMapper objectMapper) {
+        this.mapper = mapper;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Encodes an entry.
+     *
+     * @param previous   the offset of the previous entry of the view, -1 for none
+     * @param eventCount the number of events of the view up to this entry
+     * @param events     the events this entry adds to the history
+     */
+    ByteBuffer encode(ProductView view, long previous, long eventCount, List<ProductViewEvent> events)
+            throws IOException {
+        final byte[] status = view.getStatus().name().getBytes(StandardCharsets.US_ASCII);
+        final byte[] sku = view.getSkuId().value().getBytes(StandardCharsets.US_ASCII);
+        final byte[] name = view.getName().getBytes(StandardCharsets.UTF_8);
+        final byte[] description = view.getDescription().getBytes(StandardCharsets.UTF_8);
+        final byte[] catalogs = objectMapper.writeValueAsBytes(
+                mapper.productViewCatalogRefListToJsonNode(view.getCatalogs(), objectMapper));
+        final List<byte[]> encodedEvents = new ArrayList<>(events.size());
+        int eventBytes = Integer.BYTES;
+        for (ProductViewEvent event : events) {
+            final byte[] encoded = objectMapper.writeValueAsBytes(event);
+            encodedEvents.add(encoded);
+            eventBytes += Integer.BYTES + encoded.length;
+        }
+        final int eventsStart = Header.SIZE + Integer.BYTES * 5 + status.length + sku.length + name.length
+                + description.length + catalogs.length;
+        final ByteBuffer body = ByteBuffer.allocate(eventsStart + eventBytes);
+        body.putInt(FORMAT)
+                .putLong(view.getId().value().getMostSignificantBits())
+                .putLong(view.getId().value().getLeastSignificantBits())
+                .putLong(view.getVersion())
+                .putLong(previous)
+                .putLong(eventCount)
+                .putInt(events.size())
+                .putInt(eventsStart)
+                .putLong(view.getCreatedAt().getEpochSecond())
+                .putInt(view.getCreatedAt().getNano())
+                .putLong(view.getUpdatedAt().getEpochSecond())
+                .putInt(view.getUpdatedAt().getNano());
+        putBytes(body, status);
+        putBytes(body, sku);
+        putBytes(body, name);
+        putBytes(body, description);
+        putBytes(body, catalogs);
+        body.putInt(encodedEvents.size());
+        for (byte[] encoded : encodedEvents) {
+            putBytes(body, encoded);
+        }
+        return body.flip();
+    }
+
+    /**
+     * Decodes the fixed part of an entry, the one needed to index it.
+     */
+    Header header(ByteBuffer body) {
+        if (body.getInt(0) != FORMAT) {
+            throw new IllegalStateException("Unknown product view entry format " + body.getInt(0));
+        }
+        final ByteBuffer in = body.duplicate().position(Integer.BYTES);
+        final UUID id = new UUID(in.getLong(), in.getLong());
+        final long version = in.getLong();
+        final long previous = in.getLong();
+        final long eventCount = in.getLong();
+        final int entryEvents = in.getInt();
+        final int eventsStart = in.getInt();
+        final Instant createdAt = Instant.ofEpochSecond(in.getLong(), in.getInt());
+        final Instant updatedAt = Instant.ofEpochSecond(in.getLong(), in.getInt());
+        final ProductLifecycle status = ProductLifecycle.valueOf(getString(in, StandardCharsets.US_ASCII));
+        final String sku = getString(in, StandardCharsets.US_ASCII);
+        return new Header(id, version, previous, eventCount, entryEvents, eventsStart, createdAt, updatedAt, status,
+                sku);
+    }
+
+    /**
+     * Decodes the variable texts of an entry.
+     */
+    Texts texts(ByteBuffer body) throws IOException {
+        final ByteBuffer in = body.duplicate().position(Header.SIZE);
+        skip(in);
+        skip(in);
+        final String name = getString(in, StandardCharsets.UTF_8);
+        final String description = getString(in, StandardCharsets.UTF_8);
+        final List<ProductViewCatalogRef> catalogs = mapper.jsonNodeToProductViewCatalogRefList(
+                objectMapper.readTree(getBytes(in)), objectMapper);
+        return new Texts(name, description, catalogs);
+    }
+
+    /**
+     * Decodes the events of an entry between the given indexes, in sequence order.
+     */
+    List<ProductViewEvent> events(ByteBuffer body, Header header, int from, int to) throws IOException {
+        final ByteBuffer in = body.duplicate().position(header.eventsStart() + Integer.BYTES);
+        final List<ProductViewEvent> events = new ArrayList<>(Math.max(0, to - from));
+        for (int i = 0; i < to; i++) {
+            if (i < from) {
+                skip(in);
+                continue;
+            }
+            events.add(objectMapper.readValue(getBytes(in), ProductViewEvent.class));
+        }
+        return events;
+    }
+
+    /**
+     * Gets the number of bytes of an entry superseded by the next entry of its view, the events staying part of the
+     * history.
+     */
+    static int supersededBytes(Header header) {
+        return header.eventsStart();
+    }
+
+    private static void putBytes(ByteBuffer out, byte[] bytes) {
+        out.putInt(bytes.length).put(bytes);
+    }
+
+    private static byte[] getBytes(ByteBuffer in) {
+        final byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static String getString(ByteBuffer in, Charset charset) {
+        return new String(getBytes(in), charset);
+    }
+
+    private static void skip(ByteBuffer in) {
+        final int length = in.getInt();
+        in.position(in.position() + length);
+    }
+
+    /**
+     * Fixed part of an entry.
+     */
+    record Header(UUID id, long version, long previous, long eventCount, int entryEvents, int eventsStart,
+            Instant createdAt, Instant updatedAt, ProductLifecycle status, String sku) {
+        // Format, id, version, previous, event count, entry events, events start and timestamps
+        static final int SIZE = Integer.BYTES + Long.BYTES * 5 + Integer.BYTES * 2 + (Long.BYTES + Integer.BYTES) * 2;
+    }
+
+    record Texts(String name, String description, List<ProductViewCatalogRef> catalogs) {
+    }
+}
@@ -0,0 +1,226 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.mmap;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductLifecycle;
+
+/**
+ * Fichier d'enregistrements de taille fixe projeté en mémoire, un par vue produit. Chaque enregistrement porte les
+ * champs scalaires de la vue et la position de sa dernière entrée dans le journal.
+ *
+ * L'en-tête porte la position du journal jusqu'à laquelle les enregistrements sont à jour (point de reprise). L'en-tête
+ * et chaque enregistrement portent leur CRC : les pages projetées sont écrites sur disque dans un ordre quelconque, un
+ * enregistrement à moitié écrit avant un crash est ainsi détecté à l'ouverture.
+ */
+
+final class ProductViewRecords {
+
+    static final int SKU_LENGTH = 9;
+
+    private static final int MAGIC = 0x50564d31;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 80;
+    private static final int INITIAL_SLOTS = 1024;
+
+    // Header layout
+    private static final int H_MAGIC = 0;
+    private static final int H_SLOTS = 4;
+    private static final int H_CHECKPOINT = 8;
+    private static final int H_GARBAGE = 16;
+    private static final int H_CRC = 24;
+
+    // Slot layout
+    private static final int S_ID_MSB = 0;
+    private static final int S_ID_LSB = 8;
+    private static final int S_VERSION = 16;
+    private static final int S_ENTRY = 24;
+    private static final int S_EVENT_COUNT = 32;
+    private static final int S_CREATED_SECONDS = 40;
+    private static final int S_CREATED_NANOS = 48;
+    private static final int S_UPDATED_NANOS = 52;
+    private static final int S_UPDATED_SECONDS = 56;
+    private static final int S_STATUS = 64;
+    private static final int S_SKU = 65;
+    private static final int S_CRC = 76;
+
+    private final Path path;
+    private MappedByteBuffer buffer;
+    private int capacity;
+
+    private ProductViewRecords(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Opens the file, creating it empty if needed. An unknown header resets it, a torn one is found by
+     * {@link #valid()}.
+     */
+    static ProductViewRecords open(Path path) throws IOException {
+        final ProductViewRecords records = new ProductViewRecords(path);
+        final long length = Files.exists(path) ? Files.size(path) : 0;
+        records.map(Math.max(INITIAL_SLOTS, (int) Math.max(0, (length - HEADER_SIZE) / SLOT_SIZE)));
+        if (records.buffer.getInt(H_MAGIC) != MAGIC) {
+            records.reset();
+        }
+        return records;
+    }
+
+    /**
+     * Forgets every record, the log must then be replayed from its start.
+     */
+    void reset() {
+        for (int i = 0; i < HEADER_SIZE; i += Long.BYTES) {
+            buffer.putLong(i, 0L);
+        }
+        buffer.putInt(H_MAGIC, MAGIC);
+        sealHeader();
+    }
+
+    /**
+     * Checks the CRC of the header and of every allocated record.
+     *
+     * @return false if any of them was torn, the log must then be replayed from its start
+     */
+    boolean valid() {
+        if (buffer.getInt(H_CRC) != crc(0, H_CRC)) {
+            return false;
+        }
+        final int slots = slots();
+        if (slots < 0 || slots > capacity) {
+            return false;
+        }
+        for (int slot = 0; slot < slots; slot++) {
+            final int at = HEADER_SIZE + slot * SLOT_SIZE;
+            if (buffer.getInt(at + S_CRC) != crc(at, S_CRC)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int slots() {
+        return buffer.getInt(H_SLOTS);
+    }
+
+    long checkpoint() {
+        return buffer.getLong(H_CHECKPOINT);
+    }
+
+    long garbage() {
+        return buffer.getLong(H_GARBAGE);
+    }
+
+    /**
+     * Records that the slots reflect the log up to the given offset.
+     */
+    void checkpoint(long logEnd, long garbage) {
+        buffer.putLong(H_GARBAGE, garbage);
+        buffer.putLong(H_CHECKPOINT, logEnd);
+        sealHeader();
+    }
+
+    /**
+     * Allocates a new slot.
+     */
+    int allocate() throws IOException {
+        final int slot = slots();
+        if (slot == capacity) {
+            map(capacity * 2);
+        }
+        buffer.putInt(H_SLOTS, slot + 1);
+        sealHeader();
+        return slot;
+    }
+
+    void write(int slot, UUID id, long version, long entry, long eventCount, Instant createdAt, Instant updatedAt,
+            ProductLifecycle status, String sku) {
+        final int at = HEADER_SIZE + slot * SLOT_SIZE;
+        buffer.putLong(at + S_ID_MSB, id.getMostSignificantBits());
+        buffer.putLong(at + S_ID_LSB, id.getLeastSignificantBits());
+        buffer.putLong(at + S_VERSION, version);
+        buffer.putLong(at + S_EVENT_COUNT, eventCount);
+        buffer.putLong(at + S_CREATED_SECONDS, createdAt.getEpochSecond());
+        buffer.putInt(at + S_CREATED_NANOS, createdAt.getNano());
+        buffer.putLong(at + S_UPDATED_SECONDS, updatedAt.getEpochSecond());
+        buffer.putInt(at + S_UPDATED_NANOS, updatedAt.getNano());
+        buffer.put(at + S_STATUS, (byte) status.ordinal());
+        buffer.put(at + S_SKU, sku.getBytes(StandardCharsets.US_ASCII));
+        buffer.putLong(at + S_ENTRY, entry);
+        buffer.putInt(at + S_CRC, crc(at, S_CRC));
+    }
+
+    UUID id(int slot) {
+        final int at = HEADER_SIZE + slot * SLOT_SIZE;
+        return new UUID(buffer.getLong(at + S_ID_MSB), buffer.getLong(at + S_ID_LSB));
+    }
+
+    long version(int slot) {
+        return buffer.getLong(HEADER_SIZE + slot * SLOT_SIZE + S_VERSION);
+    }
+
+    long entry(int slot) {
+        return buffer.getLong(HEADER_SIZE + slot * SLOT_SIZE + S_ENTRY);
+    }
+
+    long eventCount(int slot) {
+        return buffer.getLong(HEADER_SIZE + slot * SLOT_SIZE + S_EVENT_COUNT);
+    }
+
+    Instant createdAt(int slot) {
+        final int at = HEADER_SIZE + slot * SLOT_SIZE;
+        return Instant.ofEpochSecond(buffer.getLong(at + S_CREATED_SECONDS), buffer.getInt(at + S_CREATED_NANOS));
+    }
+
+    Instant updatedAt(int slot) {
+        final int at = HEADER_SIZE + slot * SLOT_SIZE;
+        return Instant.ofEpochSecond(buffer.getLong(at + S_UPDATED_SECONDS), buffer.getInt(at + S_UPDATED_NANOS));
+    }
+
+    ProductLifecycle status(int slot) {
+        return ProductLifecycle.values()[buffer.get(HEADER_SIZE + slot * SLOT_SIZE + S_STATUS)];
+    }
+
+    String sku(int slot) {
+        final byte[] sku = new byte[SKU_LENGTH];
+        buffer.get(HEADER_SIZE + slot * SLOT_SIZE + S_SKU, sku);
+        return new String(sku, StandardCharsets.US_ASCII);
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void delete() throws IOException {
+        buffer = null;
+        Files.deleteIfExists(path);
+    }
+
+    private void sealHeader() {
+        buffer.putInt(H_CRC, crc(0, H_CRC));
+    }
+
+    private int crc(int at, int length) {
+        final CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(at, length));
+        return (int) crc.getValue();
+    }
+
+    private void map(int slots) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // Growing the file keeps the slots written through the previous mapping
+            buffer = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slots * SLOT_SIZE);
+            capacity = slots;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.outbox;
+
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+import org.ormi.priv.tfa.orderflow.cqrs.Projector.ProjectionResult;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.jpa.EventLogEntity;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.outbox.OutboxHandler;
+import org.ormi.priv.tfa.orderflow.kernel.common.AggregateType;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductEventV1Envelope;
+import org.ormi.priv.tfa.orderflow.kernel.product.jpa.ProductEventJpaMapper;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductEventVersion;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
+import org.ormi.priv.tfa.orderflow.productregistry.read.application.ProductViewWriteBehind;
+import org.ormi.priv.tfa.orderflow.productregistry.read.application.ProjectionDispatcher;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.resource.spi.IllegalStateException;
+
+/**
+ * Handler Outbox des événements produit V1 : les convertit et les soumet au dispatcher pour projection.
+ */
+
+@ApplicationScoped
+public class ProductOutboxHandler implements OutboxHandler {
+
+    private final ProjectionDispatcher dispatcher;
+    private final ProductEventJpaMapper mapper;
+    private final ProductViewWriteBehind writeBehind;
+
+    @Inject
+    public ProductOutboxHandler(ProjectionDispatcher dispatcher, ProductEventJpaMapper mapper,
+            ProductViewWriteBehind writeBehind) {
+        this.dispatcher = dispatcher;
+        this.mapper = mapper;
+        this.writeBehind = writeBehind;
+    }
+
+    @Override
+    public String aggregateType() {
+        return AggregateType.PRODUCT.value();
+    }
+
+    @Override
+    public int eventVersion() {
+        return ProductEventVersion.V1.getValue();
+    }
+
+    @Override
+    public ProjectionResult<ProductView> handle(EventLogEntity event) {
+        try {
+            return dispatcher.dispatch(mapper.toProductEventV1(event));
+        } catch (IllegalStateException e) {
+            return ProjectionResult.failed(e.getMessage());
+        }
+    }
+
+    @Override
+    public List<ProjectionResult<ProductView>> handleAll(List<EventLogEntity> events) {
+        try {
+            return dispatcher.dispatchAll(events.stream()
+                    .<ProductEventV1Envelope<?>>map(mapper::toProductEventV1)
+                    .toList());
+        } catch (IllegalStateException e) {
+            return List.of(ProjectionResult.failed(e.getMessage()));
+        }
+    }
+
+    @Override
+    public CompletionStage<Void> durable() {
+        return writeBehind.flushed();
+    }
+}
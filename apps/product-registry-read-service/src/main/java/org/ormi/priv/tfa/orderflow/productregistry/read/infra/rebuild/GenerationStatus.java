@@ -0,0 +1,30 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.rebuild;
+
+import java.time.Instant;
+
+/**
+ * État d'une génération de la vue produit, c'est-à-dire d'une table product_view_vN.
+ *
+ * @param caughtUpEventId dernier événement projeté dans la table par la reconstruction ou le rattrapage
+ */
+public record GenerationStatus(
+        int generation,
+        String tableName,
+        State state,
+        long caughtUpEventId,
+        Instant createdAt,
+        Instant activatedAt,
+        Instant retiredAt,
+        String lastError) {
+
+    /**
+     * State of a generation. Reads only ever go to the ACTIVE one.
+     */
+    public enum State {
+        BUILDING,
+        CATCHING_UP,
+        ACTIVE,
+        RETIRED,
+        FAILED
+    }
+}
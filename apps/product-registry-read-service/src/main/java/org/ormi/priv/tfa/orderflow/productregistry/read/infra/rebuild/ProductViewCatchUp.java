@@ -0,0 +1,111 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.rebuild;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.ormi.priv.tfa.orderflow.cqrs.Projector.ProjectionResult;
+import org.ormi.priv.tfa.orderflow.kernel.common.AggregateType;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductEventV1Envelope;
+import org.ormi.priv.tfa.orderflow.kernel.product.jpa.ProductEventJpaMapper;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.jpa.ProductViewJpaMapper;
+import org.ormi.priv.tfa.orderflow.productregistry.read.projection.ProductViewProjector;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Rattrapage d'une table de génération : les produits ayant un événement journalisé dans un intervalle d'identifiants
+ * sont reprojetés depuis tout leur flux. Un événement validé après un événement plus récent du même produit est ainsi
+ * appliqué à sa place, et un intervalle peut être rejoué sans risque.
+ */
+
+class ProductViewCatchUp {
+
+    // Whole streams of the aggregates touched by the interval, including the events committed since
+    private static final String SQL_STREAM_QUERY = "SELECT aggregate_id, aggregate_version, event_type, event_version, "
+            + "occurred_at, payload::text FROM eventing.event_log "
+            + "WHERE aggregate_type = ? AND aggregate_id IN ("
+            + "SELECT DISTINCT aggregate_id FROM eventing.event_log WHERE aggregate_type = ? AND id > ? AND id <= ?) "
+            + "ORDER BY aggregate_id, aggregate_version";
+
+    private final ProductViewProjector projector;
+    private final ProductEventJpaMapper eventMapper;
+    private final ProductViewJpaMapper viewMapper;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int inlineEvents;
+
+    ProductViewCatchUp(ProductViewProjector projector, ProductEventJpaMapper eventMapper,
+            ProductViewJpaMapper viewMapper, ObjectMapper objectMapper, int batchSize, int inlineEvents) {
+        this.projector = projector;
+        this.eventMapper = eventMapper;
+        this.viewMapper = viewMapper;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.inlineEvents = inlineEvents;
+    }
+
+    /**
+     * Projects again onto the given table the products with an event id in (fromEventId, toEventId], from their
+     * whole stream. Runs on the caller's connection, which commits.
+     *
+     * @return the number of events read
+     * @throws IllegalStateException if the stream of a product cannot be projected, the table is then left behind
+     */
+    long run(Connection conn, String table, long fromEventId, long toEventId) throws SQLException {
+        if (toEventId <= fromEventId) {
+            return 0;
+        }
+        long events = 0;
+        try (PreparedStatement ps = conn.prepareStatement(SQL_STREAM_QUERY);
+                ProductViewUpsertWriter writer = new ProductViewUpsertWriter(conn, table, viewMapper, objectMapper,
+                        inlineEvents)) {
+            ps.setString(1, AggregateType.PRODUCT.value());
+            ps.setString(2, AggregateType.PRODUCT.value());
+            ps.setLong(3, fromEventId);
+            ps.setLong(4, toEventId);
+            // Reads the whole delta: the upserts share the connection, a cursor would not survive their batches
+            try (ResultSet rs = ps.executeQuery()) {
+                UUID current = null;
+                List<ProductEventV1Envelope<?>> pending = new ArrayList<>();
+                while (rs.next()) {
+                    final UUID aggregateId = rs.getObject(1, UUID.class);
+                    if (current != null && !aggregateId.equals(current)) {
+                        project(current, pending, writer);
+                        pending = new ArrayList<>();
+                    }
+                    current = aggregateId;
+                    pending.add(SliceRebuildTask.toEnvelope(aggregateId, rs, eventMapper, objectMapper));
+                    events++;
+                }
+                if (current != null) {
+                    project(current, pending, writer);
+                }
+            }
+            writer.flush();
+        }
+        return events;
+    }
+
+    private void project(UUID aggregateId, List<ProductEventV1Envelope<?>> events, ProductViewUpsertWriter writer)
+            throws SQLException {
+        final ProjectionResult<ProductView> result = projector.projectAll(Optional.empty(), events);
+        if (result.isFailure()) {
+            // Skipping it would activate a generation missing this product's latest state
+            throw new IllegalStateException("Product view catch-up failed on aggregate " + aggregateId + ": "
+                    + result.getError());
+        }
+        if (result.isSuccess()) {
+            writer.add(result.getProjection());
+            if (writer.pending() >= batchSize) {
+                writer.flush();
+            }
+        }
+    }
+}
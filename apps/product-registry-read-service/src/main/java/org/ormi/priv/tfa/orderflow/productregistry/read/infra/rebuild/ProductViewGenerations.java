@@ -0,0 +1,350 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.rebuild;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.ormi.priv.tfa.orderflow.kernel.product.jpa.ProductEventJpaMapper;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.index.ProductSkuIndex;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.jpa.ProductViewJpaMapper;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.rebuild.GenerationStatus.State;
+import org.ormi.priv.tfa.orderflow.productregistry.read.projection.ProductViewProjector;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.runtime.ShutdownEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+
+/**
+ * Reconstruction bleu/vert de la vue produit. Une nouvelle génération est projetée dans une table fantôme
+ * product_view_vN pendant que les lectures et le relais Outbox continuent d'utiliser la génération active, au travers
+ * de la vue SQL product_view. Une fois la table fantôme rattrapée, la vue SQL est basculée atomiquement sur elle puis
+ * l'ancienne table est supprimée.
+ */
+
+@ApplicationScoped
+public class ProductViewGenerations {
+
+    private static final String SQL_IN_PROGRESS_QUERY = "SELECT generation, table_name, status, caught_up_event_id, "
+            + "created_at, activated_at, retired_at, last_error FROM read_product_registry.product_view_generation "
+            + "WHERE status IN ('BUILDING', 'CATCHING_UP') ORDER BY generation DESC LIMIT 1";
+    private static final String SQL_LATEST_QUERY = "SELECT generation, table_name, status, caught_up_event_id, "
+            + "created_at, activated_at, retired_at, last_error FROM read_product_registry.product_view_generation "
+            + "ORDER BY generation DESC LIMIT 1";
+    private static final String SQL_ACTIVE_QUERY = "SELECT generation FROM read_product_registry.product_view_generation "
+            + "WHERE status = 'ACTIVE'";
+    private static final String SQL_NEXT_QUERY = "SELECT COALESCE(max(generation), 0) + 1 "
+            + "FROM read_product_registry.product_view_generation";
+    private static final String SQL_CREATE_TABLE_QUERY = "SELECT read_product_registry.create_product_view_generation(?)";
+    private static final String SQL_INSERT_QUERY = "INSERT INTO read_product_registry.product_view_generation "
+            + "(generation, table_name, status) VALUES (?, ?, 'BUILDING')";
+    private static final String SQL_UPDATE_QUERY = "UPDATE read_product_registry.product_view_generation "
+            + "SET status = ?, caught_up_event_id = ?, last_error = ? WHERE generation = ?";
+    private static final String SQL_HEAD_QUERY = "SELECT COALESCE(max(id), 0) FROM eventing.event_log";
+    private static final String SQL_LOCK_QUERY = "LOCK TABLE read_product_registry.product_view IN ACCESS EXCLUSIVE MODE";
+    private static final String SQL_ACTIVATE_QUERY = "SELECT read_product_registry.activate_product_view_generation(?)";
+    private static final String SQL_DROP_QUERY = "SELECT read_product_registry.drop_product_view_generation(?)";
+    private static final String LOCK_NOT_AVAILABLE = "55P03";
+
+    private static final Logger LOG = Logger.getLogger(ProductViewGenerations.class);
+
+    private final AgroalDataSource dataSource;
+    private final ProductViewRebuilder rebuilder;
+    private final ProductViewCatchUp catchUp;
+    // Absent with the mmap store
+    private final Instance<ProductSkuIndex> skuIndex;
+    private final long maxLag;
+    private final long overlap;
+    private final int maxPasses;
+    private final Duration lockTimeout;
+    private final int maxAttempts;
+
+    private final ExecutorService launcher = Executors
+            .newSingleThreadExecutor(r -> new Thread(r, "product-view-generation"));
+    private volatile boolean running;
+    private volatile boolean stopping;
+
+    @Inject
+    public ProductViewGenerations(
+            AgroalDataSource dataSource,
+            ProductViewRebuilder rebuilder,
+            ProductViewProjector projector,
+            ProductEventJpaMapper eventMapper,
+            ProductViewJpaMapper viewMapper,
+            ObjectMapper objectMapper,
+            Instance<ProductSkuIndex> skuIndex,
+            @ConfigProperty(name = "rebuild.batch-size", defaultValue = "500") int batchSize,
+            @ConfigProperty(name = "product-view.inline-events", defaultValue = "20") int inlineEvents,
+            @ConfigProperty(name = "rebuild.cutover.max-lag", defaultValue = "1000") long maxLag,
+            @ConfigProperty(name = "rebuild.cutover.overlap", defaultValue = "1000") long overlap,
+            @ConfigProperty(name = "rebuild.cutover.max-passes", defaultValue = "10") int maxPasses,
+            @ConfigProperty(name = "rebuild.cutover.lock-timeout", defaultValue = "2s") Duration lockTimeout,
+            @ConfigProperty(name = "rebuild.cutover.max-attempts", defaultValue = "5") int maxAttempts) {
+        this.dataSource = dataSource;
+        this.rebuilder = rebuilder;
+        this.catchUp = new ProductViewCatchUp(projector, eventMapper, viewMapper, objectMapper, batchSize,
+                inlineEvents);
+        this.skuIndex = skuIndex;
+        this.maxLag = maxLag;
+        this.overlap = overlap;
+        this.maxPasses = maxPasses;
+        this.lockTimeout = lockTimeout;
+        this.maxAttempts = maxAttempts;
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        stopping = true;
+        launcher.shutdownNow();
+    }
+
+    /**
+     * Starts a new generation in the background, or resumes the one in progress.
+     *
+     * @return the status of the started generation, or of the running one
+     * @throws IllegalStateException if an in place rebuild is running
+     */
+    public synchronized GenerationStatus start() throws SQLException {
+        if (!running) {
+            final Optional<GenerationStatus> inProgress = find(SQL_IN_PROGRESS_QUERY);
+            final GenerationStatus generation = inProgress.isPresent() ? inProgress.get() : create();
+            // Fails fast if the rebuilder is busy with another table
+            final ProductViewRebuilder.Run run = generation.state() == State.BUILDING
+                    ? rebuilder.launch(generation.tableName())
+                    : null;
+            running = true;
+            LOG.infof("%s product view generation %d in %s", inProgress.isPresent() ? "Resuming" : "Starting",
+                    generation.generation(), generation.tableName());
+            launcher.execute(() -> migrate(generation, run));
+        }
+        return status().orElseThrow();
+    }
+
+    /**
+     * Gets the status of the latest generation.
+     */
+    public Optional<GenerationStatus> status() throws SQLException {
+        return find(SQL_LATEST_QUERY);
+    }
+
+    private void migrate(GenerationStatus generation, ProductViewRebuilder.Run run) {
+        try {
+            long caughtUp = generation.caughtUpEventId();
+            if (run != null) {
+                final RebuildStatus.State rebuilt = run.completion().join();
+                if (rebuilt == RebuildStatus.State.RUNNING) {
+                    LOG.infof("Product view generation %d interrupted, it resumes on the next start",
+                            generation.generation());
+                    return;
+                }
+                if (rebuilt == RebuildStatus.State.FAILED) {
+                    throw new IllegalStateException("Rebuild of " + generation.tableName() + " failed");
+                }
+                caughtUp = run.maxEventId();
+                update(generation, State.CATCHING_UP, caughtUp, null);
+            }
+            // Passes shrink the delta while live traffic goes on, so that the cutover holds its lock briefly
+            for (int pass = 0; pass < maxPasses && !stopping; pass++) {
+                final long head = head();
+                if (head - caughtUp <= maxLag) {
+                    break;
+                }
+                caughtUp = catchUp(generation, caughtUp, head);
+            }
+            if (stopping) {
+                return;
+            }
+            final Optional<Integer> retired = activeGeneration();
+            cutover(generation, caughtUp);
+            if (retired.isPresent()) {
+                drop(retired.get());
+            }
+        } catch (Exception e) {
+            LOG.errorf(e, "Product view generation %d failed", generation.generation());
+            try {
+                update(generation, State.FAILED, generation.caughtUpEventId(), String.valueOf(e.getMessage()));
+            } catch (SQLException ex) {
+                LOG.errorf(ex, "Failed to record the failure of product view generation %d", generation.generation());
+            }
+        } finally {
+            running = false;
+        }
+    }
+
+    private long catchUp(GenerationStatus generation, long caughtUp, long head) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                final long events = catchUp.run(conn, generation.tableName(), from(caughtUp), head);
+                update(conn, generation, State.CATCHING_UP, head, null);
+                conn.commit();
+                LOG.debugf("Product view generation %d caught up to event %d (%d events)", generation.generation(),
+                        head, events);
+                return head;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private void cutover(GenerationStatus generation, long caughtUp) throws SQLException {
+        for (int attempt = 1;; attempt++) {
+            try (Connection conn = dataSource.getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    try (Statement st = conn.createStatement()) {
+                        st.execute("SET LOCAL lock_timeout = " + lockTimeout.toMillis());
+                        // Blocks reads and relay writes on the active generation until the swap is committed
+                        st.execute(SQL_LOCK_QUERY);
+                    }
+                    final long head = head(conn);
+                    final long events = catchUp.run(conn, generation.tableName(), from(caughtUp), head);
+                    update(conn, generation, State.CATCHING_UP, head, null);
+                    try (PreparedStatement ps = conn.prepareStatement(SQL_ACTIVATE_QUERY)) {
+                        ps.setInt(1, generation.generation());
+                        ps.execute();
+                    }
+                    conn.commit();
+                    LOG.infof("Product view generation %d activated at event %d (%d events caught up under lock)",
+                            generation.generation(), head, events);
+                    // Reads now go to the new table, written without going through the index
+                    if (skuIndex.isResolvable()) {
+                        skuIndex.get().refresh();
+                    }
+                    return;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    if (!LOCK_NOT_AVAILABLE.equals(e.getSQLState()) || attempt >= maxAttempts) {
+                        throw e;
+                    }
+                    LOG.warnf("Product view generation %d cutover could not lock product_view (attempt %d/%d)",
+                            generation.generation(), attempt, maxAttempts);
+                } catch (RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Event ids are allocated before commit, so an event committed late may hide behind the last caught up id: the
+    // products touched since from() are projected again from their whole stream, late events included
+    private long from(long caughtUp) {
+        return Math.max(0, caughtUp - overlap);
+    }
+
+    private GenerationStatus create() throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            final int generation;
+            try (PreparedStatement ps = conn.prepareStatement(SQL_NEXT_QUERY);
+                    ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                generation = rs.getInt(1);
+            }
+            final String tableName;
+            try (PreparedStatement ps = conn.prepareStatement(SQL_CREATE_TABLE_QUERY)) {
+                ps.setInt(1, generation);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    tableName = rs.getString(1);
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(SQL_INSERT_QUERY)) {
+                ps.setInt(1, generation);
+                ps.setString(2, tableName);
+                ps.executeUpdate();
+            }
+            conn.commit();
+            return new GenerationStatus(generation, tableName, State.BUILDING, 0, Instant.now(), null, null, null);
+        }
+    }
+
+    private void drop(int generation) {
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement ps = conn.prepareStatement(SQL_DROP_QUERY)) {
+            ps.setInt(1, generation);
+            ps.execute();
+            LOG.infof("Product view generation %d dropped", generation);
+        } catch (SQLException e) {
+            // The retired table only wastes space, it can be dropped by hand
+            LOG.warnf(e, "Failed to drop retired product view generation %d", generation);
+        }
+    }
+
+    private Optional<Integer> activeGeneration() throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement ps = conn.prepareStatement(SQL_ACTIVE_QUERY);
+                ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? Optional.of(rs.getInt(1)) : Optional.empty();
+        }
+    }
+
+    private long head() throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            return head(conn);
+        }
+    }
+
+    private static long head(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SQL_HEAD_QUERY);
+                ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private void update(GenerationStatus generation, State state, long caughtUp, String error) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            update(conn, generation, state, caughtUp, error);
+        }
+    }
+
+    private static void update(Connection conn, GenerationStatus generation, State state, long caughtUp,
+            String error) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SQL_UPDATE_QUERY)) {
+            ps.setString(1, state.name());
+            ps.setLong(2, caughtUp);
+            ps.setString(3, error);
+            ps.setInt(4, generation.generation());
+            ps.executeUpdate();
+        }
+    }
+
+    private Optional<GenerationStatus> find(String query) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement ps = conn.prepareStatement(query);
+                ResultSet rs = ps.executeQuery()) {
+            if (!rs.next()) {
+                return Optional.empty();
+            }
+            return Optional.of(new GenerationStatus(
+                    rs.getInt(1),
+                    rs.getString(2),
+                    State.valueOf(rs.getString(3)),
+                    rs.getLong(4),
+                    toInstant(rs.getObject(5, OffsetDateTime.class)),
+                    toInstant(rs.getObject(6, OffsetDateTime.class)),
+                    toInstant(rs.getObject(7, OffsetDateTime.class)),
+                    rs.getString(8)));
+        }
+    }
+
+    private static Instant toInstant(OffsetDateTime dateTime) {
+        return dateTime == null ? null : dateTime.toInstant();
+    }
+}
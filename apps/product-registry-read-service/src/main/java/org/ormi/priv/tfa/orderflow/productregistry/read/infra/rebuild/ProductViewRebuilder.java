@@ -0,0 +1,303 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.rebuild;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.ormi.priv.tfa.orderflow.kernel.product.jpa.ProductEventJpaMapper;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.index.ProductSkuIndex;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.jpa.ProductViewJpaMapper;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.rebuild.RebuildStatus.State;
+import org.ormi.priv.tfa.orderflow.productregistry.read.projection.ProductViewProjector;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.agroal.api.AgroalDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+
+/**
+ * Reconstruction parallèle de la vue produit depuis l'Event log. L'espace des identifiants d'agrégats est découpé en
+ * tranches traitées par un pool fork-join ; chaque tranche enregistre sa progression afin qu'une reconstruction
+ * interrompue reprenne là où elle s'est arrêtée.
+ *
+ * Seuls les événements journalisés au démarrage de la reconstruction sont rejoués, les suivants restent projetés par
+ * le relais Outbox : une vue déjà projetée plus loin n'est jamais écrasée.
+ */
+
+@ApplicationScoped
+public class ProductViewRebuilder {
+
+    /**
+     * The view over the active generation, rebuilt in place.
+     */
+    static final String LIVE_TABLE = "product_view";
+
+    private static final Logger LOG = Logger.getLogger(ProductViewRebuilder.class);
+
+    private final AgroalDataSource dataSource;
+    private final RebuildCheckpointStore checkpoints;
+    private final ProductViewProjector projector;
+    private final ProductEventJpaMapper eventMapper;
+    private final ProductViewJpaMapper viewMapper;
+    private final ObjectMapper objectMapper;
+    // Absent with the mmap store
+    private final Instance<ProductSkuIndex> skuIndex;
+    private final Counter eventsCounter;
+    private final Counter viewsCounter;
+    private final int parallelism;
+    private final int slices;
+    private final int fetchSize;
+    private final int batchSize;
+    private final int inlineEvents;
+
+    private final ExecutorService launcher = Executors
+            .newSingleThreadExecutor(r -> new Thread(r, "product-view-rebuild"));
+    private volatile Run current;
+
+    @Inject
+    public ProductViewRebuilder(
+            AgroalDataSource dataSource,
+            ProductViewProjector projector,
+            ProductEventJpaMapper eventMapper,
+            ProductViewJpaMapper viewMapper,
+            ObjectMapper objectMapper,
+            Instance<ProductSkuIndex> skuIndex,
+            MeterRegistry registry,
+            @ConfigProperty(name = "rebuild.parallelism", defaultValue = "4") int parallelism,
+            @ConfigProperty(name = "rebuild.slices", defaultValue = "64") int slices,
+            @ConfigProperty(name = "rebuild.fetch-size", defaultValue = "5000") int fetchSize,
+            @ConfigProperty(name = "rebuild.batch-size", defaultValue = "500") int batchSize,
+            @ConfigProperty(name = "product-view.inline-events", defaultValue = "20") int inlineEvents) {
+        this.dataSource = dataSource;
+        this.checkpoints = new RebuildCheckpointStore(dataSource);
+        this.projector = projector;
+        this.eventMapper = eventMapper;
+        this.viewMapper = viewMapper;
+        this.objectMapper = objectMapper;
+        this.skuIndex = skuIndex;
+        this.eventsCounter = Counter.builder("product_view.rebuild.events")
+                .description("Events replayed by the product view rebuild")
+                .register(registry);
+        this.viewsCounter = Counter.builder("product_view.rebuild.views")
+                .description("Product views written by the product view rebuild")
+                .register(registry);
+        this.parallelism = parallelism;
+        this.slices = slices;
+        this.fetchSize = fetchSize;
+        this.batchSize = batchSize;
+        this.inlineEvents = inlineEvents;
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        final Run run = current;
+        if (run != null) {
+            run.stopping = true;
+        }
+        launcher.shutdownNow();
+    }
+
+    /**
+     * Starts an in place rebuild in the background, or resumes the latest unfinished one.
+     *
+     * @return the status of the started rebuild, or of the running one
+     */
+    public RebuildStatus start() throws SQLException {
+        launch(LIVE_TABLE);
+        return status().orElseThrow();
+    }
+
+    /**
+     * Starts or resumes a rebuild of the given table in the background.
+     *
+     * @return the started rebuild, or the running one
+     * @throws IllegalStateException if a rebuild of another table is running
+     */
+    synchronized Run launch(String targetTable) throws SQLException {
+        if (current != null && !current.done) {
+            if (!current.targetTable.equals(targetTable)) {
+                throw new IllegalStateException("A rebuild of " + current.targetTable + " is already running");
+            }
+            return current;
+        }
+        final Optional<UUID> unfinished = checkpoints.findUnfinished(targetTable);
+        final UUID rebuildId = unfinished.isPresent() ? unfinished.get() : checkpoints.create(targetTable, slices);
+        final List<RebuildSlice> pending = checkpoints.pendingSlices(rebuildId);
+        checkpoints.updateStatus(rebuildId, State.RUNNING, null);
+        final Run run = new Run(rebuildId, targetTable, checkpoints.maxEventId(rebuildId), pending.size());
+        current = run;
+        LOG.infof("%s rebuild %s of %s: %d slices over events up to id %d, %d workers",
+                unfinished.isPresent() ? "Resuming" : "Starting", rebuildId, targetTable, pending.size(),
+                run.maxEventId, parallelism);
+        launcher.execute(() -> execute(run, pending));
+        return run;
+    }
+
+    /**
+     * Gets the status of the latest rebuild. While it runs, the throughput is the one of the current session.
+     */
+    public Optional<RebuildStatus> status() throws SQLException {
+        final Optional<RebuildStatus> latest = checkpoints.latest();
+        final Run run = current;
+        if (latest.isEmpty() || run == null || run.done || !latest.get().id().equals(run.rebuildId)) {
+            return latest;
+        }
+        final RebuildStatus status = latest.get();
+        return Optional.of(new RebuildStatus(status.id(), status.state(), status.maxEventId(), status.slices(),
+                status.completedSlices(), status.events(), status.views(), status.failedAggregates(),
+                run.eventsPerSecond(), status.startedAt(), status.completedAt(), status.lastError()));
+    }
+
+    private void execute(Run run, List<RebuildSlice> pending) {
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        State state = State.RUNNING;
+        try {
+            if (!pending.isEmpty()) {
+                pool.invoke(new SliceRebuildTask(run, pending));
+            }
+            if (run.stopping) {
+                LOG.infof("Product view rebuild %s interrupted, it resumes from its checkpoints on the next start",
+                        run.rebuildId);
+                return;
+            }
+            final Exception failure = run.failure.get();
+            state = failure == null ? State.COMPLETED : State.FAILED;
+            checkpoints.updateStatus(run.rebuildId, state, failure == null ? null : failure.getMessage());
+            // Written straight to the table, the index would otherwise wait for its next periodic reload
+            if (state == State.COMPLETED && LIVE_TABLE.equals(run.targetTable) && skuIndex.isResolvable()) {
+                skuIndex.get().refresh();
+            }
+            LOG.infof("Product view rebuild %s %s: %d events, %d views in %s (%.0f events/s)", run.rebuildId,
+                    failure == null ? "completed" : "failed", run.events.sum(), run.views.sum(),
+                    Duration.between(run.startedAt, Instant.now()), run.eventsPerSecond());
+        } catch (Exception e) {
+            LOG.errorf(e, "Product view rebuild %s failed", run.rebuildId);
+            state = State.FAILED;
+        } finally {
+            pool.shutdown();
+            run.done = true;
+            run.completion.complete(state);
+        }
+    }
+
+    /**
+     * A rebuild session, shared by its slice tasks.
+     */
+    final class Run {
+        private final UUID rebuildId;
+        private final String targetTable;
+        private final long maxEventId;
+        private final int sliceCount;
+        private final Instant startedAt = Instant.now();
+        private final LongAdder events = new LongAdder();
+        private final LongAdder views = new LongAdder();
+        private final AtomicInteger completedSlices = new AtomicInteger();
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+        private final CompletableFuture<State> completion = new CompletableFuture<>();
+        private volatile boolean stopping;
+        private volatile boolean done;
+
+        private Run(UUID rebuildId, String targetTable, long maxEventId, int sliceCount) {
+            this.rebuildId = rebuildId;
+            this.targetTable = targetTable;
+            this.maxEventId = maxEventId;
+            this.sliceCount = sliceCount;
+        }
+
+        AgroalDataSource dataSource() {
+            return dataSource;
+        }
+
+        RebuildCheckpointStore checkpoints() {
+            return checkpoints;
+        }
+
+        ProductViewProjector projector() {
+            return projector;
+        }
+
+        ProductEventJpaMapper eventMapper() {
+            return eventMapper;
+        }
+
+        ProductViewJpaMapper viewMapper() {
+            return viewMapper;
+        }
+
+        ObjectMapper objectMapper() {
+            return objectMapper;
+        }
+
+        String targetTable() {
+            return targetTable;
+        }
+
+        long maxEventId() {
+            return maxEventId;
+        }
+
+        /**
+         * Completes with the final state of the rebuild, RUNNING if it was interrupted.
+         */
+        CompletableFuture<State> completion() {
+            return completion;
+        }
+
+        int fetchSize() {
+            return fetchSize;
+        }
+
+        int batchSize() {
+            return batchSize;
+        }
+
+        int inlineEvents() {
+            return inlineEvents;
+        }
+
+        boolean isStopping() {
+            return stopping;
+        }
+
+        void recordEvent() {
+            events.increment();
+            eventsCounter.increment();
+        }
+
+        void recordView() {
+            views.increment();
+            viewsCounter.increment();
+        }
+
+        void sliceCompleted(RebuildSlice slice) {
+            LOG.debugf("Product view rebuild %s: slice %d completed (%d/%d), %.0f events/s", rebuildId,
+                    slice.slice(), completedSlices.incrementAndGet(), sliceCount, eventsPerSecond());
+        }
+
+        void fail(Exception e) {
+            failure.compareAndSet(null, e);
+        }
+
+        double eventsPerSecond() {
+            final long elapsedMs = Duration.between(startedAt, Instant.now()).toMillis();
+            return elapsedMs > 0 ? events.sum() * 1000.0 / elapsedMs : 0;
+        }
+    }
+}
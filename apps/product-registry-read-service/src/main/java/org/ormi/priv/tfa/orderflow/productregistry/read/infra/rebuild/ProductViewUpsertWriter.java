@@ -0,0 +1,110 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.rebuild;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductViewHistory;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.jpa.ProductViewEntity;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.jpa.ProductViewJpaMapper;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Écriture des vues produit reconstruites par lots JDBC (INSERT ... ON CONFLICT DO UPDATE), et de leur historique
+ * d'événements.
+ */
+
+class ProductViewUpsertWriter implements AutoCloseable {
+
+    // A view already projected further by the outbox relay is kept
+    private static final String SQL_UPSERT_QUERY = "INSERT INTO read_product_registry.%s AS v "
+            + "(id, _version, sku_id, name, description, status, events, catalogs, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, CAST(? AS jsonb), CAST(? AS jsonb), ?, ?) "
+            + "ON CONFLICT (id) DO UPDATE SET _version = EXCLUDED._version, sku_id = EXCLUDED.sku_id, "
+            + "name = EXCLUDED.name, description = EXCLUDED.description, status = EXCLUDED.status, "
+            + "events = EXCLUDED.events, catalogs = EXCLUDED.catalogs, created_at = EXCLUDED.created_at, "
+            + "updated_at = EXCLUDED.updated_at "
+            + "WHERE v._version <= EXCLUDED._version";
+    private static final String SQL_APPEND_EVENTS_QUERY = "INSERT INTO read_product_registry.product_view_event "
+            + "(product_id, sequence, event) "
+            + "SELECT ?, CAST(e ->> 'sequence' AS bigint), e FROM jsonb_array_elements(CAST(? AS jsonb)) e "
+            + "ON CONFLICT (product_id, sequence) DO NOTHING";
+
+    private final PreparedStatement statement;
+    private final PreparedStatement history;
+    private final ProductViewJpaMapper mapper;
+    private final ObjectMapper objectMapper;
+    private final int inlineEvents;
+    private int pending;
+
+    /**
+     * @param table the product_view view for the active generation, or a generation table
+     * @param inlineEvents the number of latest events kept in the view, the history table holds them all
+     */
+    ProductViewUpsertWriter(Connection conn, String table, ProductViewJpaMapper mapper, ObjectMapper objectMapper,
+            int inlineEvents) throws SQLException {
+        this.statement = conn.prepareStatement(String.format(SQL_UPSERT_QUERY, table));
+        this.history = conn.prepareStatement(SQL_APPEND_EVENTS_QUERY);
+        this.mapper = mapper;
+        this.objectMapper = objectMapper;
+        this.inlineEvents = inlineEvents;
+    }
+
+    void add(ProductView view) throws SQLException {
+        final ProductViewEntity entity = mapper.toEntity(view, objectMapper);
+        // Generations share the history table, already recorded events are skipped
+        history.setObject(1, entity.getId());
+        history.setString(2, toJson(entity.getEvents()));
+        history.addBatch();
+        final ProductViewHistory events = view.getEvents();
+        if (events.size() > inlineEvents) {
+            entity.setEvents(mapper.productViewEventListToJsonNode(events.latest(inlineEvents), objectMapper));
+        }
+        statement.setObject(1, entity.getId());
+        statement.setLong(2, entity.getVersion());
+        statement.setString(3, entity.getSkuId());
+        statement.setString(4, entity.getName());
+        statement.setString(5, entity.getDescription());
+        statement.setString(6, entity.getStatus().name());
+        statement.setString(7, toJson(entity.getEvents()));
+        statement.setString(8, toJson(entity.getCatalogs()));
+        statement.setTimestamp(9, Timestamp.from(entity.getCreatedAt()));
+        statement.setTimestamp(10, Timestamp.from(entity.getUpdatedAt()));
+        statement.addBatch();
+        pending++;
+    }
+
+    int pending() {
+        return pending;
+    }
+
+    /**
+     * Sends the pending upserts, the caller commits them.
+     */
+    void flush() throws SQLException {
+        if (pending > 0) {
+            history.executeBatch();
+            statement.executeBatch();
+            pending = 0;
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (history) {
+            statement.close();
+        }
+    }
+
+    private String toJson(Object node) throws SQLException {
+        try {
+            return objectMapper.writeValueAsString(node);
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Failed to serialize product view", e);
+        }
+    }
+}
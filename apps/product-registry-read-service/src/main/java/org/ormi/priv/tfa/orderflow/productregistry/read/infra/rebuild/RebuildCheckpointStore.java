@@ -0,0 +1,192 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.rebuild;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.rebuild.RebuildStatus.State;
+
+import io.agroal.api.AgroalDataSource;
+
+/**
+ * Accès JDBC aux checkpoints des reconstructions de la vue produit.
+ */
+
+class RebuildCheckpointStore {
+
+    private static final String SQL_CREATE_QUERY = "INSERT INTO read_product_registry.product_view_rebuild "
+            + "(id, status, target_table, max_event_id, slices) "
+            + "SELECT ?, 'RUNNING', ?, COALESCE(max(id), 0), ? FROM eventing.event_log";
+    private static final String SQL_CREATE_SLICE_QUERY = "INSERT INTO read_product_registry.product_view_rebuild_slice "
+            + "(rebuild_id, slice, lower_bound, upper_bound) VALUES (?, ?, ?, ?)";
+    private static final String SQL_UNFINISHED_QUERY = "SELECT id FROM read_product_registry.product_view_rebuild "
+            + "WHERE status <> 'COMPLETED' AND target_table = ? ORDER BY started_at DESC LIMIT 1";
+    private static final String SQL_MAX_EVENT_ID_QUERY = "SELECT max_event_id FROM read_product_registry.product_view_rebuild "
+            + "WHERE id = ?";
+    private static final String SQL_PENDING_SLICES_QUERY = "SELECT rebuild_id, slice, lower_bound, upper_bound, "
+            + "last_aggregate_id, events, views, failed_aggregates "
+            + "FROM read_product_registry.product_view_rebuild_slice "
+            + "WHERE rebuild_id = ? AND completed_at IS NULL ORDER BY slice";
+    private static final String SQL_CHECKPOINT_QUERY = "UPDATE read_product_registry.product_view_rebuild_slice "
+            + "SET last_aggregate_id = ?, events = ?, views = ?, failed_aggregates = ?, updated_at = CURRENT_TIMESTAMP, "
+            + "completed_at = CASE WHEN ? THEN CURRENT_TIMESTAMP END "
+            + "WHERE rebuild_id = ? AND slice = ?";
+    private static final String SQL_STATUS_QUERY = "UPDATE read_product_registry.product_view_rebuild "
+            + "SET status = ?, last_error = ?, completed_at = CASE WHEN ? = 'RUNNING' THEN NULL ELSE CURRENT_TIMESTAMP END "
+            + "WHERE id = ?";
+    private static final String SQL_LATEST_QUERY = "SELECT r.id, r.status, r.max_event_id, r.slices, r.started_at, "
+            + "r.completed_at, r.last_error, count(s.completed_at), COALESCE(sum(s.events), 0), "
+            + "COALESCE(sum(s.views), 0), COALESCE(sum(s.failed_aggregates), 0) "
+            + "FROM read_product_registry.product_view_rebuild r "
+            + "LEFT JOIN read_product_registry.product_view_rebuild_slice s ON s.rebuild_id = r.id "
+            + "GROUP BY r.id ORDER BY r.started_at DESC LIMIT 1";
+
+    private final AgroalDataSource dataSource;
+
+    RebuildCheckpointStore(AgroalDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Creates a rebuild of the given table covering the events logged so far, split into the given number of slices.
+     */
+    UUID create(String targetTable, int slices) throws SQLException {
+        final UUID id = UUID.randomUUID();
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(SQL_CREATE_QUERY)) {
+                ps.setObject(1, id);
+                ps.setString(2, targetTable);
+                ps.setInt(3, slices);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = conn.prepareStatement(SQL_CREATE_SLICE_QUERY)) {
+                for (RebuildSlice slice : RebuildSlice.split(id, slices)) {
+                    ps.setObject(1, id);
+                    ps.setInt(2, slice.slice());
+                    ps.setObject(3, slice.lowerBound());
+                    ps.setObject(4, slice.upperBound());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            conn.commit();
+        }
+        return id;
+    }
+
+    Optional<UUID> findUnfinished(String targetTable) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement ps = conn.prepareStatement(SQL_UNFINISHED_QUERY)) {
+            ps.setString(1, targetTable);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? Optional.of(rs.getObject(1, UUID.class)) : Optional.empty();
+            }
+        }
+    }
+
+    long maxEventId(UUID rebuildId) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement ps = conn.prepareStatement(SQL_MAX_EVENT_ID_QUERY)) {
+            ps.setObject(1, rebuildId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new IllegalStateException("Unknown product view rebuild " + rebuildId);
+                }
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    List<RebuildSlice> pendingSlices(UUID rebuildId) throws SQLException {
+        final List<RebuildSlice> slices = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement ps = conn.prepareStatement(SQL_PENDING_SLICES_QUERY)) {
+            ps.setObject(1, rebuildId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    slices.add(new RebuildSlice(
+                            rs.getObject(1, UUID.class),
+                            rs.getInt(2),
+                            rs.getObject(3, UUID.class),
+                            rs.getObject(4, UUID.class),
+                            rs.getObject(5, UUID.class),
+                            rs.getLong(6),
+                            rs.getLong(7),
+                            rs.getLong(8)));
+                }
+            }
+        }
+        return slices;
+    }
+
+    /**
+     * Records the progress of a slice. Runs on the connection that wrote the views, so that both are committed
+     * together and a resumed slice never skips nor rewrites an aggregate.
+     */
+    void checkpoint(Connection conn, RebuildSlice progress, boolean completed) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SQL_CHECKPOINT_QUERY)) {
+            ps.setObject(1, progress.lastAggregateId());
+            ps.setLong(2, progress.events());
+            ps.setLong(3, progress.views());
+            ps.setLong(4, progress.failedAggregates());
+            ps.setBoolean(5, completed);
+            ps.setObject(6, progress.rebuildId());
+            ps.setInt(7, progress.slice());
+            ps.executeUpdate();
+        }
+    }
+
+    void updateStatus(UUID rebuildId, State state, String error) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement ps = conn.prepareStatement(SQL_STATUS_QUERY)) {
+            ps.setString(1, state.name());
+            ps.setString(2, error);
+            ps.setString(3, state.name());
+            ps.setObject(4, rebuildId);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Gets the status of the latest rebuild, the throughput being the average over its whole duration.
+     */
+    Optional<RebuildStatus> latest() throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement ps = conn.prepareStatement(SQL_LATEST_QUERY);
+                ResultSet rs = ps.executeQuery()) {
+            if (!rs.next()) {
+                return Optional.empty();
+            }
+            final Instant startedAt = toInstant(rs.getObject(5, OffsetDateTime.class));
+            final Instant completedAt = toInstant(rs.getObject(6, OffsetDateTime.class));
+            final long events = rs.getLong(9);
+            final long elapsedMs = (completedAt != null ? completedAt : Instant.now()).toEpochMilli()
+                    - startedAt.toEpochMilli();
+            return Optional.of(new RebuildStatus(
+                    rs.getObject(1, UUID.class),
+                    State.valueOf(rs.getString(2)),
+                    rs.getLong(3),
+                    rs.getInt(4),
+                    rs.getInt(8),
+                    events,
+                    rs.getLong(10),
+                    rs.getLong(11),
+                    elapsedMs > 0 ? events * 1000.0 / elapsedMs : 0,
+                    startedAt,
+                    completedAt,
+                    rs.getString(7)));
+        }
+    }
+
+    private static Instant toInstant(OffsetDateTime dateTime) {
+        return dateTime == null ? null : dateTime.toInstant();
+    }
+}
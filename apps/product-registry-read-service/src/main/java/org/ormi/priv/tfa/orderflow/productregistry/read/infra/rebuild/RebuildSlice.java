@@ -0,0 +1,42 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.rebuild;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tranche d'identifiants d'agrégats d'une reconstruction, avec sa progression au dernier checkpoint.
+ *
+ * @param lowerBound      borne inférieure inclusive
+ * @param upperBound      borne supérieure exclusive, null pour la dernière tranche
+ * @param lastAggregateId dernier agrégat écrit, null si la tranche n'a pas commencé
+ */
+record RebuildSlice(
+        UUID rebuildId,
+        int slice,
+        UUID lowerBound,
+        UUID upperBound,
+        UUID lastAggregateId,
+        long events,
+        long views,
+        long failedAggregates) {
+
+    /**
+     * Splits the aggregate id space into contiguous ranges of the same width. Aggregate ids are random UUIDs, so
+     * the ranges hold about the same number of aggregates, like a hash split, while each one stays an index range.
+     */
+    static List<RebuildSlice> split(UUID rebuildId, int count) {
+        final List<RebuildSlice> slices = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            slices.add(new RebuildSlice(rebuildId, i, bound(i, count),
+                    i == count - 1 ? null : bound(i + 1, count), null, 0, 0, 0));
+        }
+        return slices;
+    }
+
+    private static UUID bound(int index, int count) {
+        // Splits on the 32 most significant bits, UUIDs compare as unsigned bytes in PostgreSQL
+        final long high = (index * (1L << 32)) / count;
+        return new UUID(high << 32, 0L);
+    }
+}
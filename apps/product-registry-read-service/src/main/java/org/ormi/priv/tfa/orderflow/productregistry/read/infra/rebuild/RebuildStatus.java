@@ -0,0 +1,33 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.rebuild;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * État d'une reconstruction de la vue produit.
+ *
+ * @param eventsPerSecond débit de la session en cours, ou débit moyen une fois la reconstruction terminée
+ */
+public record RebuildStatus(
+        UUID id,
+        State state,
+        long maxEventId,
+        int slices,
+        int completedSlices,
+        long events,
+        long views,
+        long failedAggregates,
+        double eventsPerSecond,
+        Instant startedAt,
+        Instant completedAt,
+        String lastError) {
+
+    /**
+     * State of a rebuild. A rebuild interrupted by a crash stays RUNNING in the database until it is resumed.
+     */
+    public enum State {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
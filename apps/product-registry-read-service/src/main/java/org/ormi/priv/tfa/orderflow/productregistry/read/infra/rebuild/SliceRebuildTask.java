@@ -0,0 +1,186 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.rebuild;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.RecursiveAction;
+
+import org.jboss.logging.Logger;
+import org.ormi.priv.tfa.orderflow.cqrs.Projector.ProjectionResult;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.jpa.EventLogEntity;
+import org.ormi.priv.tfa.orderflow.kernel.common.AggregateType;
+import org.ormi.priv.tfa.orderflow.kernel.product.jpa.ProductEventJpaMapper;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductEventV1Envelope;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tâche fork-join de reconstruction d'une suite de tranches : se divise jusqu'à une tranche par tâche, puis parcourt
+ * l'Event log de sa tranche avec un curseur serveur et projette chaque agrégat en une fois.
+ */
+
+class SliceRebuildTask extends RecursiveAction {
+
+    private static final String SQL_STREAM_QUERY = "SELECT aggregate_id, aggregate_version, event_type, event_version, "
+            + "occurred_at, payload::text FROM eventing.event_log "
+            + "WHERE aggregate_type = ? AND id <= ? AND aggregate_id %s ?%s "
+            + "ORDER BY aggregate_id, aggregate_version";
+
+    private static final Logger LOG = Logger.getLogger(SliceRebuildTask.class);
+
+    private final ProductViewRebuilder.Run run;
+    private final List<RebuildSlice> slices;
+
+    SliceRebuildTask(ProductViewRebuilder.Run run, List<RebuildSlice> slices) {
+        this.run = run;
+        this.slices = slices;
+    }
+
+    @Override
+    protected void compute() {
+        if (slices.size() > 1) {
+            final int middle = slices.size() / 2;
+            invokeAll(new SliceRebuildTask(run, slices.subList(0, middle)),
+                    new SliceRebuildTask(run, slices.subList(middle, slices.size())));
+            return;
+        }
+        final RebuildSlice slice = slices.get(0);
+        try {
+            rebuild(slice);
+        } catch (Exception e) {
+            // Other slices go on, the failed one resumes from its last checkpoint on the next run
+            LOG.errorf(e, "Product view rebuild %s failed on slice %d", slice.rebuildId(), slice.slice());
+            run.fail(e);
+        }
+    }
+
+    private void rebuild(RebuildSlice slice) throws SQLException {
+        try (Connection read = run.dataSource().getConnection();
+                Connection write = run.dataSource().getConnection()) {
+            // A server-side cursor is only used outside of autocommit
+            read.setAutoCommit(false);
+            write.setAutoCommit(false);
+            final SliceProgress progress = new SliceProgress(slice);
+            try (PreparedStatement ps = read.prepareStatement(streamQuery(slice));
+                    ProductViewUpsertWriter writer = new ProductViewUpsertWriter(write, run.targetTable(),
+                            run.viewMapper(), run.objectMapper(), run.inlineEvents())) {
+                ps.setFetchSize(run.fetchSize());
+                ps.setString(1, AggregateType.PRODUCT.value());
+                ps.setLong(2, run.maxEventId());
+                ps.setObject(3, slice.lastAggregateId() != null ? slice.lastAggregateId() : slice.lowerBound());
+                if (slice.upperBound() != null) {
+                    ps.setObject(4, slice.upperBound());
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    UUID current = null;
+                    List<ProductEventV1Envelope<?>> events = new ArrayList<>();
+                    while (rs.next()) {
+                        if (run.isStopping()) {
+                            // Resumes after the last checkpoint
+                            return;
+                        }
+                        final UUID aggregateId = rs.getObject(1, UUID.class);
+                        if (current != null && !aggregateId.equals(current)) {
+                            project(current, events, writer, progress);
+                            events = new ArrayList<>();
+                            if (writer.pending() >= run.batchSize()) {
+                                commit(write, writer, progress, false);
+                            }
+                        }
+                        current = aggregateId;
+                        events.add(toEnvelope(aggregateId, rs, run.eventMapper(), run.objectMapper()));
+                        progress.events++;
+                        run.recordEvent();
+                    }
+                    if (current != null) {
+                        project(current, events, writer, progress);
+                    }
+                    commit(write, writer, progress, true);
+                }
+            } finally {
+                read.rollback();
+            }
+            run.sliceCompleted(slice);
+        }
+    }
+
+    private void project(UUID aggregateId, List<ProductEventV1Envelope<?>> events, ProductViewUpsertWriter writer,
+            SliceProgress progress) throws SQLException {
+        final ProjectionResult<ProductView> result = run.projector().projectAll(Optional.empty(), events);
+        if (result.isSuccess()) {
+            writer.add(result.getProjection());
+            progress.views++;
+            run.recordView();
+        } else if (result.isFailure()) {
+            LOG.warnf("Product view rebuild skipped aggregate %s: %s", aggregateId, result.getError());
+            progress.failedAggregates++;
+        }
+        progress.lastAggregateId = aggregateId;
+    }
+
+    private void commit(Connection write, ProductViewUpsertWriter writer, SliceProgress progress, boolean completed)
+            throws SQLException {
+        writer.flush();
+        run.checkpoints().checkpoint(write, progress.toSlice(), completed);
+        write.commit();
+    }
+
+    /**
+     * Maps a row of the stream query columns (aggregate_id, aggregate_version, event_type, event_version,
+     * occurred_at, payload) to an event envelope.
+     */
+    static ProductEventV1Envelope<?> toEnvelope(UUID aggregateId, ResultSet rs, ProductEventJpaMapper eventMapper,
+            ObjectMapper objectMapper) throws SQLException {
+        final EventLogEntity entity = new EventLogEntity();
+        entity.setAggregateType(AggregateType.PRODUCT.value());
+        entity.setAggregateId(aggregateId);
+        entity.setAggregateVersion(rs.getLong(2));
+        entity.setEventType(rs.getString(3));
+        entity.setEventVersion(rs.getInt(4));
+        entity.setOccurredAt(rs.getObject(5, OffsetDateTime.class).toInstant());
+        try {
+            entity.setPayload(objectMapper.readTree(rs.getString(6)));
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Invalid payload for aggregate " + aggregateId, e);
+        }
+        return eventMapper.toProductEventV1(entity);
+    }
+
+    private static String streamQuery(RebuildSlice slice) {
+        return String.format(SQL_STREAM_QUERY,
+                slice.lastAggregateId() != null ? ">" : ">=",
+                slice.upperBound() != null ? " AND aggregate_id < ?" : "");
+    }
+
+    /**
+     * Mutable progress of the slice, only accessed by its task.
+     */
+    private static final class SliceProgress {
+        private final RebuildSlice slice;
+        private UUID lastAggregateId;
+        private long events;
+        private long views;
+        private long failedAggregates;
+
+        private SliceProgress(RebuildSlice slice) {
+            this.slice = slice;
+            this.lastAggregateId = slice.lastAggregateId();
+            this.events = slice.events();
+            this.views = slice.views();
+            this.failedAggregates = slice.failedAggregates();
+        }
+
+        private RebuildSlice toSlice() {
+            return new RebuildSlice(slice.rebuildId(), slice.slice(), slice.lowerBound(), slice.upperBound(),
+                    lastAggregateId, events, views, failedAggregates);
+        }
+    }
+}
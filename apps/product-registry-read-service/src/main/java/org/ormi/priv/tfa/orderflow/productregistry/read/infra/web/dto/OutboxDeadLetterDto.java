@@ -0,0 +1,51 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.web.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.ormi.priv.tfa.orderflow.cqrs.infra.jpa.OutboxDeadLetterEntity;
+
+/**
+ * DTO d'administration d'un message Outbox en échec définitif.
+ */
+
+public record OutboxDeadLetterDto(
+        Long id,
+        Long eventId,
+        String aggregateType,
+        String aggregateId,
+        Long aggregateVersion,
+        int attempts,
+        String lastError,
+        Instant deadLetteredAt) {
+
+    public static OutboxDeadLetterDto of(OutboxDeadLetterEntity entity) {
+        return new OutboxDeadLetterDto(
+                entity.getId(),
+                entity.getEventId(),
+                entity.getAggregateType(),
+                entity.getAggregateId().toString(),
+                entity.getAggregateVersion(),
+                entity.getAttempts(),
+                entity.getLastError(),
+                entity.getDeadLetteredAt());
+    }
+
+    /**
+     * Page of dead letters.
+     */
+    public record OutboxDeadLetterPageDto(List<OutboxDeadLetterDto> deadLetters, int page, int size, long total) {
+    }
+
+    /**
+     * Selection of dead letters for a bulk operation.
+     */
+    public record OutboxDeadLetterSelectionDto(List<Long> ids) {
+    }
+
+    /**
+     * Number of dead letters affected by a bulk operation.
+     */
+    public record OutboxDeadLetterResultDto(int count) {
+    }
+}
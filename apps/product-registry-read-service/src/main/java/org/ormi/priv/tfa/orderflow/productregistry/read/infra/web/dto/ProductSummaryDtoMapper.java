@@ -8,6 +8,7 @@ import org.ormi.priv.tfa.orderflow.contracts.productregistry.v1.read.ProductSumm
 import org.ormi.priv.tfa.orderflow.kernel.product.ProductIdMapper;
 import org.ormi.priv.tfa.orderflow.kernel.product.SkuIdMapper;
 import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductSummary;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductSummaryRow;
 
 @Mapper(
     componentModel = "cdi",
@@ -22,4 +23,11 @@ public interface ProductSummaryDtoMapper {
     @Mapping(expression = "java(productView.getStatus().name())", target = "status")
     @Mapping(source = "catalogs", target = "catalogs")
     public ProductSummaryDto toDto(ProductSummary productView);
+
+    @Mapping(expression = "java(row.id().toString())", target = "id")
+    @Mapping(source = "skuId", target = "skuId")
+    @Mapping(source = "name", target = "name")
+    @Mapping(expression = "java(row.status().name())", target = "status")
+    @Mapping(source = "catalogs", target = "catalogs")
+    public ProductSummaryDto toDto(ProductSummaryRow row);
 }
@@ -0,0 +1,32 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.web.dto;
+
+import java.time.Instant;
+
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.rebuild.GenerationStatus;
+
+/**
+ * DTO d'administration de l'état d'une génération de la vue produit.
+ */
+
+public record ProductViewGenerationDto(
+        int generation,
+        String tableName,
+        String state,
+        long caughtUpEventId,
+        Instant createdAt,
+        Instant activatedAt,
+        Instant retiredAt,
+        String lastError) {
+
+    public static ProductViewGenerationDto of(GenerationStatus status) {
+        return new ProductViewGenerationDto(
+                status.generation(),
+                status.tableName(),
+                status.state().name(),
+                status.caughtUpEventId(),
+                status.createdAt(),
+                status.activatedAt(),
+                status.retiredAt(),
+                status.lastError());
+    }
+}
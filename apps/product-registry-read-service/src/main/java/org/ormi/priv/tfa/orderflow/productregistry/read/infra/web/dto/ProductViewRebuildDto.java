@@ -0,0 +1,40 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.web.dto;
+
+import java.time.Instant;
+
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.rebuild.RebuildStatus;
+
+/**
+ * DTO d'administration de l'état d'une reconstruction de la vue produit.
+ */
+
+public record ProductViewRebuildDto(
+        String id,
+        String state,
+        long maxEventId,
+        int slices,
+        int completedSlices,
+        long events,
+        long views,
+        long failedAggregates,
+        double eventsPerSecond,
+        Instant startedAt,
+        Instant completedAt,
+        String lastError) {
+
+    public static ProductViewRebuildDto of(RebuildStatus status) {
+        return new ProductViewRebuildDto(
+                status.id().toString(),
+                status.state().name(),
+                status.maxEventId(),
+                status.slices(),
+                status.completedSlices(),
+                status.events(),
+                status.views(),
+                status.failedAggregates(),
+                status.eventsPerSecond(),
+                status.startedAt(),
+                status.completedAt(),
+                status.lastError());
+    }
+}
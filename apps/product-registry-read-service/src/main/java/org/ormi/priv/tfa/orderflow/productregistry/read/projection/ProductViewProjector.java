@@ -1,10 +1,7 @@
 package org.ormi.priv.tfa.orderflow.productregistry.read.projection;
 
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
 import java.util.Optional;
-import java.util.stream.Stream;
 
 import org.ormi.priv.tfa.orderflow.cqrs.Projector;
 import org.ormi.priv.tfa.orderflow.kernel.product.ProductEventV1Envelope;
@@ -18,6 +15,7 @@ import org.ormi.priv.tfa.orderflow.kernel.product.SkuId;
 import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductEventType;
 import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
 import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView.ProductViewEvent;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductViewHistory;
 
 import jakarta.enterprise.context.ApplicationScoped;
 
@@ -27,6 +25,24 @@ import jakarta.enterprise.context.ApplicationScoped;
 @ApplicationScoped
 public class ProductViewProjector implements Projector<ProductView, ProductEventV1Envelope<?>> {
 
+	// Results without a state are immutable, so the fixed ones are shared
+	private static final ProjectionResult<ProductView> UNIMPLEMENTED =
+			ProjectionResult.failed("Unimplemented event type");
+	private static final ProjectionResult<ProductView> ALREADY_ACTIVE =
+			ProjectionResult.failed("Product already exists and is active");
+	private static final ProjectionResult<ProductView> NOT_ACTIVE_RETIRE =
+			ProjectionResult.failed("Already retired or never existed");
+	private static final ProjectionResult<ProductView> STALE_RETIREMENT =
+			ProjectionResult.noOp("Stale retirement ignored");
+	private static final ProjectionResult<ProductView> NOT_ACTIVE_NAME =
+			ProjectionResult.failed("Cannot update name of non-existent or retired product");
+	private static final ProjectionResult<ProductView> STALE_NAME =
+			ProjectionResult.noOp("Stale name update ignored");
+	private static final ProjectionResult<ProductView> NOT_ACTIVE_DESCRIPTION =
+			ProjectionResult.failed("Cannot update description of non-existent or retired product");
+	private static final ProjectionResult<ProductView> STALE_DESCRIPTION =
+			ProjectionResult.noOp("Stale description update ignored");
+
 	@Override
 	public ProjectionResult<ProductView> project(Optional<ProductView> current, ProductEventV1Envelope<?> ev) {
 		return switch (ev) {
@@ -34,14 +50,14 @@ public class ProductViewProjector implements Projector<ProductView, ProductEvent
 			case ProductRetiredEnvelope pre -> handleProjection(current, pre);
 			case ProductNameUpdatedEnvelope pre -> handleProjection(current, pre);
 			case ProductDescriptionUpdatedEnvelope pre -> handleProjection(current, pre);
-			default -> ProjectionResult.failed("Unimplemented event type");
+			default -> UNIMPLEMENTED;
 		};
 	}
 
 	private ProjectionResult<ProductView> handleProjection(Optional<ProductView> current,
 			ProductRegisteredEnvelope ev) {
 		if (current.isPresent() && current.get().getStatus() == ProductLifecycle.ACTIVE) {
-			return ProjectionResult.failed("Product already exists and is active");
+			return ALREADY_ACTIVE;
 		}
 		ProductView newView = ProductView.Builder()
 				.id(new ProductId(ev.event().productId().value()))
@@ -50,7 +66,7 @@ public class ProductViewProjector implements Projector<ProductView, ProductEvent
 				.name(ev.event().payload().name())
 				.description(ev.event().payload().description())
 				.status(ProductLifecycle.ACTIVE)
-				.events(List.of(
+				.events(ProductViewHistory.of(
 						new ProductViewEvent(
 								ProductEventType.PRODUCT_REGISTERED,
 								ev.timestamp(),
@@ -65,16 +81,16 @@ public class ProductViewProjector implements Projector<ProductView, ProductEvent
 
 	private ProjectionResult<ProductView> handleProjection(Optional<ProductView> current, ProductRetiredEnvelope ev) {
 		if (current.isEmpty() || current.get().getStatus() != ProductLifecycle.ACTIVE) {
-			return ProjectionResult.failed("Already retired or never existed");
+			return NOT_ACTIVE_RETIRE;
 		}
 		if (ev.sequence() <= current.get().getVersion()) {
-			return ProjectionResult.noOp("Stale retirement ignored");
+			return STALE_RETIREMENT;
 		}
 		ProductView newView = ProductView.Builder()
 				.with(current.get())
 				.version(ev.sequence())
 				.status(ProductLifecycle.RETIRED)
-				.events(mergeEvents(current.get().getEvents(),
+				.events(current.get().getEvents().with(
 						new ProductViewEvent(
 							ProductEventType.PRODUCT_RETIRED,
 							ev.timestamp(),
@@ -87,16 +103,16 @@ public class ProductViewProjector implements Projector<ProductView, ProductEvent
 	private ProjectionResult<ProductView> handleProjection(Optional<ProductView> current,
 			ProductNameUpdatedEnvelope ev) {
 		if (current.isEmpty() || current.get().getStatus() != ProductLifecycle.ACTIVE) {
-			return ProjectionResult.failed("Cannot update name of non-existent or retired product");
+			return NOT_ACTIVE_NAME;
 		}
 		if (ev.sequence() <= current.get().getVersion()) {
-			return ProjectionResult.noOp("Stale name update ignored");
+			return STALE_NAME;
 		}
 		ProductView newView = ProductView.Builder()
 				.with(current.get())
 				.version(ev.sequence())
 				.name(ev.event().payload().newName())
-				.events(mergeEvents(current.get().getEvents(),
+				.events(current.get().getEvents().with(
 						new ProductViewEvent(
 							ProductEventType.PRODUCT_NAME_UPDATED,
 							ev.timestamp(),
@@ -109,16 +125,16 @@ public class ProductViewProjector implements Projector<ProductView, ProductEvent
 	private ProjectionResult<ProductView> handleProjection(Optional<ProductView> current,
 			ProductDescriptionUpdatedEnvelope ev) {
 		if (current.isEmpty() || current.get().getStatus() != ProductLifecycle.ACTIVE) {
-			return ProjectionResult.failed("Cannot update description of non-existent or retired product");
+			return NOT_ACTIVE_DESCRIPTION;
 		}
 		if (ev.sequence() <= current.get().getVersion()) {
-			return ProjectionResult.noOp("Stale description update ignored");
+			return STALE_DESCRIPTION;
 		}
 		ProductView newView = ProductView.Builder()
 				.with(current.get())
 				.version(ev.sequence())
 				.description(ev.event().payload().newDescription())
-				.events(mergeEvents(current.get().getEvents(),
+				.events(current.get().getEvents().with(
 						new ProductViewEvent(
 							ProductEventType.PRODUCT_DESCRIPTION_UPDATED,
 							ev.timestamp(),
@@ -128,11 +144,4 @@ public class ProductViewProjector implements Projector<ProductView, ProductEvent
 		return ProjectionResult.projected(newView);
 	}
 
-	private static List<ProductViewEvent> mergeEvents(List<ProductViewEvent> existingEvents,
-			ProductViewEvent newEvent) {
-		return Stream.concat(existingEvents.stream(),
-				Stream.of(newEvent))
-				.sorted(Comparator.comparingLong(ProductViewEvent::getSequence))
-				.toList();
-	}
 }
@@ -0,0 +1,281 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.application;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductId;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductLifecycle;
+import org.ormi.priv.tfa.orderflow.kernel.product.SkuId;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewRepository;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
+import org.ormi.priv.tfa.orderflow.productregistry.read.application.ReadProductService.SearchTotal;
+
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Tests unitaires des totaux des listes de produits : total par statut tenu à jour par les projections validées,
+ * recalage sur la base et totaux par motif de SKU gardés jusqu'à leur expiration ou au changement des SKU.
+ */
+@DisplayName("ProductCountService - Tests unitaires")
+class ProductCountServiceTest {
+
+    private ProductViewRepository repository;
+    private TransactionSynchronizationRegistry transactions;
+    private ProductCountService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ProductViewRepository.class);
+        transactions = mock(TransactionSynchronizationRegistry.class);
+        when(transactions.getTransactionStatus()).thenReturn(Status.STATUS_NO_TRANSACTION);
+        when(repository.countViewsByStatus()).thenReturn(Map.of(ProductLifecycle.ACTIVE, 3L,
+                ProductLifecycle.RETIRED, 2L));
+        service = new ProductCountService(repository, transactions, Duration.ofSeconds(60), Duration.ofMinutes(5), 10);
+    }
+
+    private static ProductView view(UUID id, String skuId, ProductLifecycle status) {
+        final Instant now = Instant.now();
+        return ProductView.Builder()
+                .id(new ProductId(id))
+                .version(1L)
+                .skuId(new SkuId(skuId))
+                .name("Produit")
+                .description("Description")
+                .status(status)
+                .catalogs(List.of())
+                .events(List.of())
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+
+    private static ProductView view(String skuId) {
+        return view(UUID.randomUUID(), skuId, ProductLifecycle.ACTIVE);
+    }
+
+    @Nested
+    @DisplayName("Total de tous les produits")
+    class TotalTests {
+
+        @Test
+        @DisplayName("Doit compter dans la base avant le premier chargement")
+        void shouldCountBeforeLoad() {
+            when(repository.countPaginatedViewsBySkuIdPattern("")).thenReturn(4L);
+            when(repository.estimateViewsBySkuIdPattern("")).thenReturn(6L);
+
+            assertEquals(new SearchTotal(4, false), service.count("", false), "Le total doit être compté");
+            assertEquals(new SearchTotal(6, true), service.count("", true), "Le total doit être estimé");
+        }
+
+        @Test
+        @DisplayName("Doit donner la somme des statuts une fois chargés")
+        void shouldSumStatusesOnceLoaded() {
+            service.refresh();
+
+            assertEquals(new SearchTotal(5, false), service.count("", true), "Le total doit être la somme des statuts");
+            assertEquals(new SearchTotal(5, false), service.count(null, false), "Un motif absent doit valoir le total");
+            verify(repository, never()).countPaginatedViewsBySkuIdPattern(anyString());
+            verify(repository, never()).estimateViewsBySkuIdPattern(anyString());
+        }
+
+        @Test
+        @DisplayName("Doit garder le dernier total si le recalage échoue")
+        void shouldKeepTotalWhenRefreshFails() {
+            service.refresh();
+            when(repository.countViewsByStatus()).thenThrow(new IllegalStateException("Base indisponible"));
+
+            service.refresh();
+
+            assertEquals(new SearchTotal(5, false), service.count("", false), "Le dernier total doit être gardé");
+        }
+
+        @Test
+        @DisplayName("Doit compter un nouveau produit hors transaction")
+        void shouldCountNewProductOutsideTransaction() {
+            service.refresh();
+
+            service.onProjected(Optional.empty(), view("ABC-12345"));
+
+            assertEquals(new SearchTotal(6, false), service.count("", false), "Le nouveau produit doit être compté");
+            verify(transactions, never()).registerInterposedSynchronization(any());
+        }
+
+        @Test
+        @DisplayName("Ne doit pas changer le total pour un changement de statut")
+        void shouldKeepTotalOnStatusChange() {
+            service.refresh();
+            final UUID id = UUID.randomUUID();
+
+            service.onProjected(Optional.of(view(id, "ABC-12345", ProductLifecycle.ACTIVE)),
+                    view(id, "ABC-12345", ProductLifecycle.RETIRED));
+
+            assertEquals(new SearchTotal(5, false), service.count("", false), "Le produit doit changer de statut");
+        }
+    }
+
+    @Nested
+    @DisplayName("Projections en transaction")
+    class TransactionTests {
+
+        private Synchronization projectInTransaction() {
+            when(transactions.getTransactionStatus()).thenReturn(Status.STATUS_ACTIVE);
+            service.onProjected(Optional.empty(), view("ABC-12345"));
+            final ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+            verify(transactions).registerInterposedSynchronization(synchronization.capture());
+            return synchronization.getValue();
+        }
+
+        @Test
+        @DisplayName("Doit compter le produit après la validation")
+        void shouldCountAfterCommit() {
+            service.refresh();
+
+            final Synchronization synchronization = projectInTransaction();
+            assertEquals(new SearchTotal(5, false), service.count("", false), "La transaction n'est pas validée");
+
+            synchronization.afterCompletion(Status.STATUS_COMMITTED);
+            assertEquals(new SearchTotal(6, false), service.count("", false), "Le produit validé doit être compté");
+        }
+
+        @Test
+        @DisplayName("Ne doit pas compter le produit d'une transaction annulée")
+        void shouldIgnoreRolledBack() {
+            service.refresh();
+
+            projectInTransaction().afterCompletion(Status.STATUS_ROLLEDBACK);
+
+            assertEquals(new SearchTotal(5, false), service.count("", false), "Le produit annulé ne doit pas compter");
+        }
+
+        @Test
+        @DisplayName("Ne doit rien enregistrer pour une projection sans changement de statut ni de SKU")
+        void shouldSkipUnchangedProjection() {
+            when(transactions.getTransactionStatus()).thenReturn(Status.STATUS_ACTIVE);
+            final UUID id = UUID.randomUUID();
+
+            service.onProjected(Optional.of(view(id, "ABC-12345", ProductLifecycle.ACTIVE)),
+                    view(id, "ABC-12345", ProductLifecycle.ACTIVE));
+
+            verify(transactions, never()).registerInterposedSynchronization(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Totaux par motif")
+    class PatternTests {
+
+        @Test
+        @DisplayName("Doit garder le total d'un motif")
+        void shouldCachePatternCount() {
+            when(repository.countPaginatedViewsBySkuIdPattern("ABC")).thenReturn(2L);
+
+            assertEquals(new SearchTotal(2, false), service.count("ABC", false), "Le motif doit être compté");
+            assertEquals(new SearchTotal(2, false), service.count("ABC", true), "Le total gardé doit être exact");
+            verify(repository, times(1)).countPaginatedViewsBySkuIdPattern("ABC");
+            verify(repository, never()).estimateViewsBySkuIdPattern(anyString());
+        }
+
+        @Test
+        @DisplayName("Ne doit pas garder une estimation")
+        void shouldNotCacheEstimate() {
+            when(repository.estimateViewsBySkuIdPattern("ABC")).thenReturn(3L);
+
+            assertEquals(new SearchTotal(3, true), service.count("ABC", true), "Le motif doit être estimé");
+            service.count("ABC", true);
+
+            verify(repository, times(2)).estimateViewsBySkuIdPattern("ABC");
+        }
+
+        @Test
+        @DisplayName("Doit recompter un motif expiré")
+        void shouldRecountExpiredPattern() {
+            service = new ProductCountService(repository, transactions, Duration.ofSeconds(60), Duration.ZERO, 10);
+
+            service.count("ABC", false);
+            service.count("ABC", false);
+
+            verify(repository, times(2)).countPaginatedViewsBySkuIdPattern("ABC");
+        }
+
+        @Test
+        @DisplayName("Doit recompter les motifs après l'ajout d'un produit")
+        void shouldRecountAfterNewProduct() {
+            service.count("ABC", false);
+
+            service.onProjected(Optional.empty(), view("ABC-12345"));
+            service.count("ABC", false);
+
+            verify(repository, times(2)).countPaginatedViewsBySkuIdPattern("ABC");
+        }
+
+        @Test
+        @DisplayName("Doit recompter les motifs après un changement de SKU")
+        void shouldRecountAfterSkuChange() {
+            service.count("ABC", false);
+            final UUID id = UUID.randomUUID();
+
+            service.onProjected(Optional.of(view(id, "ABC-12345", ProductLifecycle.ACTIVE)),
+                    view(id, "XYZ-12345", ProductLifecycle.ACTIVE));
+            service.count("ABC", false);
+
+            verify(repository, times(2)).countPaginatedViewsBySkuIdPattern("ABC");
+        }
+
+        @Test
+        @DisplayName("Doit garder les motifs après un changement de statut")
+        void shouldKeepPatternsAfterStatusChange() {
+            service.count("ABC", false);
+            final UUID id = UUID.randomUUID();
+
+            service.onProjected(Optional.of(view(id, "ABC-12345", ProductLifecycle.ACTIVE)),
+                    view(id, "ABC-12345", ProductLifecycle.RETIRED));
+            service.count("ABC", false);
+
+            verify(repository, times(1)).countPaginatedViewsBySkuIdPattern("ABC");
+        }
+
+        @Test
+        @DisplayName("Doit recompter les motifs quand le recalage trouve d'autres totaux")
+        void shouldRecountWhenRefreshDiffers() {
+            service.refresh();
+            service.count("ABC", false);
+
+            service.refresh();
+            service.count("ABC", false);
+            verify(repository, times(1)).countPaginatedViewsBySkuIdPattern("ABC");
+
+            when(repository.countViewsByStatus()).thenReturn(Map.of(ProductLifecycle.ACTIVE, 4L));
+            service.refresh();
+            service.count("ABC", false);
+            verify(repository, times(2)).countPaginatedViewsBySkuIdPattern("ABC");
+        }
+
+        @Test
+        @DisplayName("Doit vider les motifs gardés au-delà de la taille maximale")
+        void shouldClearWhenFull() {
+            service = new ProductCountService(repository, transactions, Duration.ofSeconds(60), Duration.ofMinutes(5), 1);
+
+            service.count("ABC", false);
+            service.count("XYZ", false);
+            service.count("ABC", false);
+
+            verify(repository, times(2)).countPaginatedViewsBySkuIdPattern("ABC");
+        }
+    }
+}
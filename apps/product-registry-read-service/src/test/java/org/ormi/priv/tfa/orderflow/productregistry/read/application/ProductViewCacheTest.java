@@ -0,0 +1,235 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.application;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductId;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductLifecycle;
+import org.ormi.priv.tfa.orderflow.kernel.product.SkuId;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Tests unitaires du cache des vues produit : un seul chargement par produit, produits inconnus gardés peu de temps,
+ * éviction au-delà du poids maximal et remplacement des vues à la validation de leur projection.
+ */
+@DisplayName("ProductViewCache - Tests unitaires")
+class ProductViewCacheTest {
+
+    private static final ProductId ID = new ProductId(UUID.randomUUID());
+
+    private TransactionSynchronizationRegistry transactions;
+    private ProductViewCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        transactions = mock(TransactionSynchronizationRegistry.class);
+        when(transactions.getTransactionStatus()).thenReturn(Status.STATUS_NO_TRANSACTION);
+        cache = cache(true, 64 * 1024 * 1024, Duration.ofMinutes(5));
+        loads = new AtomicInteger();
+    }
+
+    private ProductViewCache cache(boolean enabled, long maxWeight, Duration negativeTtl) {
+        return new ProductViewCache(transactions, new SimpleMeterRegistry(), enabled,
+                new MemorySize(BigInteger.valueOf(maxWeight)), Duration.ofMinutes(5), negativeTtl);
+    }
+
+    private static ProductView view(long version) {
+        final Instant now = Instant.now();
+        return ProductView.Builder()
+                .id(ID)
+                .version(version)
+                .skuId(new SkuId("ABC-12345"))
+                .name("Produit")
+                .description("Description")
+                .status(ProductLifecycle.ACTIVE)
+                .catalogs(List.of())
+                .events(List.of())
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+
+    private Function<ProductId, Optional<ProductView>> loader(Optional<ProductView> view) {
+        return id -> {
+            loads.incrementAndGet();
+            return view;
+        };
+    }
+
+    private Optional<ProductView> find(Optional<ProductView> loaded) {
+        return cache.findById(ID, loader(loaded));
+    }
+
+    private long cachedVersion() {
+        return find(Optional.empty()).orElseThrow().getVersion();
+    }
+
+    @Nested
+    @DisplayName("Lecture")
+    class FindTests {
+
+        @Test
+        @DisplayName("Doit charger une vue une seule fois")
+        void shouldLoadOnce() {
+            assertEquals(1L, find(Optional.of(view(1))).orElseThrow().getVersion(),
+                    "La vue chargée doit être renvoyée");
+            assertEquals(1L, find(Optional.of(view(2))).orElseThrow().getVersion(),
+                    "La vue gardée doit être renvoyée");
+            assertEquals(1, loads.get(), "La vue ne doit être chargée qu'une fois");
+        }
+
+        @Test
+        @DisplayName("Doit garder un produit inconnu")
+        void shouldCacheUnknownProduct() {
+            assertTrue(find(Optional.empty()).isEmpty(), "Le produit est inconnu");
+            assertTrue(find(Optional.of(view(1))).isEmpty(), "Le produit inconnu doit être gardé");
+            assertEquals(1, loads.get(), "Le produit inconnu ne doit être cherché qu'une fois");
+        }
+
+        @Test
+        @DisplayName("Doit oublier un produit inconnu à son expiration")
+        void shouldExpireUnknownProduct() {
+            cache = cache(true, 64 * 1024 * 1024, Duration.ZERO);
+
+            find(Optional.empty());
+            assertTrue(find(Optional.of(view(1))).isPresent(), "Le produit créé depuis doit être trouvé");
+            find(Optional.empty());
+            assertEquals(2, loads.get(), "Le produit trouvé doit être gardé jusqu'à sa propre expiration");
+        }
+
+        @Test
+        @DisplayName("Doit évincer une vue plus lourde que le cache")
+        void shouldEvictOverweightView() throws InterruptedException {
+            cache = cache(true, 100, Duration.ofMinutes(5));
+
+            find(Optional.of(view(1)));
+            // Eviction runs asynchronously after the write
+            for (int i = 0; i < 100 && loads.get() < 2; i++) {
+                Thread.sleep(50);
+                find(Optional.of(view(1)));
+            }
+            assertTrue(loads.get() >= 2, "La vue trop lourde ne doit pas rester en cache");
+        }
+
+        @Test
+        @DisplayName("Doit toujours charger la vue si le cache est désactivé")
+        void shouldAlwaysLoadWhenDisabled() {
+            cache = cache(false, 64 * 1024 * 1024, Duration.ofMinutes(5));
+
+            find(Optional.of(view(1)));
+            find(Optional.of(view(1)));
+
+            assertEquals(2, loads.get(), "Chaque lecture doit charger la vue");
+            cache.onSaved(view(2));
+            verify(transactions, never()).getTransactionStatus();
+        }
+    }
+
+    @Nested
+    @DisplayName("Enregistrement hors transaction")
+    class SavedTests {
+
+        @Test
+        @DisplayName("Doit remplacer la vue gardée par une version plus récente")
+        void shouldReplaceWithNewerVersion() {
+            find(Optional.of(view(1)));
+
+            cache.onSaved(view(2));
+
+            assertEquals(2L, cachedVersion(), "La version enregistrée doit être gardée");
+            assertEquals(1, loads.get(), "La vue ne doit pas être rechargée");
+        }
+
+        @Test
+        @DisplayName("Doit ignorer une version plus ancienne")
+        void shouldIgnoreOlderVersion() {
+            find(Optional.of(view(3)));
+
+            cache.onSaved(view(2));
+
+            assertEquals(3L, cachedVersion(), "La version plus récente doit rester gardée");
+        }
+
+        @Test
+        @DisplayName("Ne doit pas ajouter une vue qui n'est pas gardée")
+        void shouldNotAddUncachedView() {
+            cache.onSaved(view(2));
+
+            assertEquals(1L, find(Optional.of(view(1))).orElseThrow().getVersion(), "La vue doit être chargée");
+            assertEquals(1, loads.get(), "La vue enregistrée ne doit pas avoir été ajoutée");
+        }
+
+        @Test
+        @DisplayName("Doit remplacer un produit inconnu gardé")
+        void shouldReplaceUnknownProduct() {
+            find(Optional.empty());
+
+            cache.onSaved(view(1));
+
+            assertEquals(1L, cachedVersion(), "Le produit créé doit remplacer le produit inconnu");
+            assertEquals(1, loads.get(), "La vue ne doit pas être rechargée");
+        }
+    }
+
+    @Nested
+    @DisplayName("Enregistrement en transaction")
+    class TransactionTests {
+
+        private Synchronization saveInTransaction() {
+            find(Optional.of(view(1)));
+            when(transactions.getTransactionStatus()).thenReturn(Status.STATUS_ACTIVE);
+            cache.onSaved(view(2));
+            final ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+            verify(transactions).registerInterposedSynchronization(synchronization.capture());
+            return synchronization.getValue();
+        }
+
+        @Test
+        @DisplayName("Doit remplacer la vue après la validation")
+        void shouldReplaceAfterCommit() {
+            final Synchronization synchronization = saveInTransaction();
+            assertEquals(1L, cachedVersion(), "La transaction n'est pas validée");
+
+            synchronization.afterCompletion(Status.STATUS_COMMITTED);
+            assertEquals(2L, cachedVersion(), "La vue validée doit être gardée");
+        }
+
+        @Test
+        @DisplayName("Doit garder la vue après une annulation")
+        void shouldKeepViewAfterRollback() {
+            saveInTransaction().afterCompletion(Status.STATUS_ROLLEDBACK);
+
+            assertEquals(1L, cachedVersion(), "La vue annulée ne doit pas être gardée");
+        }
+
+        @Test
+        @DisplayName("Ne doit rien enregistrer hors transaction")
+        void shouldNotRegisterOutsideTransaction() {
+            cache.onSaved(view(2));
+
+            verify(transactions, never()).registerInterposedSynchronization(any());
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.application;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductId;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductLifecycle;
+import org.ormi.priv.tfa.orderflow.kernel.product.SkuId;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewRepository;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
+
+/**
+ * Tests unitaires de l'écriture différée des vues produit : l'attente de l'écriture par les acquittements de l'outbox,
+ * y compris pendant une écriture en cours et après un échec.
+ */
+@DisplayName("ProductViewWriteBehind - Tests unitaires")
+class ProductViewWriteBehindTest {
+
+    private ProductViewRepository repository;
+    private ProductViewWriteBehind writeBehind;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ProductViewRepository.class);
+        when(repository.durable()).thenReturn(CompletableFuture.completedStage(null));
+        writeBehind = new ProductViewWriteBehind(repository, true, Duration.ofMillis(200), 1000);
+    }
+
+    private static ProductView view() {
+        final Instant now = Instant.now();
+        return ProductView.Builder()
+                .id(new ProductId(UUID.randomUUID()))
+                .version(1L)
+                .skuId(new SkuId("ABC-12345"))
+                .name("Produit")
+                .description("Description")
+                .status(ProductLifecycle.ACTIVE)
+                .catalogs(List.of())
+                .events(List.of())
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+
+    private static boolean done(CompletionStage<Void> stage) {
+        return stage.toCompletableFuture().isDone();
+    }
+
+    @Nested
+    @DisplayName("Attente de l'écriture")
+    class FlushedTests {
+
+        @Test
+        @DisplayName("Doit être terminée sans vue à écrire")
+        void shouldCompleteWithoutViews() {
+            assertTrue(done(writeBehind.flushed()), "Sans vue enregistrée, rien ne doit être attendu");
+        }
+
+        @Test
+        @DisplayName("Doit attendre l'écriture suivante")
+        void shouldWaitForNextFlush() {
+            writeBehind.save(view());
+
+            final CompletionStage<Void> flushed = writeBehind.flushed();
+            assertFalse(done(flushed), "La vue n'est pas encore écrite");
+
+            writeBehind.flush();
+            assertTrue(done(flushed), "L'écriture doit terminer l'attente");
+            verify(repository).saveAll(anyCollection());
+        }
+
+        @Test
+        @DisplayName("Doit être terminée une fois les vues écrites")
+        void shouldCompleteOnceWritten() {
+            writeBehind.save(view());
+            writeBehind.flush();
+
+            assertTrue(done(writeBehind.flushed()), "Les vues déjà écrites ne doivent pas attendre l'écriture suivante");
+        }
+
+        @Test
+        @DisplayName("Doit attendre la durabilité du dépôt après l'écriture")
+        void shouldWaitForRepositoryDurability() {
+            final CompletableFuture<Void> durable = new CompletableFuture<>();
+            when(repository.durable()).thenReturn(durable);
+            writeBehind.save(view());
+
+            final CompletionStage<Void> flushed = writeBehind.flushed();
+            writeBehind.flush();
+            assertFalse(done(flushed), "Les vues écrites ne sont pas encore durables");
+
+            durable.complete(null);
+            assertTrue(done(flushed), "La durabilité du dépôt doit terminer l'attente");
+        }
+    }
+
+    @Nested
+    @DisplayName("Écriture en cours")
+    class InFlightTests {
+
+        @Test
+        @DisplayName("Doit être terminée par l'écriture en cours sans nouvelle vue")
+        void shouldCompleteWithFlushInProgress() throws Exception {
+            final CountDownLatch writing = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            doAnswer(invocation -> {
+                writing.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return null;
+            }).when(repository).saveAll(anyCollection());
+            writeBehind.save(view());
+            final Thread flusher = new Thread(writeBehind::flush);
+            flusher.start();
+            assertTrue(writing.await(5, TimeUnit.SECONDS), "L'écriture doit avoir commencé");
+
+            // Regression: it used to wait for a next flush that nothing would ever trigger
+            final CompletionStage<Void> flushed = writeBehind.flushed();
+            assertFalse(done(flushed), "L'écriture en cours n'est pas terminée");
+
+            release.countDown();
+            flusher.join(5000);
+            assertTrue(done(flushed), "La fin de l'écriture en cours doit terminer l'attente");
+        }
+
+        @Test
+        @DisplayName("Doit attendre l'écriture suivante pour une vue enregistrée pendant l'écriture")
+        void shouldWaitForNextFlushForViewSavedDuringFlush() throws Exception {
+            final CountDownLatch writing = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            doAnswer(invocation -> {
+                writing.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return null;
+            }).doNothing().when(repository).saveAll(anyCollection());
+            writeBehind.save(view());
+            final Thread flusher = new Thread(writeBehind::flush);
+            flusher.start();
+            assertTrue(writing.await(5, TimeUnit.SECONDS), "L'écriture doit avoir commencé");
+
+            writeBehind.save(view());
+            final CompletionStage<Void> flushed = writeBehind.flushed();
+            release.countDown();
+            flusher.join(5000);
+            assertFalse(done(flushed), "La vue enregistrée pendant l'écriture n'est pas encore écrite");
+
+            writeBehind.flush();
+            assertTrue(done(flushed), "L'écriture suivante doit terminer l'attente");
+        }
+    }
+
+    @Nested
+    @DisplayName("Échec d'une écriture")
+    class FailureTests {
+
+        @Test
+        @DisplayName("Doit attendre la nouvelle tentative après un échec")
+        void shouldWaitForRetryAfterFailure() {
+            doThrow(new IllegalStateException("Base indisponible")).doNothing()
+                    .when(repository).saveAll(anyCollection());
+            writeBehind.save(view());
+            final CompletionStage<Void> flushed = writeBehind.flushed();
+
+            writeBehind.flush();
+            assertFalse(done(flushed), "Une écriture en échec ne doit pas terminer l'attente");
+            assertFalse(done(writeBehind.flushed()), "Les vues non écrites doivent toujours être attendues");
+
+            writeBehind.flush();
+            assertTrue(done(flushed), "La nouvelle tentative doit terminer l'attente");
+            verify(repository, times(2)).saveAll(anyCollection());
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.application;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.ormi.priv.tfa.orderflow.cqrs.Projector.ProjectionResult;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductEventV1.ProductNameUpdated;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductEventV1.ProductRegistered;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductEventV1Envelope;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductEventV1Envelope.ProductNameUpdatedEnvelope;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductEventV1Envelope.ProductRegisteredEnvelope;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductId;
+import org.ormi.priv.tfa.orderflow.kernel.product.SkuId;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
+import org.ormi.priv.tfa.orderflow.productregistry.read.projection.ProductViewProjector;
+
+import jakarta.enterprise.inject.Instance;
+
+/**
+ * Tests unitaires de la projection par lot des événements d'un produit : une lecture et une écriture de la vue par lot,
+ * et le sort des événements qui suivent un échec.
+ */
+@DisplayName("ProjectionDispatcher - Tests unitaires")
+class ProjectionDispatcherTest {
+
+    private static final ProductId PRODUCT_ID = new ProductId(UUID.randomUUID());
+    private static final SkuId SKU_ID = new SkuId("ABC-12345");
+
+    private ProductViewWriteBehind writeBehind;
+    private ProductViewCache cache;
+    private ProductCountService counts;
+    private ProductEventBroadcaster broadcaster;
+    private ProjectionDispatcher dispatcher;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        final Instance<ProductViewProjector> projector = mock(Instance.class);
+        when(projector.get()).thenReturn(new ProductViewProjector());
+        writeBehind = mock(ProductViewWriteBehind.class);
+        cache = mock(ProductViewCache.class);
+        counts = mock(ProductCountService.class);
+        broadcaster = mock(ProductEventBroadcaster.class);
+        when(writeBehind.findById(PRODUCT_ID)).thenReturn(Optional.empty());
+        dispatcher = new ProjectionDispatcher(projector, writeBehind, cache, counts, broadcaster);
+    }
+
+    private static ProductEventV1Envelope<?> registered(long sequence) {
+        return new ProductRegisteredEnvelope(new ProductRegistered(PRODUCT_ID, SKU_ID, "Produit", "Description"),
+                sequence, Instant.now());
+    }
+
+    private static ProductEventV1Envelope<?> renamed(long sequence, String name) {
+        return new ProductNameUpdatedEnvelope(new ProductNameUpdated(PRODUCT_ID, "Produit", name), sequence,
+                Instant.now());
+    }
+
+    private ProductView saved() {
+        final ArgumentCaptor<ProductView> view = ArgumentCaptor.forClass(ProductView.class);
+        verify(writeBehind).save(view.capture());
+        return view.getValue();
+    }
+
+    @Nested
+    @DisplayName("Lot sans échec")
+    class SuccessTests {
+
+        @Test
+        @DisplayName("Doit projeter tout le lot et n'enregistrer la vue qu'une fois")
+        void shouldSaveViewOnce() {
+            final List<ProjectionResult<ProductView>> results = dispatcher.dispatchAll(List.of(
+                    registered(1), renamed(2, "Nom 2"), renamed(3, "Nom 3")));
+
+            assertEquals(3, results.size(), "Chaque événement doit avoir un résultat");
+            results.forEach(result -> assertTrue(result.isSuccess(), "Chaque événement doit être appliqué"));
+            final ProductView view = saved();
+            assertEquals(3L, view.getVersion(), "La vue doit être à la version du dernier événement");
+            assertEquals("Nom 3", view.getName(), "La vue doit porter le dernier nom");
+            verify(cache).onSaved(view);
+            verify(counts).onProjected(Optional.empty(), view);
+            verify(broadcaster, times(3)).broadcast(any());
+        }
+
+        @Test
+        @DisplayName("Doit ignorer les événements déjà appliqués à la vue")
+        void shouldSkipStaleEvents() {
+            dispatcher.dispatchAll(List.of(registered(1), renamed(2, "Nom 2")));
+            final ProductView current = saved();
+            reset(writeBehind, broadcaster);
+            when(writeBehind.findById(PRODUCT_ID)).thenReturn(Optional.of(current));
+
+            final List<ProjectionResult<ProductView>> results = dispatcher.dispatchAll(List.of(
+                    renamed(2, "Nom 2"), renamed(3, "Nom 3")));
+
+            assertTrue(results.get(0).isNoOp(), "Un événement déjà appliqué doit être ignoré");
+            assertTrue(results.get(1).isSuccess(), "L'événement suivant doit être appliqué");
+            assertEquals(3L, saved().getVersion(), "La vue doit avancer jusqu'au dernier événement");
+            verify(broadcaster, times(1)).broadcast(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Lot avec un échec")
+    class FailureTests {
+
+        @Test
+        @DisplayName("Doit enregistrer le préfixe appliqué et s'arrêter au premier échec")
+        void shouldStopAtFirstFailure() {
+            final List<ProjectionResult<ProductView>> results = dispatcher.dispatchAll(List.of(
+                    registered(1), renamed(2, "Nom 2"), registered(3), renamed(4, "Nom 4")));
+
+            assertEquals(3, results.size(), "Les événements après l'échec ne doivent pas avoir de résultat");
+            assertTrue(results.get(0).isSuccess(), "Le premier événement doit être appliqué");
+            assertTrue(results.get(1).isSuccess(), "Le deuxième événement doit être appliqué");
+            assertTrue(results.get(2).isFailure(), "Le troisième événement doit échouer");
+            final ProductView view = saved();
+            assertEquals(2L, view.getVersion(), "Seul le préfixe appliqué doit être enregistré");
+            assertEquals("Nom 2", view.getName(), "L'événement après l'échec ne doit pas être appliqué");
+            verify(counts).onProjected(Optional.empty(), view);
+            verify(broadcaster, times(2)).broadcast(any());
+        }
+
+        @Test
+        @DisplayName("Ne doit rien enregistrer quand le premier événement échoue")
+        void shouldNotSaveWhenFirstEventFails() {
+            final List<ProjectionResult<ProductView>> results = dispatcher.dispatchAll(List.of(
+                    renamed(1, "Nom 1"), registered(2)));
+
+            assertEquals(1, results.size(), "Seul l'échec doit avoir un résultat");
+            assertTrue(results.get(0).isFailure(), "Le premier événement doit échouer");
+            verify(writeBehind, never()).save(any());
+            verify(cache, never()).onSaved(any());
+            verify(counts, never()).onProjected(any(), any());
+            verify(broadcaster, never()).broadcast(any());
+        }
+
+        @Test
+        @DisplayName("Doit rejeter un lot couvrant plusieurs produits")
+        void shouldRejectMixedAggregates() {
+            final ProductId other = new ProductId(UUID.randomUUID());
+            final ProductEventV1Envelope<?> foreign = new ProductRegisteredEnvelope(
+                    new ProductRegistered(other, SKU_ID, "Autre", "Description"), 1L, Instant.now());
+
+            assertThrows(jakarta.resource.spi.IllegalStateException.class,
+                    () -> dispatcher.dispatchAll(List.of(registered(1), foreign)),
+                    "Un lot ne doit porter que sur un produit");
+            verify(writeBehind, never()).findById(eq(other));
+            verify(writeBehind, never()).save(any());
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.application;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductLifecycle;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewRepository;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewSearch;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewSearch.Cursor;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewSearch.SortKey;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductSummaryRow;
+import org.ormi.priv.tfa.orderflow.productregistry.read.application.ReadProductService.SearchPageResult;
+import org.ormi.priv.tfa.orderflow.productregistry.read.application.ReadProductService.SearchTotal;
+
+/**
+ * Tests unitaires de la recherche de produits paginée par clé : lecture d'une vue de plus pour la page suivante,
+ * curseur de la dernière vue et total compté à la première page seulement.
+ */
+@DisplayName("ReadProductService - Tests unitaires")
+class ReadProductServiceTest {
+
+    private static final int SIZE = 3;
+
+    private ProductViewRepository repository;
+    private ProductCountService counts;
+    private ReadProductService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ProductViewRepository.class);
+        counts = mock(ProductCountService.class);
+        service = new ReadProductService(repository, mock(ProductViewWriteBehind.class), mock(ProductViewCache.class),
+                counts, mock(ProductEventBroadcaster.class));
+    }
+
+    private static List<ProductSummaryRow> rows(int count) {
+        final List<ProductSummaryRow> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new ProductSummaryRow(UUID.randomUUID(), String.format("ABC-%05d", i), "Produit " + i,
+                    ProductLifecycle.ACTIVE, 0, Instant.EPOCH.plusSeconds(i)));
+        }
+        return rows;
+    }
+
+    private static ProductQuery.SearchProductsQuery query(SortKey sort, Optional<Cursor> after,
+            ProductQuery.TotalMode totalMode, Optional<SearchTotal> knownTotal) {
+        return new ProductQuery.SearchProductsQuery("ABC", sort, false, after, SIZE, totalMode, knownTotal);
+    }
+
+    private static ProductQuery.SearchProductsQuery firstPage(ProductQuery.TotalMode totalMode) {
+        return query(SortKey.SKU_ID, Optional.empty(), totalMode, Optional.empty());
+    }
+
+    @Nested
+    @DisplayName("Page suivante")
+    class NextPageTests {
+
+        @Test
+        @DisplayName("Doit lire une vue de plus que la page")
+        void shouldFetchOneMoreRow() {
+            when(repository.searchSummaries(any())).thenReturn(rows(SIZE));
+
+            service.handle(firstPage(ProductQuery.TotalMode.NONE));
+
+            final ArgumentCaptor<ProductViewSearch> search = ArgumentCaptor.forClass(ProductViewSearch.class);
+            verify(repository).searchSummaries(search.capture());
+            assertEquals(SIZE + 1, search.getValue().size(), "Une vue de plus doit être lue");
+            assertEquals("ABC", search.getValue().skuIdPattern(), "Le motif doit être transmis");
+        }
+
+        @Test
+        @DisplayName("Doit donner le curseur de la dernière vue de la page s'il en reste")
+        void shouldGiveCursorOfLastRow() {
+            final List<ProductSummaryRow> rows = rows(SIZE + 1);
+            when(repository.searchSummaries(any())).thenReturn(rows);
+
+            final SearchPageResult result = service.handle(firstPage(ProductQuery.TotalMode.NONE));
+
+            assertEquals(rows.subList(0, SIZE), result.page(), "La vue en trop ne doit pas être renvoyée");
+            final ProductSummaryRow last = rows.get(SIZE - 1);
+            assertEquals(Optional.of(new Cursor(last.skuId(), last.id())), result.next(),
+                    "Le curseur doit être celui de la dernière vue de la page");
+        }
+
+        @Test
+        @DisplayName("Doit porter la clé du tri dans le curseur")
+        void shouldUseSortKeyInCursor() {
+            final List<ProductSummaryRow> rows = rows(SIZE + 1);
+            when(repository.searchSummaries(any())).thenReturn(rows);
+
+            final SearchPageResult result = service.handle(query(SortKey.NAME, Optional.empty(),
+                    ProductQuery.TotalMode.NONE, Optional.empty()));
+
+            assertEquals(rows.get(SIZE - 1).name(), result.next().orElseThrow().key(),
+                    "La clé du curseur doit être le nom de la dernière vue");
+        }
+
+        @Test
+        @DisplayName("Ne doit pas donner de curseur sur la dernière page")
+        void shouldNotGiveCursorOnLastPage() {
+            when(repository.searchSummaries(any())).thenReturn(rows(SIZE));
+
+            assertTrue(service.handle(firstPage(ProductQuery.TotalMode.NONE)).next().isEmpty(),
+                    "La dernière page ne doit pas avoir de curseur");
+        }
+    }
+
+    @Nested
+    @DisplayName("Total")
+    class TotalTests {
+
+        @Test
+        @DisplayName("Doit compter le total sur la première page")
+        void shouldCountOnFirstPage() {
+            when(repository.searchSummaries(any())).thenReturn(rows(SIZE + 1));
+            when(counts.count("ABC", false)).thenReturn(new SearchTotal(10, false));
+
+            final SearchPageResult result = service.handle(firstPage(ProductQuery.TotalMode.EXACT));
+
+            assertEquals(Optional.of(new SearchTotal(10, false)), result.total(), "Le total doit être compté");
+        }
+
+        @Test
+        @DisplayName("Doit demander une estimation si le total estimé suffit")
+        void shouldEstimateOnFirstPage() {
+            when(repository.searchSummaries(any())).thenReturn(rows(SIZE + 1));
+            when(counts.count("ABC", true)).thenReturn(new SearchTotal(12, true));
+
+            final SearchPageResult result = service.handle(firstPage(ProductQuery.TotalMode.ESTIMATE));
+
+            assertEquals(Optional.of(new SearchTotal(12, true)), result.total(), "Le total doit être estimé");
+        }
+
+        @Test
+        @DisplayName("Ne doit pas compter quand la première page est la dernière")
+        void shouldNotCountSinglePage() {
+            when(repository.searchSummaries(any())).thenReturn(rows(2));
+
+            final SearchPageResult result = service.handle(firstPage(ProductQuery.TotalMode.EXACT));
+
+            assertEquals(Optional.of(new SearchTotal(2, false)), result.total(), "Le total doit être la taille de la page");
+            verify(counts, never()).count(anyString(), anyBoolean());
+        }
+
+        @Test
+        @DisplayName("Doit reprendre le total connu sur les pages suivantes")
+        void shouldPassKnownTotalOnNextPages() {
+            when(repository.searchSummaries(any())).thenReturn(rows(SIZE + 1));
+            final Optional<SearchTotal> known = Optional.of(new SearchTotal(10, false));
+
+            final SearchPageResult result = service.handle(query(SortKey.SKU_ID,
+                    Optional.of(new Cursor("ABC-00000", UUID.randomUUID())), ProductQuery.TotalMode.EXACT, known));
+
+            assertEquals(known, result.total(), "Le total calculé à la première page doit être repris");
+            verify(counts, never()).count(anyString(), anyBoolean());
+        }
+
+        @Test
+        @DisplayName("Ne doit pas compter sans total demandé")
+        void shouldNotCountWithoutTotal() {
+            when(repository.searchSummaries(any())).thenReturn(rows(SIZE + 1));
+
+            final SearchPageResult result = service.handle(firstPage(ProductQuery.TotalMode.NONE));
+
+            assertTrue(result.total().isEmpty(), "Aucun total ne doit être renvoyé");
+            verify(counts, never()).count(anyString(), anyBoolean());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.api;
+
+import io.quarkus.test.InjectMock;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxDeadLetterRepository;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+
+@QuarkusTest
+@TestProfile(OutboxDeadLetterResourceTest.AdminTokenProfile.class)
+public class OutboxDeadLetterResourceTest {
+
+    private static final String ADMIN_TOKEN = "test-admin-token";
+
+    public static class AdminTokenProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("admin.token", ADMIN_TOKEN);
+        }
+    }
+
+    @InjectMock
+    OutboxDeadLetterRepository deadLetters;
+
+    @Test
+    public void testList_WithoutToken() {
+        // Sans jeton -> Doit retourner 401 Unauthorized
+        given()
+            .queryParam("aggregateType", "Product")
+        .when()
+            .get("/admin/outbox/dead-letters")
+        .then()
+            .statusCode(401);
+    }
+
+    @Test
+    public void testList_WrongToken() {
+        // Jeton erroné -> Doit retourner 401 Unauthorized
+        given()
+            .header("Authorization", "Bearer not-the-token")
+            .queryParam("aggregateType", "Product")
+        .when()
+            .get("/admin/outbox/dead-letters")
+        .then()
+            .statusCode(401);
+    }
+
+    @Test
+    public void testList_ByAggregateType() {
+        // Le type d'agrégat demandé est transmis au dépôt
+        Mockito.when(deadLetters.findByAggregateType(eq("Catalog"), anyInt(), anyInt()))
+               .thenReturn(Collections.emptyList());
+        Mockito.when(deadLetters.countByAggregateType("Catalog")).thenReturn(0L);
+
+        given()
+            .header("Authorization", "Bearer " + ADMIN_TOKEN)
+            .queryParam("aggregateType", "Catalog")
+        .when()
+            .get("/admin/outbox/dead-letters")
+        .then()
+            .statusCode(200);
+
+        Mockito.verify(deadLetters).findByAggregateType("Catalog", 0, 50);
+    }
+
+    @Test
+    public void testList_MissingAggregateType() {
+        // Sans type d'agrégat -> Doit retourner 400 Bad Request
+        given()
+            .header("Authorization", "Bearer " + ADMIN_TOKEN)
+        .when()
+            .get("/admin/outbox/dead-letters")
+        .then()
+            .statusCode(400);
+    }
+
+    @Test
+    public void testReplay_WithoutToken() {
+        // Le rejeu est protégé comme la consultation
+        given()
+            .contentType("application/json")
+            .body("{\"ids\":[1]}")
+        .when()
+            .post("/admin/outbox/dead-letters/replay")
+        .then()
+            .statusCode(401);
+
+        Mockito.verifyNoInteractions(deadLetters);
+    }
+}
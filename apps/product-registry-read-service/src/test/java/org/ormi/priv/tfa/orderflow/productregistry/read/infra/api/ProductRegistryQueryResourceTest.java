@@ -3,18 +3,29 @@ package org.ormi.priv.tfa.orderflow.productregistry.read.infra.api;
 import io.quarkus.test.InjectMock;
 import io.quarkus.test.junit.QuarkusTest;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductLifecycle;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewSearch.Cursor;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductSummaryRow;
+import org.ormi.priv.tfa.orderflow.productregistry.read.application.ProductQuery;
 import org.ormi.priv.tfa.orderflow.productregistry.read.application.ReadProductService;
+import org.ormi.priv.tfa.orderflow.productregistry.read.application.ReadProductService.SearchPageResult;
 import org.ormi.priv.tfa.orderflow.productregistry.read.application.ReadProductService.SearchPaginatedResult;
+import org.ormi.priv.tfa.orderflow.productregistry.read.application.ReadProductService.SearchTotal;
 
+import java.time.Instant;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyInt;
-import static org.mockito.ArgumentMatchers.anyString;
 
 @QuarkusTest
 public class ProductRegistryQueryResourceTest {
@@ -22,19 +33,140 @@ public class ProductRegistryQueryResourceTest {
     @InjectMock
     ReadProductService readProductService;
 
+    private static final UUID LAST_ID = UUID.randomUUID();
+
+    private static ProductSummaryRow row(UUID id, String skuId) {
+        return new ProductSummaryRow(id, skuId, "Produit", ProductLifecycle.ACTIVE, 0, Instant.now());
+    }
+
     @Test
     public void testSearchProducts_Valid() {
-        // Mock du service pour retourner un résultat vide mais valide
-        Mockito.when(readProductService.searchProducts(anyString(), anyInt(), anyInt()))
-               .thenReturn(new SearchPaginatedResult(Collections.emptyList(), 0));
+        // Sans curseur, la première page passe par la recherche par clé
+        Mockito.when(readProductService.handle(any(ProductQuery.SearchProductsQuery.class)))
+               .thenReturn(new SearchPageResult(Collections.emptyList(), Optional.empty(),
+                       Optional.of(new SearchTotal(0, false))));
 
         given()
             .queryParam("page", 0)
             .queryParam("size", 10)
         .when()
             .get("/products")
+        .then()
+            .statusCode(200)
+            .body("totalElements", equalTo(0))
+            .body("nextCursor", nullValue());
+    }
+
+    @Test
+    public void testSearchProducts_LegacyPage() {
+        // Une page au-delà de la première, sans curseur, garde la pagination par numéro (numérotée à partir de 1)
+        Mockito.when(readProductService.handle(any(ProductQuery.ListProductQuery.class)))
+               .thenReturn(new SearchPaginatedResult(Collections.emptyList(), 0));
+
+        given()
+            .queryParam("page", 2)
+            .queryParam("size", 10)
+        .when()
+            .get("/products")
+        .then()
+            .statusCode(200)
+            .body("page", equalTo(2));
+
+        Mockito.verify(readProductService).handle(new ProductQuery.ListProductQuery(2, 10));
+    }
+
+    @Test
+    public void testSearchProducts_NextCursor() {
+        // La première page donne un curseur qui reprend après sa dernière vue, avec le total déjà calculé
+        Mockito.when(readProductService.handle(any(ProductQuery.SearchProductsQuery.class)))
+               .thenReturn(new SearchPageResult(List.of(row(LAST_ID, "ABC-12345")),
+                       Optional.of(new Cursor("ABC-12345", LAST_ID)), Optional.of(new SearchTotal(42, false))));
+
+        final String cursor = given()
+            .queryParam("sku", "ABC")
+            .queryParam("size", 1)
+        .when()
+            .get("/products")
+        .then()
+            .statusCode(200)
+            .body("totalElements", equalTo(42))
+            .body("nextCursor", notNullValue())
+            .extract().path("nextCursor");
+
+        given()
+            .queryParam("sku", "ABC")
+            .queryParam("size", 1)
+            .queryParam("cursor", cursor)
+        .when()
+            .get("/products")
         .then()
             .statusCode(200);
+
+        final ArgumentCaptor<ProductQuery.SearchProductsQuery> query =
+                ArgumentCaptor.forClass(ProductQuery.SearchProductsQuery.class);
+        Mockito.verify(readProductService, Mockito.times(2)).handle(query.capture());
+        final ProductQuery.SearchProductsQuery next = query.getAllValues().get(1);
+        assertEquals(Optional.of(new Cursor("ABC-12345", LAST_ID)), next.after());
+        assertEquals(Optional.of(new SearchTotal(42, false)), next.knownTotal());
+        assertEquals("ABC", next.skuIdPattern());
+    }
+
+    @Test
+    public void testSearchProducts_CursorOfAnotherSearch() {
+        // Un curseur ne poursuit que la recherche pour laquelle il a été émis -> 400 Bad Request
+        Mockito.when(readProductService.handle(any(ProductQuery.SearchProductsQuery.class)))
+               .thenReturn(new SearchPageResult(List.of(row(LAST_ID, "ABC-12345")),
+                       Optional.of(new Cursor("ABC-12345", LAST_ID)), Optional.of(new SearchTotal(42, false))));
+
+        final String cursor = given()
+            .queryParam("sku", "ABC")
+            .queryParam("size", 1)
+        .when()
+            .get("/products")
+        .then()
+            .statusCode(200)
+            .extract().path("nextCursor");
+
+        given()
+            .queryParam("sku", "XYZ")
+            .queryParam("size", 1)
+            .queryParam("cursor", cursor)
+        .when()
+            .get("/products")
+        .then()
+            .statusCode(400);
+
+        given()
+            .queryParam("sku", "ABC")
+            .queryParam("sort", "name")
+            .queryParam("size", 1)
+            .queryParam("cursor", cursor)
+        .when()
+            .get("/products")
+        .then()
+            .statusCode(400);
+    }
+
+    @Test
+    public void testSearchProducts_InvalidCursor() {
+        // Test avec un curseur qui n'a pas été émis par le service -> Doit retourner 400 Bad Request
+        given()
+            .queryParam("cursor", "ceci-n-est-pas-un-curseur")
+        .when()
+            .get("/products")
+        .then()
+            .statusCode(400);
+    }
+
+    @Test
+    public void testSearchProducts_InvalidSort() {
+        // Test avec un tri inconnu -> Doit retourner 400 Bad Request
+        given()
+            .queryParam("sort", "price")
+        .when()
+            .get("/products")
+        .then()
+            .statusCode(400);
     }
 
     @Test
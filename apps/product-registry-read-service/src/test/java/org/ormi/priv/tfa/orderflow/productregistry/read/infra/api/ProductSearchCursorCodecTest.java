@@ -0,0 +1,84 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.api.ProductSearchCursorCodec.Token;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tests unitaires du jeton de continuation de la recherche de produits.
+ */
+@DisplayName("ProductSearchCursorCodec - Tests unitaires")
+class ProductSearchCursorCodecTest {
+
+    private final ProductSearchCursorCodec codec = new ProductSearchCursorCodec(new ObjectMapper());
+
+    private static String base64(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Nested
+    @DisplayName("Aller-retour")
+    class RoundTripTests {
+
+        @Test
+        @DisplayName("Doit décoder le jeton encodé")
+        void shouldRoundTrip() {
+            final Token token = new Token("ABC", "skuId", "asc", "exact", "ABC-12345", UUID.randomUUID(), 42L, false);
+
+            assertEquals(token, codec.decode(codec.encode(token)), "Le jeton décodé doit être celui encodé");
+        }
+
+        @Test
+        @DisplayName("Doit garder un total absent")
+        void shouldKeepMissingTotal() {
+            final Token token = new Token("", "name", "desc", "none", "Produit", UUID.randomUUID(), null, false);
+
+            assertNull(codec.decode(codec.encode(token)).total(), "Le total absent doit le rester");
+        }
+
+        @Test
+        @DisplayName("Doit produire un jeton utilisable dans une URL")
+        void shouldBeUrlSafe() {
+            final Token token = new Token("?&=/+", "skuId", "asc", "estimate", "ABC-12345", UUID.randomUUID(), 7L,
+                    true);
+
+            assertTrue(codec.encode(token).matches("[A-Za-z0-9_-]+"), "Le jeton ne doit contenir que du base64url");
+        }
+    }
+
+    @Nested
+    @DisplayName("Jetons invalides")
+    class InvalidTests {
+
+        @Test
+        @DisplayName("Doit refuser un jeton qui n'est pas du base64url")
+        void shouldRejectInvalidBase64() {
+            assertThrows(IllegalArgumentException.class, () -> codec.decode("pas un jeton !"),
+                    "Un jeton qui n'est pas du base64url doit être refusé");
+        }
+
+        @Test
+        @DisplayName("Doit refuser un jeton qui n'est pas du JSON")
+        void shouldRejectInvalidJson() {
+            assertThrows(IllegalArgumentException.class, () -> codec.decode(base64("pas du JSON")),
+                    "Un jeton qui n'est pas du JSON doit être refusé");
+        }
+
+        @Test
+        @DisplayName("Doit refuser un jeton incomplet")
+        void shouldRejectIncompleteToken() {
+            assertThrows(IllegalArgumentException.class,
+                    () -> codec.decode(base64("{\"sku\":\"ABC\",\"sort\":\"skuId\",\"order\":\"asc\"}")),
+                    "Un jeton sans position doit être refusé");
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.index;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests unitaires de l'index des SKU codés : pages dans l'ordre des SKU, recherche après un curseur, comptage et
+ * mise à jour selon la version des vues.
+ */
+@DisplayName("PackedSkuIndex - Tests unitaires")
+class PackedSkuIndexTest {
+
+    private static final UUID ABC_1 = UUID.randomUUID();
+    private static final UUID ABC_2 = UUID.randomUUID();
+    private static final UUID ABD_1 = UUID.randomUUID();
+    private static final UUID XAB_1 = UUID.randomUUID();
+    private static final UUID ZZZ_9 = UUID.randomUUID();
+
+    private PackedSkuIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PackedSkuIndex();
+        // Out of order on purpose
+        index.put(ZZZ_9, "ZZZ-99999", 1);
+        index.put(ABD_1, "ABD-10000", 1);
+        index.put(ABC_2, "ABC-20000", 1);
+        index.put(XAB_1, "XAB-10000", 1);
+        index.put(ABC_1, "ABC-10000", 1);
+    }
+
+    private static SkuMatcher matcher(String pattern) {
+        return SkuMatcher.of(pattern).orElseThrow();
+    }
+
+    @Nested
+    @DisplayName("Pages par numéro")
+    class SearchTests {
+
+        @Test
+        @DisplayName("Doit renvoyer les produits dans l'ordre des SKU")
+        void shouldReturnSkuOrder() {
+            assertEquals(List.of(ABC_1, ABC_2, ABD_1, XAB_1, ZZZ_9), index.search(matcher(""), 0, 10),
+                    "Les produits doivent suivre l'ordre des SKU");
+        }
+
+        @Test
+        @DisplayName("Doit paginer un intervalle")
+        void shouldPageRange() {
+            assertEquals(List.of(ABC_1, ABC_2), index.search(matcher(""), 0, 2), "Première page");
+            assertEquals(List.of(ABD_1, XAB_1), index.search(matcher(""), 2, 2), "Deuxième page");
+            assertEquals(List.of(ZZZ_9), index.search(matcher(""), 4, 2), "Dernière page incomplète");
+            assertEquals(List.of(), index.search(matcher(""), 6, 2), "Page au-delà de la fin");
+        }
+
+        @Test
+        @DisplayName("Doit résoudre un préfixe")
+        void shouldSearchPrefix() {
+            assertEquals(List.of(ABC_1, ABC_2), index.search(matcher("ABC-"), 0, 10),
+                    "Seuls les SKU du préfixe doivent être trouvés");
+            assertEquals(List.of(ABC_2), index.search(matcher("ABC-"), 1, 10), "Le décalage doit s'appliquer");
+        }
+
+        @Test
+        @DisplayName("Doit paginer un motif à plusieurs positions")
+        void shouldPageInnerPattern() {
+            assertEquals(List.of(ABC_1, ABC_2, ABD_1, XAB_1), index.search(matcher("AB"), 0, 10),
+                    "AB doit être trouvé en tête et en deuxième position");
+            assertEquals(List.of(ABD_1, XAB_1), index.search(matcher("AB"), 2, 10), "Le décalage doit s'appliquer");
+            assertEquals(List.of(ABC_1, ABD_1, XAB_1), index.search(matcher("10000"), 0, 10),
+                    "Les chiffres doivent être trouvés");
+        }
+    }
+
+    @Nested
+    @DisplayName("Pages après un curseur")
+    class SearchAfterTests {
+
+        @Test
+        @DisplayName("Doit reprendre après le SKU du curseur")
+        void shouldResumeAfterCursor() {
+            assertEquals(List.of(ABD_1, XAB_1), index.searchAfter(matcher(""), PackedSku.pack("ABC-20000"), false, 2),
+                    "La page doit commencer après le curseur");
+        }
+
+        @Test
+        @DisplayName("Doit reprendre avant le SKU du curseur en ordre inverse")
+        void shouldResumeBeforeCursorDescending() {
+            assertEquals(List.of(ABD_1, ABC_2), index.searchAfter(matcher(""), PackedSku.pack("XAB-10000"), true, 2),
+                    "La page doit commencer avant le curseur");
+        }
+
+        @Test
+        @DisplayName("Doit commencer au premier ou au dernier SKU sans curseur")
+        void shouldStartFromEnds() {
+            assertEquals(List.of(ABC_1), index.searchAfter(matcher(""), -1, false, 1), "Premier SKU");
+            assertEquals(List.of(ZZZ_9), index.searchAfter(matcher(""), PackedSku.MAX + 1, true, 1), "Dernier SKU");
+        }
+
+        @Test
+        @DisplayName("Doit filtrer un motif après le curseur")
+        void shouldFilterAfterCursor() {
+            assertEquals(List.of(XAB_1), index.searchAfter(matcher("AB"), PackedSku.pack("ABD-10000"), false, 10),
+                    "Seuls les SKU du motif après le curseur doivent être trouvés");
+        }
+    }
+
+    @Nested
+    @DisplayName("Comptage et mise à jour")
+    class UpdateTests {
+
+        @Test
+        @DisplayName("Doit compter les SKU d'un motif")
+        void shouldCount() {
+            assertEquals(5L, index.count(matcher("")), "Tous les SKU");
+            assertEquals(2L, index.count(matcher("ABC-")), "SKU du préfixe");
+            assertEquals(4L, index.count(matcher("AB")), "SKU du motif");
+            assertEquals(0L, index.count(matcher("QQ")), "Aucun SKU");
+        }
+
+        @Test
+        @DisplayName("Doit déplacer un produit dont le SKU change")
+        void shouldMoveChangedSku() {
+            index.put(ABC_1, "YYY-00000", 2);
+
+            assertEquals(5, index.size(), "Le produit ne doit pas être indexé deux fois");
+            assertEquals(List.of(ABC_2, ABD_1, XAB_1, ABC_1, ZZZ_9), index.search(matcher(""), 0, 10),
+                    "Le produit doit suivre son nouveau SKU");
+        }
+
+        @Test
+        @DisplayName("Doit ignorer une version antérieure")
+        void shouldIgnoreOlderVersion() {
+            index.put(ABC_1, "YYY-00000", 3);
+            index.put(ABC_1, "ABC-10000", 2);
+
+            assertEquals(0L, index.count(matcher("ABC-1")), "La version antérieure ne doit pas être indexée");
+            assertEquals(1L, index.count(matcher("YYY")), "La dernière version doit rester indexée");
+        }
+
+        @Test
+        @DisplayName("Doit garder les produits plus récents lors d'un rechargement")
+        void shouldKeepNewerOnReload() {
+            index.put(ABC_1, "YYY-00000", 2);
+            final PackedSkuIndex reloaded = new PackedSkuIndex();
+            reloaded.put(ABC_1, "ABC-10000", 1);
+            reloaded.put(ABC_2, "ABC-20000", 1);
+
+            reloaded.keepNewer(index);
+
+            assertEquals(1L, reloaded.count(matcher("YYY")), "La version plus récente doit être gardée");
+            assertEquals(0L, reloaded.count(matcher("ABC-1")), "La version rechargée plus ancienne doit être remplacée");
+            assertEquals(5, reloaded.size(), "Les produits absents du rechargement doivent être ajoutés");
+        }
+
+        @Test
+        @DisplayName("Doit agrandir l'index au-delà de sa capacité initiale")
+        void shouldGrow() {
+            final PackedSkuIndex large = new PackedSkuIndex();
+            for (int i = 0; i < 3000; i++) {
+                large.put(UUID.randomUUID(), String.format("ABC-%05d", 2999 - i), 1);
+            }
+
+            assertEquals(3000, large.size(), "Tous les produits doivent être indexés");
+            assertEquals(1000L, large.count(matcher("ABC-01")), "Le préfixe doit couvrir mille SKU");
+        }
+    }
+}
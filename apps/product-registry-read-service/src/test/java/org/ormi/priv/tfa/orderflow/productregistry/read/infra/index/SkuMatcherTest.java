@@ -0,0 +1,131 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.index;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests unitaires du codage des SKU dans un entier et de la recherche d'une sous-chaîne dans les SKU codés.
+ * Les correspondances sont comparées à {@link String#contains} sur un échantillon de SKU.
+ */
+@DisplayName("PackedSku et SkuMatcher - Tests unitaires")
+class SkuMatcherTest {
+
+    private static final List<String> PATTERNS = List.of(
+            "A", "Z", "AB", "BC", "ABC", "XYZ", "C-", "-", "-0", "-12", "C-1", "BC-12", "ABC-1", "ABC-12345",
+            "0", "9", "12", "345", "2345", "00000", "99999", "B", "Q-9", "ZZZ-99999");
+
+    private static List<String> sample() {
+        final Random random = new Random(42);
+        final List<String> skus = new ArrayList<>(List.of("AAA-00000", "ZZZ-99999", "ABC-12345", "XYZ-00123",
+                "BCA-34512", "CAB-99999"));
+        for (int i = 0; i < 2000; i++) {
+            // Few letters so that patterns of letters match often
+            skus.add(String.format("%c%c%c-%05d", 'A' + random.nextInt(4), 'A' + random.nextInt(4),
+                    'A' + random.nextInt(4), random.nextInt(100_000)));
+        }
+        return skus;
+    }
+
+    @Nested
+    @DisplayName("Codage des SKU")
+    class PackTests {
+
+        @Test
+        @DisplayName("Doit décoder le SKU codé")
+        void shouldRoundTrip() {
+            for (String sku : sample()) {
+                assertEquals(sku, PackedSku.unpack(PackedSku.pack(sku)), "Le SKU décodé doit être celui codé");
+            }
+        }
+
+        @Test
+        @DisplayName("Doit coder les bornes du format")
+        void shouldPackBounds() {
+            assertEquals(0, PackedSku.pack("AAA-00000"), "Le premier SKU doit valoir 0");
+            assertEquals(PackedSku.MAX, PackedSku.pack("ZZZ-99999"), "Le dernier SKU doit valoir le maximum");
+        }
+
+        @Test
+        @DisplayName("Doit conserver l'ordre des SKU")
+        void shouldKeepSkuOrder() {
+            final List<String> skus = sample();
+            for (int i = 1; i < skus.size(); i++) {
+                final String a = skus.get(i - 1);
+                final String b = skus.get(i);
+                assertEquals(Integer.signum(a.compareTo(b)),
+                        Integer.signum(Integer.compare(PackedSku.pack(a), PackedSku.pack(b))),
+                        "L'ordre des codes doit être celui des SKU " + a + " et " + b);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Recherche d'un motif")
+    class MatchTests {
+
+        @Test
+        @DisplayName("Doit trouver les mêmes SKU qu'une recherche de sous-chaîne")
+        void shouldMatchLikeContains() {
+            final List<String> skus = sample();
+            for (String pattern : PATTERNS) {
+                final SkuMatcher matcher = SkuMatcher.of(pattern).orElseThrow();
+                for (String sku : skus) {
+                    assertEquals(sku.contains(pattern), matcher.matches(PackedSku.pack(sku)),
+                            "Le motif " + pattern + " sur " + sku);
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("Doit tout trouver pour un motif vide")
+        void shouldMatchAllForEmptyPattern() {
+            final SkuMatcher matcher = SkuMatcher.of("").orElseThrow();
+
+            assertTrue(matcher.isRange(), "Le motif vide doit être un intervalle");
+            assertEquals(0, matcher.from(), "L'intervalle doit commencer au premier SKU");
+            assertEquals(PackedSku.MAX + 1, matcher.to(), "L'intervalle doit finir après le dernier SKU");
+        }
+
+        @Test
+        @DisplayName("Doit résoudre un préfixe en intervalle")
+        void shouldResolvePrefixToRange() {
+            final SkuMatcher matcher = SkuMatcher.of("ABC-1").orElseThrow();
+
+            assertTrue(matcher.isRange(), "Un motif qui ne peut être qu'en tête doit être un intervalle");
+            assertEquals(PackedSku.pack("ABC-10000"), matcher.from(), "L'intervalle doit commencer au préfixe");
+            assertEquals(PackedSku.pack("ABC-19999") + 1, matcher.to(), "L'intervalle doit finir après le préfixe");
+        }
+
+        @Test
+        @DisplayName("Ne doit pas résoudre en intervalle un motif possible à plusieurs positions")
+        void shouldNotResolveInnerPatternToRange() {
+            assertFalse(SkuMatcher.of("AB").orElseThrow().isRange(), "AB peut aussi être en deuxième position");
+            assertFalse(SkuMatcher.of("12").orElseThrow().isRange(), "Des chiffres peuvent être à plusieurs positions");
+        }
+
+        @Test
+        @DisplayName("Ne doit rien trouver pour un motif impossible")
+        void shouldMatchNothingForImpossiblePattern() {
+            for (String pattern : List.of("abc", "A1", "1A", "ABCD", "ABC-123456", "--")) {
+                final SkuMatcher matcher = SkuMatcher.of(pattern).orElseThrow();
+                assertTrue(matcher.isRange(), "Un motif impossible doit être un intervalle vide : " + pattern);
+                assertEquals(matcher.from(), matcher.to(), "L'intervalle doit être vide : " + pattern);
+            }
+        }
+
+        @Test
+        @DisplayName("Doit laisser les jokers LIKE à la base")
+        void shouldLeaveWildcardsToDatabase() {
+            assertTrue(SkuMatcher.of("A%").isEmpty(), "Le joker % doit être laissé à la base");
+            assertTrue(SkuMatcher.of("A_C").isEmpty(), "Le joker _ doit être laissé à la base");
+            assertTrue(SkuMatcher.of("A\\B").isEmpty(), "L'échappement doit être laissé à la base");
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.mmap;
+
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ClientProxy;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductId;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductLifecycle;
+import org.ormi.priv.tfa.orderflow.kernel.product.SkuId;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewRepository;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.index.ProductSkuIndex;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+/**
+ * Dépôt `mmap` : ni l'index des SKU ni la table `product_view` ne sont lus. La base de test est injoignable, tout
+ * accès JDBC des recherches ferait échouer les requêtes.
+ */
+@QuarkusTest
+@TestProfile(MappedStoreModeTest.MappedStoreProfile.class)
+public class MappedStoreModeTest {
+
+    public static class MappedStoreProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "product-view.store", "mmap",
+                    "product-view.mmap.path",
+                    Path.of(System.getProperty("java.io.tmpdir"), "product-views-" + UUID.randomUUID()).toString(),
+                    "product-view.mmap.segment-size", "16M",
+                    "quarkus.datasource.jdbc.url", "jdbc:postgresql://127.0.0.1:1/unreachable",
+                    "quarkus.datasource.jdbc.acquisition-timeout", "1s");
+        }
+    }
+
+    @Inject
+    ProductViewRepository repository;
+
+    private static ProductView view(String skuId) {
+        final Instant now = Instant.now();
+        return ProductView.Builder()
+                .id(new ProductId(UUID.randomUUID()))
+                .version(1L)
+                .skuId(new SkuId(skuId))
+                .name("Produit")
+                .description("Description")
+                .status(ProductLifecycle.ACTIVE)
+                .catalogs(List.of())
+                .events(List.of())
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+
+    @Test
+    public void testSkuIndex_NotBuilt() {
+        // L'index des SKU, chargé depuis la table, n'existe pas avec le dépôt mmap
+        assertFalse(Arc.container().select(ProductSkuIndex.class).isResolvable());
+        assertInstanceOf(MappedProductViewRepository.class, ClientProxy.unwrap(repository));
+    }
+
+    @Test
+    public void testSearch_WithoutDatabase() {
+        // Recherche et total servis par les fichiers du dépôt, sans connexion à la base
+        repository.save(view("MMP-10000"));
+        repository.save(view("MMP-20000"));
+        repository.save(view("XYZ-10000"));
+
+        assertEquals(2, repository.searchPaginatedViewsOrderBySkuId("MMP", 1, 10).size());
+        assertEquals(2L, repository.countPaginatedViewsBySkuIdPattern("MMP"));
+
+        given()
+            .queryParam("sku", "MMP")
+            .queryParam("size", 10)
+        .when()
+            .get("/products")
+        .then()
+            .statusCode(200)
+            .body("products.size()", equalTo(2));
+    }
+}
@@ -5,4 +5,6 @@ export interface PaginatedProductList {
     page: number;
     pageSize: number;
     totalElements: number;
+    totalEstimated?: boolean;
+    nextCursor?: string | null;
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package org.ormi.priv.tfa.orderflow.contracts.productregistry.v1.read;
+
+import java.util.List;
+
+import org.ormi.priv.tfa.orderflow.contracts.productregistry.v1.read.ProductViewDto.ProductViewDtoEvent;
+
+public record PaginatedProductEventListDto(
+    List<ProductViewDtoEvent> events,
+    int page,
+    int pageSize,
+    long totalElements
+) {
+}
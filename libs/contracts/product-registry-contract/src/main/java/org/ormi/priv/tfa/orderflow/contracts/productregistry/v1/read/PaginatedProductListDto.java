@@ -6,6 +6,8 @@ public record PaginatedProductListDto(
     List<ProductSummaryDto> products,
     int page,
     int pageSize,
-    long totalElements
+    Long totalElements,
+    boolean totalEstimated,
+    String nextCursor
 ) {
 }
@@ -0,0 +1,133 @@
+package org.ormi.priv.tfa.orderflow.cqrs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ormi.priv.tfa.orderflow.cqrs.Projector.ProjectionResult;
+
+/**
+ * Compares the loop fold of {@link Projector#projectAll} with the former stream reduction allocating one accumulator
+ * per event. The gc profiler (see the jmh block of the build) reports the allocation rate per operation.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectorBenchmark {
+
+    private static final ProjectionResult<Long> STALE = ProjectionResult.noOp("Stale");
+
+    @Param({ "10", "1000" })
+    public int events;
+
+    /**
+     * Share of the events already applied to the initial state, skipped by the fold.
+     */
+    @Param({ "0", "50" })
+    public int stalePercent;
+
+    private final Projector<Long, EventEnvelope<CountedEvent>> projector = new CountingProjector();
+    private List<EventEnvelope<CountedEvent>> envelopes;
+    private long initialVersion;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final CountedEvent event = new CountedEvent(UUID.randomUUID());
+        envelopes = new ArrayList<>(events);
+        for (long i = 1; i <= events; i++) {
+            envelopes.add(EventEnvelope.with(event, i));
+        }
+        initialVersion = events * stalePercent / 100L;
+    }
+
+    @Benchmark
+    public ProjectionResult<Long> streamReduce() {
+        return reduce(Optional.of(0L), envelopes, Optional.of(initialVersion));
+    }
+
+    @Benchmark
+    public ProjectionResult<Long> loopFold() {
+        return projector.projectAll(Optional.of(0L), envelopes, initialVersion);
+    }
+
+    /**
+     * The stream reduction projectAll ran just before the loop fold, allocating one accumulator per event. The
+     * original reduction, seeded with {@code projected(current)} and chained with {@code flatMap}, is not measured:
+     * it stopped projecting at the first no-op, so it would not do the same work as the fold.
+     */
+    private ProjectionResult<Long> reduce(Optional<Long> current, Iterable<EventEnvelope<CountedEvent>> events,
+            Optional<Long> initialVersion) {
+        final Acc<Long> init = new Acc<>(ProjectionResult.noOp("No event projected"), current.orElse(null),
+                initialVersion.orElse(0L));
+        return StreamSupport.stream(events.spliterator(), false)
+                .reduce(
+                        init,
+                        (acc, ev) -> {
+                            if (acc.result().isFailure())
+                                return acc;
+                            if (ev.sequence() <= acc.lastSequence())
+                                return acc;
+                            final ProjectionResult<Long> next = projector.project(Optional.ofNullable(acc.state()), ev);
+                            if (next.isNoOp())
+                                return new Acc<>(acc.result(), acc.state(), ev.sequence());
+                            return new Acc<>(next, next.isSuccess() ? next.getProjection() : acc.state(),
+                                    ev.sequence());
+                        },
+                        (a1, a2) -> {
+                            throw new UnsupportedOperationException();
+                        })
+                .result();
+    }
+
+    private record Acc<S>(ProjectionResult<S> result, S state, long lastSequence) {
+    }
+
+    /**
+     * Counts the events, one in ten being a no-op.
+     */
+    private static final class CountingProjector implements Projector<Long, EventEnvelope<CountedEvent>> {
+        @Override
+        public ProjectionResult<Long> project(Optional<Long> current, EventEnvelope<CountedEvent> ev) {
+            if (ev.sequenceValue() % 10 == 0) {
+                return STALE;
+            }
+            return ProjectionResult.projected(current.orElse(0L) + 1);
+        }
+    }
+
+    private record CountedEvent(UUID aggregateId) implements DomainEvent {
+        @Override
+        public String aggregateType() {
+            return "Counter";
+        }
+
+        @Override
+        public int version() {
+            return 1;
+        }
+
+        @Override
+        public DomainEventPayload payload() {
+            return new DomainEventPayload.Empty();
+        }
+    }
+}
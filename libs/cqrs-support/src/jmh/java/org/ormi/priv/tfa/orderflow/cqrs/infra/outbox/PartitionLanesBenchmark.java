@@ -0,0 +1,96 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.outbox;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the throughput of the platform and virtual lanes of the outbox relay on a simulated projection blocked on I/O.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PartitionLanesBenchmark {
+
+    private static final int PLATFORM_LANES = Runtime.getRuntime().availableProcessors();
+    private static final int MESSAGES = 2_000;
+    private static final int AGGREGATES = 10_000;
+
+    @Param({ "platform", "virtual" })
+    public String mode;
+
+    @Param({ "1024" })
+    public int virtualLanes;
+
+    /**
+     * Simulated time spent waiting on the database for one projection.
+     */
+    @Param({ "1000" })
+    public long ioMicros;
+
+    private PartitionLanes lanes;
+    private UUID[] aggregates;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        lanes = PartitionLanes.Mode.of(mode) == PartitionLanes.Mode.VIRTUAL
+                ? PartitionLanes.virtual(virtualLanes, MESSAGES)
+                : PartitionLanes.platform(PLATFORM_LANES, MESSAGES);
+        aggregates = IntStream.range(0, AGGREGATES)
+                .mapToObj(i -> UUID.randomUUID())
+                .toArray(UUID[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        lanes.shutdownNow();
+    }
+
+    /**
+     * Dispatches one poll worth of messages and waits for all of them to be projected.
+     */
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void dispatchBatch() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(MESSAGES);
+        final long ioNanos = TimeUnit.MICROSECONDS.toNanos(ioMicros);
+        for (int i = 0; i < MESSAGES; i++) {
+            final int lane = lanes.laneOf(aggregates[i % AGGREGATES]);
+            final Runnable task = () -> {
+                LockSupport.parkNanos(ioNanos);
+                done.countDown();
+            };
+            while (true) {
+                try {
+                    lanes.submit(lane, task);
+                    break;
+                } catch (RejectedExecutionException e) {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+        done.await();
+    }
+}
@@ -30,6 +30,12 @@ public class EventEnvelope<E extends DomainEvent> {
     public Long sequence() {
         return sequence;
     }
+    /**
+     * Gets the sequence without boxing, for folds over many events.
+     */
+    public long sequenceValue() {
+        return sequence;
+    }
     public Instant timestamp() {
         return timestamp;
     }
@@ -2,7 +2,6 @@ package org.ormi.priv.tfa.orderflow.cqrs;
 
 import java.util.Optional;
 import java.util.function.Function;
-import java.util.stream.StreamSupport;
 
 /**
  * Projector interface for projecting events onto a state.
@@ -36,51 +35,135 @@ public interface Projector<S, E extends EventEnvelope<? extends DomainEvent>> {
      * @param current the current state
      * @param events  the events to project
      * @param initialVersion the initial version
-     * @return the projected state
+     * @return the projected state, the first failure, or a no-op if no event changed the state
      */
     default ProjectionResult<S> projectAll(Optional<S> current, Iterable<E> events, Long initialVersion) {
-        return projectAll(current, events, Optional.of(initialVersion));
+        return fold(new ProjectionAccumulator<>(current, initialVersion), events);
     }
 
     /**
      * Projects a list of events onto the current state.
      * 
+     * Events up to the initial version are skipped, no-op events keep the current state.
+     * 
+     * When no event changes the state, every one of them being stale or a no-op, the result is a no-op and not a
+     * success holding {@code current} as the original reduction returned: a caller saving the state on success
+     * does not write it again for redelivered events.
+     * 
      * @param current the current state
      * @param events  the events to project
      * @param initialVersion the initial version
-     * @return the projected state
+     * @return the projected state, the first failure, or a no-op if no event changed the state
      */
     default ProjectionResult<S> projectAll(Optional<S> current, Iterable<E> events,
             Optional<Long> initialVersion) {
-        Acc<S> init = new Acc<>(ProjectionResult.projected(current.orElse(null)),
-                initialVersion.orElse(0L));
-
-        return StreamSupport.stream(events.spliterator(), false)
-                .reduce(
-                        init,
-                        (acc, ev) -> {
-                            if (acc.result().isFailure())
-                                return acc;
-                            if (ev.sequence() <= acc.lastSequence())
-                                return acc;
-
-                            ProjectionResult<S> next = acc.result().flatMap(state -> project(Optional.ofNullable(state), ev));
-
-                            return new Acc<>(next, ev.sequence());
-                        },
-                        (a1, a2) -> {
-                            throw new UnsupportedOperationException(
-                                    "Parallel stream not supported for sequential projections");
-                        })
-                .result();
+        return fold(new ProjectionAccumulator<>(current, initialVersion.orElse(0L)), events);
+    }
+
+    /**
+     * Folds events into the given accumulator, up to the first failure.
+     *
+     * @param acc    the accumulator, left with the last state and result
+     * @param events the events to project
+     * @return the result of the fold
+     */
+    default ProjectionResult<S> fold(ProjectionAccumulator<S> acc, Iterable<E> events) {
+        for (E ev : events) {
+            if (!acc.accept(this, ev)) {
+                break;
+            }
+        }
+        return acc.result();
     }
 
     /**
      * Accumulator for projection results.
+     *
+     * @deprecated no longer used by {@link #projectAll}, which folds into a {@link ProjectionAccumulator} instead
+     *             of allocating one accumulator per event
      */
+    @Deprecated(forRemoval = true)
     record Acc<S>(ProjectionResult<S> result, long lastSequence) {
     }
 
+    /**
+     * Mutable accumulator of a sequential projection, used instead of one immutable accumulator per event.
+     *
+     * @param <S> the type of the projected state
+     */
+    public static final class ProjectionAccumulator<S> {
+        private Optional<S> current;
+        private long lastSequence;
+        private ProjectionResult<S> result = ProjectionResult.noEventProjected();
+
+        /**
+         * Creates an accumulator.
+         *
+         * @param current      the current state
+         * @param lastSequence the sequence of the last event applied to the current state
+         */
+        public ProjectionAccumulator(Optional<S> current, long lastSequence) {
+            this.current = current;
+            this.lastSequence = lastSequence;
+        }
+
+        /**
+         * Projects an event, unless it is stale.
+         *
+         * @param projector the projector
+         * @param ev        the event to project
+         * @return false once the projection failed
+         */
+        public <E extends EventEnvelope<? extends DomainEvent>> boolean accept(Projector<S, E> projector, E ev) {
+            if (result.isFailure()) {
+                return false;
+            }
+            final long sequence = ev.sequenceValue();
+            if (sequence <= lastSequence) {
+                return true;
+            }
+            final ProjectionResult<S> next = projector.project(current, ev);
+            lastSequence = sequence;
+            if (next.isNoOp()) {
+                // Keeps the state and the result of the previous events
+                return true;
+            }
+            result = next;
+            if (next.isSuccess()) {
+                current = Optional.of(next.getProjection());
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Gets the last success, the first failure, or a no-op if no event changed the state.
+         *
+         * @return the result
+         */
+        public ProjectionResult<S> result() {
+            return result;
+        }
+
+        /**
+         * Gets the current state.
+         *
+         * @return the current state
+         */
+        public Optional<S> current() {
+            return current;
+        }
+
+        /**
+         * Gets the sequence of the last event seen.
+         *
+         * @return the last sequence
+         */
+        public long lastSequence() {
+            return lastSequence;
+        }
+    }
+
     /**
      * Projection result. A monadic type that carries the result of a projection
      * either
@@ -89,6 +172,12 @@ public interface Projector<S, E extends EventEnvelope<? extends DomainEvent>> {
      * @param <S> the type of the projected state
      */
     public static class ProjectionResult<S> {
+        /**
+         * Shared result of a fold that changed nothing, results without a state are immutable.
+         */
+        private static final ProjectionResult<?> NO_EVENT_PROJECTED = new ProjectionResult<>(null, null,
+                "No event projected");
+
         /**
          * The projected state.
          */
@@ -147,6 +236,17 @@ public interface Projector<S, E extends EventEnvelope<? extends DomainEvent>> {
             return new ProjectionResult<>(null, null, noopReason);
         }
 
+        /**
+         * Gets the shared no-op result of a fold that changed nothing.
+         *
+         * @param <S> the type of the projected state
+         * @return a no-op projection result
+         */
+        @SuppressWarnings("unchecked")
+        public static <S> ProjectionResult<S> noEventProjected() {
+            return (ProjectionResult<S>) NO_EVENT_PROJECTED;
+        }
+
         /**
          * Gets the projected state.
          *
@@ -207,12 +307,12 @@ public interface Projector<S, E extends EventEnvelope<? extends DomainEvent>> {
          * Maps the projected state to a new value.
          *
          * @param f the mapping function
-         * @return a new projection result with the mapped value, or the original error
-         *         if failed
+         * @return a new projection result with the mapped value, or this result if it
+         *         has no state
          */
         public ProjectionResult<S> map(Function<S, S> f) {
             return isSuccess() ? projected(f.apply(projectedState))
-                    : failed(err);
+                    : this;
         }
 
         /**
@@ -220,12 +320,14 @@ public interface Projector<S, E extends EventEnvelope<? extends DomainEvent>> {
          *
          * @param <T> the type of the new projected state
          * @param f   the mapping function
-         * @return a new projection result with the mapped value, or the original error
-         *         if failed
+         * @return a new projection result with the mapped value, or this result if it
+         *         has no state
          */
+        @SuppressWarnings("unchecked")
         public <T> ProjectionResult<T> flatMap(Function<S, ProjectionResult<T>> f) {
+            // Failures and no-ops carry no state, so they are reused as is
             return isSuccess() ? f.apply(projectedState)
-                    : failed(err);
+                    : (ProjectionResult<T>) this;
         }
     }
 }
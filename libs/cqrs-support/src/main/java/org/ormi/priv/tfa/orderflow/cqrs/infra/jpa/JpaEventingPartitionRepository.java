@@ -0,0 +1,49 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.jpa;
+
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventingPartitionRepository;
+
+import io.quarkus.arc.DefaultBean;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+
+/**
+ * Partition maintenance through the eventing.create_id_partitions and eventing.drop_processed_outbox_partitions functions.
+ */
+
+@ApplicationScoped
+@DefaultBean
+public class JpaEventingPartitionRepository implements EventingPartitionRepository {
+	// Must match the range size used by the platform-006 changeset
+	private static final long PARTITION_SIZE = 1_000_000L;
+	private static final String SQL_CREATE_QUERY = "SELECT eventing.create_id_partitions(:table, :size, :ahead)";
+	private static final String SQL_DROP_QUERY = "SELECT eventing.drop_processed_outbox_partitions()";
+
+	private final EntityManager em;
+
+	@Inject
+	public JpaEventingPartitionRepository(EntityManager em) {
+		this.em = em;
+	}
+
+	@Transactional
+	@Override
+	public int createFuturePartitions(int ahead) {
+		return createFuturePartitions("event_log", ahead) + createFuturePartitions("outbox", ahead);
+	}
+
+	@Transactional
+	@Override
+	public boolean dropProcessedOutboxPartition() {
+		return ((Number) em.createNativeQuery(SQL_DROP_QUERY).getSingleResult()).intValue() > 0;
+	}
+
+	private int createFuturePartitions(String table, int ahead) {
+		return ((Number) em.createNativeQuery(SQL_CREATE_QUERY)
+				.setParameter("table", table)
+				.setParameter("size", PARTITION_SIZE)
+				.setParameter("ahead", ahead)
+				.getSingleResult()).intValue();
+	}
+}
@@ -0,0 +1,60 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.jpa;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxDeadLetterRepository;
+
+import io.quarkus.arc.DefaultBean;
+import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import io.quarkus.panache.common.Page;
+import io.quarkus.panache.common.Sort;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
+
+/**
+ * Dead letter repository backed by the eventing.outbox_dead_letter table.
+ */
+
+@ApplicationScoped
+@DefaultBean
+public class JpaOutboxDeadLetterRepository implements PanacheRepository<OutboxDeadLetterEntity>, OutboxDeadLetterRepository {
+	private static final String SQL_REPLAY_QUERY = JpaOutboxRepository.loadSQLQueryFromFile("/db/queries/replayDeadLettersById.sql");
+
+	@Override
+	public List<OutboxDeadLetterEntity> findByAggregateType(String aggregateType, int page, int size) {
+		return find("aggregateType", Sort.by("id"), aggregateType)
+				.page(Page.of(page, size))
+				.list();
+	}
+
+	@Override
+	public long countByAggregateType(String aggregateType) {
+		return count("aggregateType", aggregateType);
+	}
+
+	@Transactional
+	@Override
+	public int replay(Collection<Long> ids) {
+		if (ids.isEmpty()) {
+			return 0;
+		}
+		return getEntityManager().unwrap(Session.class).doReturningWork(conn -> {
+			try (PreparedStatement ps = conn.prepareStatement(SQL_REPLAY_QUERY)) {
+				ps.setArray(1, conn.createArrayOf("bigint", ids.toArray()));
+				return ps.executeUpdate();
+			}
+		});
+	}
+
+	@Transactional
+	@Override
+	public int discard(Collection<Long> ids) {
+		if (ids.isEmpty()) {
+			return 0;
+		}
+		return (int) delete("id IN ?1", ids);
+	}
+}
@@ -0,0 +1,128 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.jpa;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxLeaseRepository;
+
+import io.quarkus.arc.DefaultBean;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+
+/**
+ * Lease repository backed by the eventing.outbox_consumer and eventing.outbox_partition_lease tables.
+ */
+
+@ApplicationScoped
+@DefaultBean
+public class JpaOutboxLeaseRepository implements OutboxLeaseRepository {
+	private static final String SQL_CLAIM_QUERY = JpaOutboxRepository.loadSQLQueryFromFile("/db/queries/claimOutboxPartitions.sql");
+	private static final String SQL_RENEW_QUERY = JpaOutboxRepository.loadSQLQueryFromFile("/db/queries/renewOutboxPartitions.sql");
+	private static final String SQL_INIT_PARTITIONS_QUERY = "INSERT INTO eventing.outbox_partition_lease (consumer_group, lease_partition) "
+			+ "SELECT :consumerGroup, p FROM generate_series(0, :partitions - 1) p ON CONFLICT DO NOTHING";
+	private static final String SQL_HEARTBEAT_QUERY = "INSERT INTO eventing.outbox_consumer (consumer_group, instance_id, heartbeat_at) "
+			+ "VALUES (:consumerGroup, :instanceId, CURRENT_TIMESTAMP) "
+			+ "ON CONFLICT (consumer_group, instance_id) DO UPDATE SET heartbeat_at = EXCLUDED.heartbeat_at";
+	private static final String SQL_EVICT_QUERY = "DELETE FROM eventing.outbox_consumer WHERE consumer_group = :consumerGroup "
+			+ "AND heartbeat_at < CURRENT_TIMESTAMP - :ttlMs * INTERVAL '1 millisecond'";
+	private static final String SQL_COUNT_QUERY = "SELECT count(*) FROM eventing.outbox_consumer WHERE consumer_group = :consumerGroup";
+	private static final String SQL_RELEASE_QUERY = "UPDATE eventing.outbox_partition_lease SET owner = NULL, lease_until = NULL "
+			+ "WHERE consumer_group = :consumerGroup AND owner = :instanceId AND lease_partition IN (:partitions)";
+	private static final String SQL_RELEASE_ALL_QUERY = "UPDATE eventing.outbox_partition_lease SET owner = NULL, lease_until = NULL "
+			+ "WHERE consumer_group = :consumerGroup AND owner = :instanceId";
+	private static final String SQL_LEAVE_QUERY = "DELETE FROM eventing.outbox_consumer WHERE consumer_group = :consumerGroup "
+			+ "AND instance_id = :instanceId";
+
+	private final EntityManager em;
+
+	@Inject
+	public JpaOutboxLeaseRepository(EntityManager em) {
+		this.em = em;
+	}
+
+	@Transactional
+	@Override
+	public void seed(String consumerGroup) {
+		em.createNativeQuery(SQL_INIT_PARTITIONS_QUERY)
+				.setParameter("consumerGroup", consumerGroup)
+				.setParameter("partitions", PARTITIONS)
+				.executeUpdate();
+	}
+
+	@Transactional
+	@Override
+	public int heartbeat(String consumerGroup, String instanceId, Duration ttl) {
+		em.createNativeQuery(SQL_HEARTBEAT_QUERY)
+				.setParameter("consumerGroup", consumerGroup)
+				.setParameter("instanceId", instanceId)
+				.executeUpdate();
+		em.createNativeQuery(SQL_EVICT_QUERY)
+				.setParameter("consumerGroup", consumerGroup)
+				.setParameter("ttlMs", ttl.toMillis())
+				.executeUpdate();
+		return ((Number) em.createNativeQuery(SQL_COUNT_QUERY)
+				.setParameter("consumerGroup", consumerGroup)
+				.getSingleResult()).intValue();
+	}
+
+	@Transactional
+	@Override
+	public Set<Integer> renew(String consumerGroup, String instanceId, Duration ttl) {
+		return toPartitions(em.createNativeQuery(SQL_RENEW_QUERY)
+				.setParameter("consumerGroup", consumerGroup)
+				.setParameter("instanceId", instanceId)
+				.setParameter("ttlMs", ttl.toMillis())
+				.getResultList());
+	}
+
+	@Transactional
+	@Override
+	public Set<Integer> claim(String consumerGroup, String instanceId, int max, Duration ttl) {
+		if (max <= 0) {
+			return Set.of();
+		}
+		return toPartitions(em.createNativeQuery(SQL_CLAIM_QUERY)
+				.setParameter("consumerGroup", consumerGroup)
+				.setParameter("instanceId", instanceId)
+				.setParameter("max", max)
+				.setParameter("ttlMs", ttl.toMillis())
+				.getResultList());
+	}
+
+	@Transactional
+	@Override
+	public void release(String consumerGroup, String instanceId, Collection<Integer> partitions) {
+		if (partitions.isEmpty()) {
+			return;
+		}
+		em.createNativeQuery(SQL_RELEASE_QUERY)
+				.setParameter("consumerGroup", consumerGroup)
+				.setParameter("instanceId", instanceId)
+				.setParameter("partitions", partitions)
+				.executeUpdate();
+	}
+
+	@Transactional
+	@Override
+	public void leave(String consumerGroup, String instanceId) {
+		em.createNativeQuery(SQL_RELEASE_ALL_QUERY)
+				.setParameter("consumerGroup", consumerGroup)
+				.setParameter("instanceId", instanceId)
+				.executeUpdate();
+		em.createNativeQuery(SQL_LEAVE_QUERY)
+				.setParameter("consumerGroup", consumerGroup)
+				.setParameter("instanceId", instanceId)
+				.executeUpdate();
+	}
+
+	private static Set<Integer> toPartitions(List<?> rows) {
+		final Set<Integer> partitions = new HashSet<>();
+		rows.forEach(row -> partitions.add(((Number) row).intValue()));
+		return partitions;
+	}
+}
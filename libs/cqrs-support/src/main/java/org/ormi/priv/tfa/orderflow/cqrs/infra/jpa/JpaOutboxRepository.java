@@ -4,9 +4,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
+import org.hibernate.Session;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxChannel;
 import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxRepository;
 
 import io.quarkus.arc.DefaultBean;
@@ -22,22 +31,44 @@ import jakarta.transaction.Transactional;
 @DefaultBean
 public class JpaOutboxRepository implements PanacheRepository<OutboxEntity>, OutboxRepository {
 	private static final int DEFAULT_DELAY_MS = 5000;
-	private static final String SQL_FETCH_QUERY = loadSQLQueryFromFile("/db/queries/findReadyByAggregateTypeOrderByAggregateVersion.sql");
+	private static final String SQL_FETCH_QUERY = loadSQLQueryFromFile("/db/queries/findReadyByAggregateTypesOrderByAggregateVersion.sql");
+	private static final String SQL_DELETE_ALL_QUERY = loadSQLQueryFromFile("/db/queries/deleteAllById.sql");
+	private static final String SQL_MARK_ALL_FAILED_QUERY = loadSQLQueryFromFile("/db/queries/markAllFailedById.sql");
+	private static final String SQL_BACKLOG_QUERY = loadSQLQueryFromFile("/db/queries/backlogByAggregateType.sql");
+	private static final String SQL_NOTIFY_QUERY = "SELECT 1 FROM pg_notify(:channel, :payload)";
 
 	@Override
 	public void publish(OutboxEntity entity) {
 		persist(entity);
+		// NOTIFY is transactional: listeners are only woken up once the message is committed
+		final EventLogEntity sourceEvent = entity.getSourceEvent();
+		getEntityManager()
+				.createNativeQuery(SQL_NOTIFY_QUERY)
+				.setParameter("channel", OutboxChannel.of(sourceEvent.getAggregateType()))
+				.setParameter("payload", sourceEvent.getAggregateId().toString())
+				.getResultList();
 	}
 
 	@Override
 	@SuppressWarnings("unchecked")
-	public List<OutboxEntity> fetchReadyByAggregateTypeOrderByAggregateVersion(String aggregateType, int limit,
-			int maxRetries) {
+	public List<OutboxEntity> fetchReadyByAggregateTypesOrderByAggregateVersion(Map<String, Integer> limits,
+			Collection<Integer> partitions, int maxRetries) {
+		final Map<String, Integer> quotas = new LinkedHashMap<>();
+		limits.forEach((type, limit) -> {
+			if (limit > 0) {
+				quotas.put(type, limit);
+			}
+		});
+		if (partitions.isEmpty() || quotas.isEmpty()) {
+			return List.of();
+		}
+		// Aggregate types are simple names, so plain lists avoid binding SQL arrays through Hibernate
 		return (List<OutboxEntity>) getEntityManager()
 				.createNativeQuery(SQL_FETCH_QUERY, OutboxEntity.class)
-				.setParameter("aggregateTypes", aggregateType)
+				.setParameter("aggregateTypes", String.join(",", quotas.keySet()))
+				.setParameter("limits", quotas.values().stream().map(String::valueOf).collect(Collectors.joining(",")))
+				.setParameter("partitions", partitions)
 				.setParameter("maxAttempts", maxRetries)
-				.setMaxResults(limit)
 				.getResultList();
 	}
 
@@ -59,7 +90,60 @@ public class JpaOutboxRepository implements PanacheRepository<OutboxEntity>, Out
 				err, Instant.now().plusMillis(delayMs), entity.getId());
 	}
 
-	private static String loadSQLQueryFromFile(String classpath) {
+	@Transactional
+	@Override
+	public void deleteAllById(Collection<Long> ids) {
+		if (ids.isEmpty()) {
+			return;
+		}
+		getEntityManager().unwrap(Session.class).doWork(conn -> {
+			try (PreparedStatement ps = conn.prepareStatement(SQL_DELETE_ALL_QUERY)) {
+				ps.setArray(1, conn.createArrayOf("bigint", ids.toArray()));
+				ps.executeUpdate();
+			}
+		});
+	}
+
+	@Transactional
+	@Override
+	public void markAllFailed(Collection<Failure> failures, RetryPolicy policy) {
+		if (failures.isEmpty()) {
+			return;
+		}
+		getEntityManager().unwrap(Session.class).doWork(conn -> {
+			try (PreparedStatement ps = conn.prepareStatement(SQL_MARK_ALL_FAILED_QUERY)) {
+				ps.setArray(1, conn.createArrayOf("bigint", failures.stream().map(Failure::id).toArray()));
+				ps.setArray(2, conn.createArrayOf("text", failures.stream().map(Failure::err).toArray()));
+				ps.setInt(3, policy.maxAttempts());
+				ps.setLong(4, policy.maxDelayMs());
+				ps.setLong(5, policy.baseDelayMs());
+				ps.setInt(6, policy.maxAttempts());
+				ps.executeUpdate();
+			}
+		});
+	}
+
+	@Transactional
+	@Override
+	public Backlog backlog(String aggregateType) {
+		final Object[] row = (Object[]) getEntityManager()
+				.createNativeQuery(SQL_BACKLOG_QUERY)
+				.setParameter("aggregateType", aggregateType)
+				.getSingleResult();
+		return new Backlog(((Number) row[0]).longValue(), toInstant(row[1]));
+	}
+
+	private static Instant toInstant(Object value) {
+		return switch (value) {
+			case null -> null;
+			case Instant instant -> instant;
+			case OffsetDateTime dateTime -> dateTime.toInstant();
+			case Timestamp timestamp -> timestamp.toInstant();
+			default -> throw new IllegalStateException("Unexpected timestamp type " + value.getClass());
+		};
+	}
+
+	static String loadSQLQueryFromFile(String classpath) {
 		try (InputStream is = JpaOutboxRepository.class.getResourceAsStream(classpath)) {
 			return new String(is.readAllBytes(), StandardCharsets.UTF_8);
 		} catch (IOException e) {
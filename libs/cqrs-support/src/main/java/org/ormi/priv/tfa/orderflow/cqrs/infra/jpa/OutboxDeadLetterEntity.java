@@ -0,0 +1,44 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.jpa;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * An outbox message that exhausted its attempts, kept aside until it is replayed or discarded.
+ */
+
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Entity
+@Table(schema = "eventing", name = "outbox_dead_letter", indexes = {
+        @Index(name = "ix_outbox_dead_letter_aggregate", columnList = "aggregate_type, aggregate_id, aggregate_version")
+})
+public class OutboxDeadLetterEntity {
+    // Id of the outbox message
+    @Id
+    @Column(name = "id", nullable = false, updatable = false, columnDefinition = "bigint")
+    private Long id;
+    @Column(name = "event_id", nullable = false, updatable = false, columnDefinition = "bigint")
+    private Long eventId;
+    @Column(name = "aggregate_type", nullable = false, updatable = false, columnDefinition = "text")
+    private String aggregateType;
+    @Column(name = "aggregate_id", nullable = false, updatable = false, columnDefinition = "uuid")
+    private UUID aggregateId;
+    @Column(name = "aggregate_version", nullable = false, updatable = false, columnDefinition = "bigint")
+    private Long aggregateVersion;
+    @Column(name = "attempts", nullable = false, updatable = false, columnDefinition = "int")
+    private int attempts;
+    @Column(name = "last_error", updatable = false, columnDefinition = "text")
+    private String lastError;
+    @Column(name = "dead_lettered_at", nullable = false, updatable = false, columnDefinition = "timestamptz")
+    private Instant deadLetteredAt;
+}
@@ -1,6 +1,7 @@
 package org.ormi.priv.tfa.orderflow.cqrs.infra.jpa;
 
 import java.time.Instant;
+import java.util.UUID;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -26,13 +27,25 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @Entity
 @Table(schema = "eventing", name = "outbox", indexes = {
-        @Index(name = "ix_outbox_ready", columnList = "next_attempt_at")
+        @Index(name = "ix_outbox_fresh", columnList = "aggregate_type, id"),
+        @Index(name = "ix_outbox_retry", columnList = "aggregate_type, next_attempt_at"),
+        @Index(name = "ix_outbox_aggregate", columnList = "aggregate_type, aggregate_id, aggregate_version")
 })
 public class OutboxEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id", nullable = false, updatable = false, columnDefinition = "bigserial")
     private Long id;
+    // Denormalized from the source event so the fetch query does not need to join event_log
+    @Column(name = "aggregate_type", nullable = false, updatable = false, columnDefinition = "text")
+    private String aggregateType;
+    @Column(name = "aggregate_id", nullable = false, updatable = false, columnDefinition = "uuid")
+    private UUID aggregateId;
+    @Column(name = "aggregate_version", nullable = false, updatable = false, columnDefinition = "bigint")
+    private Long aggregateVersion;
+    // Generated by the database from the aggregate id, see OutboxLeaseRepository
+    @Column(name = "lease_partition", insertable = false, updatable = false, columnDefinition = "int")
+    private int leasePartition;
     @Column(name = "attempts", nullable = false, updatable = false, columnDefinition = "int")
     private int attempts;
     @Column(name = "next_attempt_at", nullable = false, updatable = false, columnDefinition = "timestamptz")
@@ -59,6 +72,9 @@ public class OutboxEntity {
         public OutboxEntity build() {
             OutboxEntity entity = new OutboxEntity();
             entity.sourceEvent = sourceEvent;
+            entity.aggregateType = sourceEvent.getAggregateType();
+            entity.aggregateId = sourceEvent.getAggregateId();
+            entity.aggregateVersion = sourceEvent.getAggregateVersion();
             return entity;
         }
     }
@@ -0,0 +1,108 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.outbox;
+
+/**
+ * Adaptive controller of the outbox fetch batch size and poll interval, adjusted after each fetch.
+ */
+
+class AdaptivePollController {
+
+    static final int MIN_BATCH_SIZE = 10;
+    static final int MAX_BATCH_SIZE = 500;
+    static final long MIN_INTERVAL_MS = 10;
+    static final long FETCH_LATENCY_THRESHOLD_MS = 250;
+
+    /**
+     * Reasons of an adjustment, exposed as metric tags.
+     */
+    enum Reason {
+        BACKLOG("backlog"),
+        QUEUES_SATURATED("queues_saturated"),
+        FETCH_LATENCY("fetch_latency"),
+        CAUGHT_UP("caught_up"),
+        IDLE("idle");
+
+        private final String tag;
+
+        Reason(String tag) {
+            this.tag = tag;
+        }
+
+        String tag() {
+            return tag;
+        }
+    }
+
+    private final long baseIntervalMs;
+    private final long maxIntervalMs;
+
+    private volatile int batchSize = MIN_BATCH_SIZE;
+    private volatile long intervalMs;
+    private int lastQueueDepth;
+
+    AdaptivePollController(long baseIntervalMs, long maxIntervalMs) {
+        this.baseIntervalMs = baseIntervalMs;
+        this.maxIntervalMs = Math.max(baseIntervalMs, maxIntervalMs);
+        this.intervalMs = baseIntervalMs;
+    }
+
+    int batchSize() {
+        return batchSize;
+    }
+
+    long intervalMs() {
+        return intervalMs;
+    }
+
+    /**
+     * Adjusts the batch size and the poll interval after a fetch.
+     *
+     * @param fetched        the number of fetched messages
+     * @param requested      the batch size the fetch was issued with
+     * @param fetchLatencyMs the fetch duration
+     * @param queueDepth     the deepest partition queue after submission
+     * @return the reason of the adjustment, or null if nothing changed
+     */
+    Reason onFetch(int fetched, int requested, long fetchLatencyMs, int queueDepth) {
+        final boolean draining = queueDepth <= lastQueueDepth || queueDepth < batchSize;
+        lastQueueDepth = queueDepth;
+        final int previousBatchSize = batchSize;
+        final long previousIntervalMs = intervalMs;
+        final Reason reason;
+        if (fetchLatencyMs > FETCH_LATENCY_THRESHOLD_MS) {
+            // The DB is struggling, ask for less work per round trip
+            batchSize = Math.max(MIN_BATCH_SIZE, batchSize / 2);
+            intervalMs = Math.max(intervalMs, baseIntervalMs);
+            reason = Reason.FETCH_LATENCY;
+        } else if (fetched >= requested && draining) {
+            batchSize = Math.min(MAX_BATCH_SIZE, batchSize * 2);
+            intervalMs = MIN_INTERVAL_MS;
+            reason = Reason.BACKLOG;
+        } else if (fetched >= requested) {
+            // Workers are not keeping up, do not pile up more work
+            intervalMs = Math.min(baseIntervalMs, Math.max(MIN_INTERVAL_MS, intervalMs * 2));
+            reason = Reason.QUEUES_SATURATED;
+        } else if (fetched == 0) {
+            batchSize = Math.max(MIN_BATCH_SIZE, batchSize / 2);
+            intervalMs = Math.min(maxIntervalMs, Math.max(baseIntervalMs, intervalMs * 2));
+            reason = Reason.IDLE;
+        } else {
+            intervalMs = baseIntervalMs;
+            reason = Reason.CAUGHT_UP;
+        }
+        if (batchSize == previousBatchSize && intervalMs == previousIntervalMs) {
+            return null;
+        }
+        return reason;
+    }
+
+    /**
+     * Slows down polling when every partition queue is full and no fetch was issued.
+     *
+     * @return the reason of the adjustment, or null if nothing changed
+     */
+    Reason onSaturated() {
+        final long previousIntervalMs = intervalMs;
+        intervalMs = Math.min(baseIntervalMs, Math.max(MIN_INTERVAL_MS, intervalMs * 2));
+        return intervalMs == previousIntervalMs ? null : Reason.QUEUES_SATURATED;
+    }
+}
@@ -0,0 +1,56 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.outbox;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Aggregates held back after a projection failure, until the failure is recorded in the database. Bounded in size
+ * (the oldest entries are evicted) and expiring.
+ *
+ * Only a local shortcut: the retry delay stored in the database is authoritative and survives restarts.
+ */
+
+class BlockedAggregates {
+
+    private final int maxSize;
+    private final long blockNanos;
+    // Insertion ordered, so the eldest entry is also the first to expire
+    private final LinkedHashMap<UUID, Long> blockedUntil;
+
+    BlockedAggregates(int maxSize, Duration blockDuration) {
+        this.maxSize = maxSize;
+        this.blockNanos = blockDuration.toNanos();
+        this.blockedUntil = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Long> eldest) {
+                return size() > BlockedAggregates.this.maxSize;
+            }
+        };
+    }
+
+    synchronized void block(UUID aggregateId) {
+        // Re-insert so the entry moves to the end of the expiry order
+        blockedUntil.remove(aggregateId);
+        blockedUntil.put(aggregateId, System.nanoTime() + blockNanos);
+    }
+
+    synchronized boolean isBlocked(UUID aggregateId) {
+        evictExpired();
+        return blockedUntil.containsKey(aggregateId);
+    }
+
+    synchronized int size() {
+        evictExpired();
+        return blockedUntil.size();
+    }
+
+    private void evictExpired() {
+        final long now = System.nanoTime();
+        final var it = blockedUntil.values().iterator();
+        while (it.hasNext() && it.next() - now <= 0) {
+            it.remove();
+        }
+    }
+}
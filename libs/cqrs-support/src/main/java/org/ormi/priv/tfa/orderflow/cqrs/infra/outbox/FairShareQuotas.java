@@ -0,0 +1,61 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.outbox;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits the outbox fetch batch between the aggregate types with a max-min fair share: each type gets an equal part
+ * of the batch, and the part a type is not expected to use is shared between the busier ones.
+ *
+ * The demand of a type is estimated from its previous fetch: a type that filled its quota is considered unbounded,
+ * otherwise its demand is twice what it fetched, so that a type waking up gets back to its share within a few polls.
+ */
+
+class FairShareQuotas {
+
+    static final int MIN_QUOTA = 1;
+
+    private final List<String> aggregateTypes;
+    // Only accessed from the poll thread
+    private final Map<String, Integer> demand = new HashMap<>();
+
+    FairShareQuotas(List<String> aggregateTypes) {
+        this.aggregateTypes = List.copyOf(aggregateTypes);
+    }
+
+    /**
+     * Allocates the batch. Every type gets at least {@link #MIN_QUOTA}, so an idle type is still polled.
+     */
+    Map<String, Integer> allocate(int batchSize) {
+        final List<String> byDemand = aggregateTypes.stream()
+                .sorted(Comparator.comparingInt(this::demandOf))
+                .toList();
+        final Map<String, Integer> quotas = new LinkedHashMap<>();
+        int remaining = batchSize;
+        for (int i = 0; i < byDemand.size(); i++) {
+            final String type = byDemand.get(i);
+            final int share = remaining / (byDemand.size() - i);
+            final int quota = Math.max(MIN_QUOTA, Math.min(demandOf(type), share));
+            quotas.put(type, quota);
+            remaining = Math.max(0, remaining - quota);
+        }
+        return quotas;
+    }
+
+    /**
+     * Updates the demand estimates with the outcome of a fetch.
+     */
+    void onFetched(Map<String, Integer> quotas, Map<String, Integer> fetchedByType) {
+        quotas.forEach((type, quota) -> {
+            final int fetched = fetchedByType.getOrDefault(type, 0);
+            demand.put(type, fetched >= quota ? Integer.MAX_VALUE : Math.max(MIN_QUOTA, 2 * fetched));
+        });
+    }
+
+    private int demandOf(String aggregateType) {
+        return demand.getOrDefault(aggregateType, Integer.MAX_VALUE);
+    }
+}
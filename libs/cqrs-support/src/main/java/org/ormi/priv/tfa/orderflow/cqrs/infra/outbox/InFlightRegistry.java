@@ -0,0 +1,50 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.outbox;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxLeaseRepository;
+
+/**
+ * Registry of the outbox messages being processed (submitted to a lane and not acknowledged yet), keyed by outbox id.
+ */
+
+class InFlightRegistry {
+
+    private final Map<Long, Integer> inFlight = new ConcurrentHashMap<>();
+    private final AtomicIntegerArray perLeasePartition = new AtomicIntegerArray(OutboxLeaseRepository.PARTITIONS);
+
+    /**
+     * Registers a message as in-flight.
+     *
+     * @param outboxId       the outbox message id
+     * @param leasePartition the lease partition of the message
+     * @return true if the message was not already in-flight
+     */
+    boolean tryAcquire(Long outboxId, int leasePartition) {
+        if (inFlight.putIfAbsent(outboxId, leasePartition) != null) {
+            return false;
+        }
+        perLeasePartition.incrementAndGet(leasePartition);
+        return true;
+    }
+
+    void release(Long outboxId) {
+        final Integer leasePartition = inFlight.remove(outboxId);
+        if (leasePartition != null) {
+            perLeasePartition.decrementAndGet(leasePartition);
+        }
+    }
+
+    int size() {
+        return inFlight.size();
+    }
+
+    /**
+     * @return true if no message of the lease partition is in-flight
+     */
+    boolean isDrained(int leasePartition) {
+        return perLeasePartition.get(leasePartition) == 0;
+    }
+}
@@ -0,0 +1,129 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.outbox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.jboss.logging.Logger;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxRepository;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxRepository.Failure;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxRepository.RetryPolicy;
+
+/**
+ * Acknowledgement buffer of the processed outbox messages. Acknowledgements of every lane are written together in
+ * batches (one DELETE and one failure update) on a size or time threshold. Their order does not matter: an event
+ * whose acknowledgement is lost or late is fetched again and projected as a no-op.
+ *
+ * A message only leaves the in-flight registry once its acknowledgement is written: on a crash before the write,
+ * the message stays in the outbox and is projected again (at-least-once).
+ */
+
+class OutboxAckBuffer {
+
+    static final int FLUSH_SIZE = 500;
+    static final long FLUSH_INTERVAL_MS = 100;
+
+    private static final Logger LOG = Logger.getLogger(OutboxAckBuffer.class);
+
+    private final OutboxRepository outbox;
+    private final RetryPolicy retryPolicy;
+    private final Consumer<Long> onAcknowledged;
+    private final Queue<Long> acks = new ConcurrentLinkedQueue<>();
+    private final Queue<Failure> failures = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService flusher = Executors
+            .newSingleThreadScheduledExecutor(r -> new Thread(r, "outbox-ack-flusher"));
+
+    OutboxAckBuffer(OutboxRepository outbox, RetryPolicy retryPolicy, Consumer<Long> onAcknowledged) {
+        this.outbox = outbox;
+        this.retryPolicy = retryPolicy;
+        this.onAcknowledged = onAcknowledged;
+    }
+
+    void start() {
+        flusher.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic flush and writes what is still buffered.
+     */
+    void stop() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(FLUSH_INTERVAL_MS * 10, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * Acknowledges a processed message: it will be deleted from the outbox.
+     */
+    void ack(Long outboxId) {
+        acks.add(outboxId);
+        onBuffered();
+    }
+
+    /**
+     * Records a failed message: it will be retried with backoff, or dead-lettered once out of attempts.
+     */
+    void fail(Long outboxId, String err) {
+        failures.add(new Failure(outboxId, err));
+        onBuffered();
+    }
+
+    private void onBuffered() {
+        if (pending.incrementAndGet() >= FLUSH_SIZE && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+
+    synchronized void flush() {
+        final List<Long> ackedIds = new ArrayList<>();
+        final List<Failure> failed = new ArrayList<>();
+        drain(acks, ackedIds);
+        drain(failures, failed);
+        if (ackedIds.isEmpty() && failed.isEmpty()) {
+            return;
+        }
+        try {
+            outbox.deleteAllById(ackedIds);
+            ackedIds.forEach(onAcknowledged);
+        } catch (Exception e) {
+            LOG.errorf(e, "Failed to acknowledge %d outbox messages, retrying on next flush", ackedIds.size());
+            requeue(ackedIds, acks);
+        }
+        try {
+            outbox.markAllFailed(failed, retryPolicy);
+            failed.forEach(f -> onAcknowledged.accept(f.id()));
+        } catch (Exception e) {
+            LOG.errorf(e, "Failed to mark %d outbox messages as failed, retrying on next flush", failed.size());
+            requeue(failed, failures);
+        }
+    }
+
+    private <T> void drain(Queue<T> queue, List<T> into) {
+        T item;
+        while ((item = queue.poll()) != null) {
+            into.add(item);
+            pending.decrementAndGet();
+        }
+    }
+
+    private <T> void requeue(List<T> items, Queue<T> queue) {
+        queue.addAll(items);
+        pending.addAndGet(items.size());
+    }
+}
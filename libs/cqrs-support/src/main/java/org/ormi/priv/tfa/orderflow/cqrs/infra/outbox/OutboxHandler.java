@@ -0,0 +1,65 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.outbox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import org.ormi.priv.tfa.orderflow.cqrs.Projector.ProjectionResult;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.jpa.EventLogEntity;
+
+/**
+ * Handler of the outbox messages of one aggregate type and event version, consumed by the {@link OutboxRelay}.
+ *
+ * Handlers are discovered as CDI beans: the relay only fetches the aggregate types having at least one handler.
+ * The events of an aggregate are handled one at a time, in aggregate version order.
+ */
+public interface OutboxHandler {
+    /**
+     * Aggregate type of the handled events, as stored in the event log.
+     */
+    String aggregateType();
+
+    /**
+     * Version of the handled events.
+     */
+    int eventVersion();
+
+    /**
+     * Handles an event. A success or a no-op acknowledges the message, a failure schedules a retry.
+     *
+     * @param event the event to handle
+     * @return the projection result
+     */
+    ProjectionResult<?> handle(EventLogEntity event);
+
+    /**
+     * Handles consecutive events of a single aggregate, in aggregate version order. Handlers may override it to load
+     * and save their state once for the whole batch.
+     *
+     * @param events the events to handle, all of this handler's aggregate type and event version
+     * @return the results of the handled prefix of the events: handling stops at the first failure, which is the last
+     *         result, and the following events are left to a later attempt
+     */
+    default List<? extends ProjectionResult<?>> handleAll(List<EventLogEntity> events) {
+        final List<ProjectionResult<?>> results = new ArrayList<>(events.size());
+        for (EventLogEntity event : events) {
+            final ProjectionResult<?> result = handle(event);
+            results.add(result);
+            if (result.isFailure()) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Gets a stage completed once the effects of the events handled so far are durable. The messages of successful
+     * results are only acknowledged then, so that handlers writing behind keep the at-least-once delivery.
+     *
+     * @return an already completed stage by default, the handled events being committed on return
+     */
+    default CompletionStage<Void> durable() {
+        return CompletableFuture.completedStage(null);
+    }
+}
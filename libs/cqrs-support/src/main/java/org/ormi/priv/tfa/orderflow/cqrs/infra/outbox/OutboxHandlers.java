@@ -0,0 +1,44 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.outbox;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Registered outbox handlers, indexed by aggregate type then event version.
+ */
+
+class OutboxHandlers {
+
+    private final Map<String, Map<Integer, OutboxHandler>> byType = new TreeMap<>();
+
+    OutboxHandlers(Iterable<OutboxHandler> handlers) {
+        for (OutboxHandler handler : handlers) {
+            final OutboxHandler previous = byType
+                    .computeIfAbsent(handler.aggregateType(), t -> new HashMap<>())
+                    .putIfAbsent(handler.eventVersion(), handler);
+            if (previous != null) {
+                throw new IllegalStateException(String.format("Duplicate outbox handlers for %s v%d: %s and %s",
+                        handler.aggregateType(), handler.eventVersion(), previous.getClass().getName(),
+                        handler.getClass().getName()));
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return byType.isEmpty();
+    }
+
+    /**
+     * Aggregate types having at least one handler, in a stable order.
+     */
+    List<String> aggregateTypes() {
+        return List.copyOf(byType.keySet());
+    }
+
+    Optional<OutboxHandler> find(String aggregateType, int eventVersion) {
+        return Optional.ofNullable(byType.getOrDefault(aggregateType, Map.of()).get(eventVersion));
+    }
+}
@@ -0,0 +1,167 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.outbox;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxLeaseRepository;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Manages the leases of this instance on the outbox partitions: heartbeat, renewal, and even rebalancing between the
+ * live instances of the consumer group.
+ *
+ * A partition given back is drained first (no in-flight message nor pending acknowledgement left) before being
+ * released, so that another instance never projects an event before the previous one is acknowledged.
+ */
+
+@ApplicationScoped
+public class OutboxLeaseManager {
+
+    private static final Set<Integer> ALL_PARTITIONS = IntStream.range(0, OutboxLeaseRepository.PARTITIONS)
+            .boxed()
+            .collect(Collectors.toUnmodifiableSet());
+
+    private static final Logger LOG = Logger.getLogger(OutboxLeaseManager.class);
+
+    private final OutboxLeaseRepository leases;
+    private final boolean enabled;
+    private final String consumerGroup;
+    private final String instanceId;
+    private final Duration ttl;
+    private final Duration heartbeatInterval;
+
+    private final ScheduledExecutorService scheduler = Executors
+            .newSingleThreadScheduledExecutor(r -> new Thread(r, "outbox-lease"));
+    // Only accessed from the lease thread
+    private final Set<Integer> draining = new HashSet<>();
+    private boolean seeded;
+    private volatile Set<Integer> owned = Set.of();
+    private volatile long ownedUntilNanos;
+    private IntPredicate isDrained;
+    private Runnable onGained;
+
+    @Inject
+    public OutboxLeaseManager(
+            OutboxLeaseRepository leases,
+            @ConfigProperty(name = "outbox.lease.enabled", defaultValue = "true") boolean enabled,
+            @ConfigProperty(name = "outbox.lease.consumer-group", defaultValue = "outbox-relay") String consumerGroup,
+            @ConfigProperty(name = "outbox.lease.ttl", defaultValue = "15s") Duration ttl,
+            @ConfigProperty(name = "outbox.lease.heartbeat-interval", defaultValue = "5s") Duration heartbeatInterval) {
+        this.leases = leases;
+        this.enabled = enabled;
+        this.consumerGroup = consumerGroup;
+        this.instanceId = System.getenv().getOrDefault("HOSTNAME", "local") + "-" + UUID.randomUUID();
+        this.ttl = ttl;
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    /**
+     * Starts the heartbeat loop.
+     *
+     * @param isDrained tells whether a lease partition has no in-flight message left
+     * @param onGained  callback run when new partitions are owned
+     */
+    public void start(IntPredicate isDrained, Runnable onGained) {
+        if (!enabled) {
+            LOG.info("Outbox partition leases disabled, this instance consumes every partition");
+            return;
+        }
+        this.isDrained = isDrained;
+        this.onGained = onGained;
+        scheduler.scheduleWithFixedDelay(this::tick, 0, heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+        LOG.infof("Joining outbox consumer group %s as %s", consumerGroup, instanceId);
+    }
+
+    /**
+     * Leaves the consumer group, releasing every owned partition.
+     * Must be called once the pending acknowledgements are flushed.
+     */
+    public void stop() {
+        if (!enabled) {
+            return;
+        }
+        scheduler.shutdownNow();
+        owned = Set.of();
+        try {
+            leases.leave(consumerGroup, instanceId);
+            LOG.infof("Left outbox consumer group %s", consumerGroup);
+        } catch (Exception e) {
+            LOG.warnf("Failed to leave outbox consumer group %s, leases will expire in %s: %s",
+                    consumerGroup, ttl, e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the partitions this instance may fetch. Empty once the leases may have expired without being renewed.
+     */
+    public Set<Integer> ownedPartitions() {
+        if (!enabled) {
+            return ALL_PARTITIONS;
+        }
+        return System.nanoTime() < ownedUntilNanos ? owned : Set.of();
+    }
+
+    private void tick() {
+        try {
+            // Leases are considered lost one heartbeat before they actually expire
+            final long validUntil = System.nanoTime() + ttl.minus(heartbeatInterval).toNanos();
+            if (!seeded) {
+                // Once per instance, retried on the next heartbeat if the database is not reachable yet
+                leases.seed(consumerGroup);
+                seeded = true;
+            }
+            final int members = leases.heartbeat(consumerGroup, instanceId, ttl);
+            final Set<Integer> held = new HashSet<>(leases.renew(consumerGroup, instanceId, ttl));
+            draining.retainAll(held);
+            releaseDrained(held);
+            final int fairShare = (OutboxLeaseRepository.PARTITIONS + members - 1) / members;
+            final Set<Integer> gained = leases.claim(consumerGroup, instanceId, fairShare - held.size(), ttl);
+            held.addAll(gained);
+            final Set<Integer> active = new HashSet<>(held);
+            active.removeAll(draining);
+            if (active.size() > fairShare) {
+                // Give the highest partitions back once they are drained
+                active.stream()
+                        .sorted((a, b) -> Integer.compare(b, a))
+                        .limit(active.size() - fairShare)
+                        .forEach(draining::add);
+                active.removeAll(draining);
+            }
+            if (!active.equals(owned)) {
+                LOG.infof("Outbox partitions of %s: %d owned, %d draining, %d members", instanceId,
+                        active.size(), draining.size(), members);
+            }
+            owned = Set.copyOf(active);
+            ownedUntilNanos = validUntil;
+            if (!gained.isEmpty()) {
+                onGained.run();
+            }
+        } catch (Exception e) {
+            LOG.warnf("Outbox lease heartbeat failed for %s: %s", instanceId, e.getMessage());
+        }
+    }
+
+    private void releaseDrained(Set<Integer> held) {
+        final Set<Integer> drained = draining.stream()
+                .filter(isDrained::test)
+                .collect(Collectors.toSet());
+        if (drained.isEmpty()) {
+            return;
+        }
+        leases.release(consumerGroup, instanceId, drained);
+        draining.removeAll(drained);
+        held.removeAll(drained);
+    }
+}
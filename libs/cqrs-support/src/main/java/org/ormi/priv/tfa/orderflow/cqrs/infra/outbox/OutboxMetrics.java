@@ -0,0 +1,185 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.outbox;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.logging.Logger;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxRepository;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxRepository.Backlog;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Metrics of the outbox relay pipeline: fetch, lane queues, processing and projection lag.
+ */
+
+class OutboxMetrics {
+
+    /**
+     * Outcome of a projection, exposed as a metric tag.
+     */
+    enum Outcome {
+        SUCCESS("success"),
+        NOOP("noop"),
+        FAILURE("failure");
+
+        private final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    // Above that, per partition gauges would explode the series count (virtual lanes)
+    private static final int MAX_PARTITION_GAUGES = 64;
+    private static final Duration BACKLOG_REFRESH_INTERVAL = Duration.ofSeconds(15);
+
+    private static final Logger LOG = Logger.getLogger(OutboxMetrics.class);
+
+    private final OutboxRepository outbox;
+    private final Map<String, TypeBacklog> backlogs = new LinkedHashMap<>();
+    private final Map<String, Counter> fetched = new LinkedHashMap<>();
+    private final Timer fetchLatency;
+    private final DistributionSummary fetchFillRatio;
+    private final Timer processingLatency;
+    private final Timer endToEndLatency;
+    private final Counter[] outcomes = new Counter[Outcome.values().length];
+
+    private final ScheduledExecutorService scheduler = Executors
+            .newSingleThreadScheduledExecutor(r -> new Thread(r, "outbox-metrics"));
+
+    OutboxMetrics(MeterRegistry registry, OutboxRepository outbox, Collection<String> aggregateTypes,
+            PartitionLanes lanes, InFlightRegistry inFlight, BlockedAggregates blocked) {
+        this.outbox = outbox;
+        this.fetchLatency = Timer.builder("outbox.fetch.latency")
+                .description("Duration of the outbox fetch query")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.fetchFillRatio = DistributionSummary.builder("outbox.fetch.fill.ratio")
+                .description("Fetched messages over the requested batch size")
+                .publishPercentiles(0.5, 0.95)
+                .register(registry);
+        this.processingLatency = Timer.builder("outbox.projection.duration")
+                .description("Duration of the projection of one outbox message")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.endToEndLatency = Timer.builder("outbox.projection.end.to.end")
+                .description("Delay between the occurrence of an event and the end of its projection")
+                .publishPercentileHistogram()
+                .register(registry);
+        for (Outcome outcome : Outcome.values()) {
+            outcomes[outcome.ordinal()] = Counter.builder("outbox.projected")
+                    .description("Projected outbox messages by outcome")
+                    .tag("outcome", outcome.tag)
+                    .register(registry);
+        }
+        if (lanes.count() <= MAX_PARTITION_GAUGES) {
+            for (int i = 0; i < lanes.count(); i++) {
+                final int lane = i;
+                Gauge.builder("outbox.partition.queue.depth", lanes, l -> l.queueDepth(lane))
+                        .description("Messages waiting in a partition queue")
+                        .tag("partition", String.valueOf(lane))
+                        .register(registry);
+            }
+        }
+        Gauge.builder("outbox.queue.depth.max", lanes, PartitionLanes::maxQueueDepth)
+                .description("Deepest partition queue")
+                .register(registry);
+        Gauge.builder("outbox.queue.depth.total", lanes, PartitionLanes::totalQueueDepth)
+                .description("Messages waiting in all the partition queues")
+                .register(registry);
+        Gauge.builder("outbox.in.flight", inFlight, InFlightRegistry::size)
+                .description("Messages submitted and not acknowledged yet")
+                .register(registry);
+        Gauge.builder("outbox.blocked.aggregates", blocked, BlockedAggregates::size)
+                .description("Aggregates held back locally after a failure")
+                .register(registry);
+        for (String aggregateType : aggregateTypes) {
+            final TypeBacklog backlog = new TypeBacklog();
+            backlogs.put(aggregateType, backlog);
+            fetched.put(aggregateType, Counter.builder("outbox.fetch.messages")
+                    .description("Fetched outbox messages by aggregate type")
+                    .tag("aggregate_type", aggregateType)
+                    .register(registry));
+            Gauge.builder("outbox.lag.events", backlog, b -> b.pending)
+                    .description("Pending outbox messages, dead letters excluded")
+                    .tag("aggregate_type", aggregateType)
+                    .register(registry);
+            Gauge.builder("outbox.lag.seconds", backlog, TypeBacklog::lagSeconds)
+                    .description("Age of the oldest pending outbox message")
+                    .tag("aggregate_type", aggregateType)
+                    .baseUnit("seconds")
+                    .register(registry);
+        }
+    }
+
+    void start() {
+        scheduler.scheduleWithFixedDelay(this::refreshBacklog, 0, BACKLOG_REFRESH_INTERVAL.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    void recordFetch(long latencyNanos, Map<String, Integer> fetchedByType, int requested) {
+        fetchLatency.record(latencyNanos, TimeUnit.NANOSECONDS);
+        int total = 0;
+        for (Map.Entry<String, Integer> entry : fetchedByType.entrySet()) {
+            total += entry.getValue();
+            final Counter counter = fetched.get(entry.getKey());
+            if (counter != null) {
+                counter.increment(entry.getValue());
+            }
+        }
+        if (requested > 0) {
+            fetchFillRatio.record((double) total / requested);
+        }
+    }
+
+    void recordProjection(Outcome outcome, long durationNanos, Instant occurredAt) {
+        outcomes[outcome.ordinal()].increment();
+        processingLatency.record(durationNanos, TimeUnit.NANOSECONDS);
+        if (outcome == Outcome.SUCCESS && occurredAt != null) {
+            endToEndLatency.record(Duration.between(occurredAt, Instant.now()));
+        }
+    }
+
+    private void refreshBacklog() {
+        backlogs.forEach((aggregateType, backlog) -> {
+            try {
+                final Backlog measured = outbox.backlog(aggregateType);
+                backlog.pending = measured.pending();
+                backlog.oldestOccurredAt = measured.oldestOccurredAt();
+            } catch (Exception e) {
+                LOG.warnf("Failed to measure the %s outbox backlog: %s", aggregateType, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Last measured backlog of an aggregate type.
+     */
+    private static final class TypeBacklog {
+        private volatile long pending;
+        private volatile Instant oldestOccurredAt;
+
+        private double lagSeconds() {
+            final Instant oldest = oldestOccurredAt;
+            if (oldest == null) {
+                return 0;
+            }
+            return Math.max(0, Duration.between(oldest, Instant.now()).toMillis() / 1000.0);
+        }
+    }
+}
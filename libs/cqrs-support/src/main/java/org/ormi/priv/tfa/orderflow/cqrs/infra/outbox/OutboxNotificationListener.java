@@ -0,0 +1,114 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.outbox;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Listens to the PostgreSQL notifications (LISTEN/NOTIFY) sent on outbox publication and wakes the relay up immediately.
+ */
+
+@ApplicationScoped
+public class OutboxNotificationListener {
+
+    private static final int RECEIVE_TIMEOUT_MS = 5000;
+    private static final Duration RECONNECT_DELAY = Duration.ofSeconds(5);
+
+    private static final Logger LOG = Logger.getLogger(OutboxNotificationListener.class);
+
+    private final boolean enabled;
+    private final String jdbcUrl;
+    private final String username;
+    private final Optional<String> password;
+
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    @Inject
+    public OutboxNotificationListener(
+            @ConfigProperty(name = "outbox.notify.enabled", defaultValue = "true") boolean enabled,
+            @ConfigProperty(name = "quarkus.datasource.jdbc.url") String jdbcUrl,
+            @ConfigProperty(name = "quarkus.datasource.username") String username,
+            @ConfigProperty(name = "quarkus.datasource.password") Optional<String> password) {
+        this.enabled = enabled;
+        this.jdbcUrl = jdbcUrl;
+        this.username = username;
+        this.password = password;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts listening on the given channels on a single dedicated connection.
+     *
+     * @param channels the NOTIFY channels
+     * @param onNotify callback run on each batch of notifications and after each (re)connection
+     */
+    public synchronized void start(Collection<String> channels, Runnable onNotify) {
+        if (!enabled || running || channels.isEmpty()) {
+            return;
+        }
+        running = true;
+        final List<String> listened = List.copyOf(channels);
+        listenerThread = new Thread(() -> listen(listened, onNotify), "outbox-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+        LOG.infof("Listening for outbox notifications on channels %s", listened);
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+            listenerThread = null;
+        }
+    }
+
+    private void listen(List<String> channels, Runnable onNotify) {
+        while (running) {
+            try (Connection conn = DriverManager.getConnection(jdbcUrl, username, password.orElse(null))) {
+                try (Statement st = conn.createStatement()) {
+                    for (String channel : channels) {
+                        st.execute("LISTEN \"" + channel + "\"");
+                    }
+                }
+                final PGConnection pgConn = conn.unwrap(PGConnection.class);
+                // Catch up with messages published while we were not listening
+                onNotify.run();
+                while (running) {
+                    final PGNotification[] notifications = pgConn.getNotifications(RECEIVE_TIMEOUT_MS);
+                    if (notifications != null && notifications.length > 0) {
+                        onNotify.run();
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                LOG.warnf("Outbox listener connection lost on channels %s, reconnecting in %s: %s",
+                        channels, RECONNECT_DELAY, e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY.toMillis());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
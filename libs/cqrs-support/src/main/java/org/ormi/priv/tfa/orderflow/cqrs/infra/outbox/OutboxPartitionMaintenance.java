@@ -0,0 +1,70 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.outbox;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventingPartitionRepository;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Periodic maintenance of the event log and outbox partitions: creation of the upcoming partitions and removal of the
+ * fully processed outbox partitions. Driven by the {@link OutboxRelay}, so it only runs where events are consumed.
+ */
+
+@ApplicationScoped
+public class OutboxPartitionMaintenance {
+
+    private static final Logger LOG = Logger.getLogger(OutboxPartitionMaintenance.class);
+
+    private final EventingPartitionRepository partitions;
+    private final boolean enabled;
+    private final Duration interval;
+    private final int ahead;
+
+    private final ScheduledExecutorService scheduler = Executors
+            .newSingleThreadScheduledExecutor(r -> new Thread(r, "outbox-partition-maintenance"));
+
+    @Inject
+    public OutboxPartitionMaintenance(
+            EventingPartitionRepository partitions,
+            @ConfigProperty(name = "outbox.partitions.maintenance.enabled", defaultValue = "true") boolean enabled,
+            @ConfigProperty(name = "outbox.partitions.maintenance.interval", defaultValue = "10m") Duration interval,
+            @ConfigProperty(name = "outbox.partitions.ahead", defaultValue = "4") int ahead) {
+        this.partitions = partitions;
+        this.enabled = enabled;
+        this.interval = interval;
+        this.ahead = ahead;
+    }
+
+    void start() {
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::maintain, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    private void maintain() {
+        try {
+            final int created = partitions.createFuturePartitions(ahead);
+            int dropped = 0;
+            // One transaction per partition, so that the outbox lock is released between them
+            while (partitions.dropProcessedOutboxPartition()) {
+                dropped++;
+            }
+            if (created > 0 || dropped > 0) {
+                LOG.infof("Eventing partitions maintained: %d created, %d outbox partitions dropped", created, dropped);
+            }
+        } catch (Exception e) {
+            LOG.warnf("Eventing partition maintenance failed: %s", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.outbox;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.ormi.priv.tfa.orderflow.cqrs.Projector.ProjectionResult;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.jpa.EventLogEntity;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.jpa.OutboxEntity;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxChannel;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxRepository;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxRepository.RetryPolicy;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.Startup;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Any;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+
+/**
+ * Outbox relay: a single fetch loop serving every aggregate type having an {@link OutboxHandler}. Ready messages are
+ * fetched as soon as a notification is received (with a periodic fallback poll), each type within its own fair share
+ * of the batch, and handed to the handler registered for their aggregate type and event version.
+ *
+ * The relay stays idle in services that register no handler.
+ */
+
+@ApplicationScoped
+@Startup
+public class OutboxRelay {
+
+    private static final int PLATFORM_LANES = Runtime.getRuntime().availableProcessors();
+    private static final int POLL_INTERVAL_MS = 1000;
+    private static final int FALLBACK_POLL_INTERVAL_MS = 10000;
+    private static final int PARTITION_QUEUE_CAPACITY = 256;
+    private static final int MIN_VIRTUAL_LANE_CAPACITY = 16;
+    private static final int MAX_BLOCKED_AGGREGATES = 10_000;
+
+    private static final Logger LOG = Logger.getLogger(OutboxRelay.class);
+
+    private final ScheduledExecutorService pollScheduler = Executors.newSingleThreadScheduledExecutor();
+    private final PartitionLanes lanes;
+
+    private final BlockedAggregates blocked;
+    private final RetryPolicy retryPolicy;
+    private final InFlightRegistry inFlight = new InFlightRegistry();
+    private final OutboxAckBuffer acks;
+    private final AtomicBoolean pollRequested = new AtomicBoolean();
+    private ScheduledFuture<?> nextPoll;
+
+    private final OutboxRepository outbox;
+    private final OutboxHandlers handlers;
+    private final FairShareQuotas quotas;
+    private final OutboxNotificationListener listener;
+    private final OutboxLeaseManager leases;
+    private final OutboxPartitionMaintenance maintenance;
+    private final AdaptivePollController controller;
+    private final MeterRegistry registry;
+    private final OutboxMetrics metrics;
+
+    @Inject
+    public OutboxRelay(
+            OutboxRepository outboxRepository,
+            @Any Instance<OutboxHandler> handlers,
+            OutboxNotificationListener listener,
+            OutboxLeaseManager leases,
+            OutboxPartitionMaintenance maintenance,
+            MeterRegistry registry,
+            @ConfigProperty(name = "outbox.poller.mode", defaultValue = "platform") String mode,
+            @ConfigProperty(name = "outbox.poller.virtual-lanes", defaultValue = "1024") int virtualLanes,
+            @ConfigProperty(name = "outbox.retry.max-attempts", defaultValue = "8") int maxAttempts,
+            @ConfigProperty(name = "outbox.retry.base-delay", defaultValue = "1s") Duration baseDelay,
+            @ConfigProperty(name = "outbox.retry.max-delay", defaultValue = "5m") Duration maxDelay) {
+        this.outbox = outboxRepository;
+        this.handlers = new OutboxHandlers(handlers);
+        this.quotas = new FairShareQuotas(this.handlers.aggregateTypes());
+        this.listener = listener;
+        this.leases = leases;
+        this.maintenance = maintenance;
+        this.registry = registry;
+        this.lanes = PartitionLanes.Mode.of(mode) == PartitionLanes.Mode.VIRTUAL
+                // The queue capacity of the platform lanes spread over many more lanes, each lane keeping room for a
+                // few batches: the overall capacity grows with the lane count past that floor
+                ? PartitionLanes.virtual(virtualLanes, Math.max(MIN_VIRTUAL_LANE_CAPACITY,
+                        PARTITION_QUEUE_CAPACITY * PLATFORM_LANES / virtualLanes))
+                : PartitionLanes.platform(PLATFORM_LANES, PARTITION_QUEUE_CAPACITY);
+        this.retryPolicy = new RetryPolicy(maxAttempts, baseDelay.toMillis(), maxDelay.toMillis());
+        // Covers the time until the failure is flushed, the database then holds the aggregate back
+        this.blocked = new BlockedAggregates(MAX_BLOCKED_AGGREGATES, baseDelay);
+        // In-flight messages are released once their acknowledgement is committed, not when processed
+        this.acks = new OutboxAckBuffer(outboxRepository, retryPolicy, inFlight::release);
+        // With notifications enabled the idle interval is only a safety net for missed notifications
+        this.controller = new AdaptivePollController(POLL_INTERVAL_MS,
+                listener.isEnabled() ? FALLBACK_POLL_INTERVAL_MS : POLL_INTERVAL_MS);
+        Gauge.builder("outbox.poller.batch.size", controller, AdaptivePollController::batchSize)
+                .description("Current outbox fetch batch size")
+                .register(registry);
+        Gauge.builder("outbox.poller.interval", controller, AdaptivePollController::intervalMs)
+                .description("Current delay before the next outbox poll")
+                .baseUnit("milliseconds")
+                .register(registry);
+        this.metrics = new OutboxMetrics(registry, outboxRepository, this.handlers.aggregateTypes(), lanes, inFlight,
+                blocked);
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (handlers.isEmpty()) {
+            LOG.debug("No outbox handler registered, the outbox relay stays idle.");
+            return;
+        }
+        maintenance.start();
+        acks.start();
+        metrics.start();
+        leases.start(inFlight::isDrained, this::wakeUp);
+        pollScheduler.execute(this::pollAndReschedule);
+        listener.start(handlers.aggregateTypes().stream().map(OutboxChannel::of).toList(), this::wakeUp);
+        LOG.infof("OutboxRelay started for %s with %d %s partitions.", handlers.aggregateTypes(), lanes.count(),
+                lanes.mode());
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (handlers.isEmpty()) {
+            return;
+        }
+        listener.stop();
+        maintenance.stop();
+        pollScheduler.shutdownNow();
+        final int unprocessed = lanes.totalQueueDepth();
+        lanes.shutdownNow();
+        // Persist the acknowledgements of already projected messages
+        acks.stop();
+        leases.stop();
+        metrics.stop();
+        LOG.infof("OutboxRelay stopped, %d queued messages left to the next consumer.", unprocessed);
+    }
+
+    /**
+     * Requests an immediate poll. Concurrent requests are coalesced into a single poll.
+     */
+    void wakeUp() {
+        if (pollRequested.compareAndSet(false, true)) {
+            pollScheduler.execute(() -> {
+                pollRequested.set(false);
+                pollAndReschedule();
+            });
+        }
+    }
+
+    /**
+     * Runs a poll and schedules the next one according to the adaptive interval.
+     * Always runs on the poll scheduler thread, so only one poll chain exists at a time.
+     */
+    private void pollAndReschedule() {
+        if (nextPoll != null) {
+            nextPoll.cancel(false);
+        }
+        poll();
+        if (!pollScheduler.isShutdown()) {
+            nextPoll = pollScheduler.schedule(this::pollAndReschedule, controller.intervalMs(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @ActivateRequestContext
+    @Transactional
+    protected void poll() {
+        try {
+            final int freeSlots = lanes.totalRemainingCapacity();
+            if (freeSlots == 0) {
+                // Backpressure: every partition is saturated, let the workers catch up
+                recordAdjustment(controller.onSaturated());
+                return;
+            }
+            final int batchSize = Math.min(controller.batchSize(), freeSlots);
+            // Only the partitions leased by this instance, so that an aggregate is never projected by two instances
+            final Set<Integer> partitions = leases.ownedPartitions();
+            final Map<String, Integer> limits = quotas.allocate(batchSize);
+            final long fetchStart = System.nanoTime();
+            List<OutboxEntity> readyMessages = outbox
+                    .fetchReadyByAggregateTypesOrderByAggregateVersion(limits, partitions, retryPolicy.maxAttempts());
+            final long fetchLatencyNanos = System.nanoTime() - fetchStart;
+            final Map<String, Integer> fetchedByType = new HashMap<>();
+            readyMessages.forEach(msg -> fetchedByType.merge(msg.getAggregateType(), 1, Integer::sum));
+            // Leases may leave nothing to fetch, which says nothing about the demand
+            if (!partitions.isEmpty()) {
+                quotas.onFetched(limits, fetchedByType);
+            }
+            metrics.recordFetch(fetchLatencyNanos, fetchedByType, batchSize);
+            // The events of an aggregate are projected together, in the fetch (hence version) order
+            final Map<UUID, List<OutboxEntity>> batches = new LinkedHashMap<>();
+            readyMessages.forEach((msg) -> {
+                if (blocked.isBlocked(msg.getAggregateId())) {
+                    // Still blocked, skip processing
+                    return;
+                }
+                if (!inFlight.tryAcquire(msg.getId(), msg.getLeasePartition())) {
+                    // Already queued by a previous poll
+                    return;
+                }
+                batches.computeIfAbsent(msg.getAggregateId(), id -> new ArrayList<>()).add(msg);
+            });
+            // Saturated partitions are skipped until the next poll
+            final BitSet saturated = new BitSet(lanes.count());
+            batches.forEach((aggregateId, batch) -> {
+                // Get corresponding partition
+                int partition = lanes.laneOf(aggregateId);
+                if (saturated.get(partition) || lanes.remainingCapacity(partition) == 0) {
+                    saturated.set(partition);
+                    release(batch, 0);
+                    return;
+                }
+                try {
+                    lanes.submit(partition, () -> process(batch));
+                } catch (RejectedExecutionException e) {
+                    release(batch, 0);
+                    saturated.set(partition);
+                }
+            });
+            adjust(readyMessages.size(), batchSize, TimeUnit.NANOSECONDS.toMillis(fetchLatencyNanos));
+        } catch (Exception e) {
+            LOG.error("Error occurred while polling outbox messages", e);
+        }
+    }
+
+    private void adjust(int fetched, int batchSize, long fetchLatencyMs) {
+        recordAdjustment(controller.onFetch(fetched, batchSize, fetchLatencyMs, lanes.maxQueueDepth()));
+    }
+
+    private void recordAdjustment(AdaptivePollController.Reason reason) {
+        if (reason != null) {
+            registry.counter("outbox.poller.adjustments", "reason", reason.tag()).increment();
+            LOG.debugf("Outbox poller adjusted (%s): batch=%d, interval=%dms", reason.tag(),
+                    controller.batchSize(), controller.intervalMs());
+        }
+    }
+
+    /**
+     * Processes the batch of an aggregate, one handler call per run of events sharing the same event version.
+     * Processing stops at the first failure, the following events are released and fetched again once the failed
+     * one is retried.
+     */
+    private void process(List<OutboxEntity> batch) {
+        if (blocked.isBlocked(batch.get(0).getAggregateId())) {
+            // An earlier event of the aggregate failed since the fetch
+            release(batch, 0);
+            return;
+        }
+        int from = 0;
+        while (from < batch.size()) {
+            final int version = batch.get(from).getSourceEvent().getEventVersion();
+            int to = from + 1;
+            while (to < batch.size() && batch.get(to).getSourceEvent().getEventVersion() == version) {
+                to++;
+            }
+            if (!processRun(batch.subList(from, to))) {
+                release(batch, to);
+                return;
+            }
+            from = to;
+        }
+    }
+
+    private boolean processRun(List<OutboxEntity> run) {
+        final EventLogEntity first = run.get(0).getSourceEvent();
+        final long start = System.nanoTime();
+        final Optional<OutboxHandler> handler = handlers.find(first.getAggregateType(), first.getEventVersion());
+        if (handler.isEmpty()) {
+            fail(run, 0, String.format("No outbox handler for %s v%d", first.getAggregateType(),
+                    first.getEventVersion()), System.nanoTime() - start);
+            return false;
+        }
+        final List<? extends ProjectionResult<?>> results;
+        try {
+            results = handler.get().handleAll(run.stream().map(OutboxEntity::getSourceEvent).toList());
+        } catch (Exception e) {
+            // Nothing was committed, the whole run is retried from its first event
+            LOG.error(String.format("Outbox handler failed for outbox message id=%d, aggregateId=%s: %s",
+                    run.get(0).getId(), first.getAggregateId(), e.getMessage()), e);
+            fail(run, 0, e.getMessage(), System.nanoTime() - start);
+            return false;
+        }
+        final long durationNanos = (System.nanoTime() - start) / Math.max(1, results.size());
+        final CompletionStage<Void> durable = handler.get().durable();
+        for (int i = 0; i < results.size(); i++) {
+            final ProjectionResult<?> result = results.get(i);
+            final OutboxEntity msg = run.get(i);
+            if (result.isFailure()) {
+                fail(run, i, result.getError(), durationNanos);
+                return false;
+            }
+            // A no-op is a stale event, typically redelivered after its acknowledgement was lost
+            ack(msg.getId(), durable);
+            final OutboxMetrics.Outcome outcome = result.isSuccess()
+                    ? OutboxMetrics.Outcome.SUCCESS
+                    : OutboxMetrics.Outcome.NOOP;
+            metrics.recordProjection(outcome, durationNanos, msg.getSourceEvent().getOccurredAt());
+        }
+        // The events the handler did not get to are left for a later attempt
+        release(run, results.size());
+        return results.size() == run.size();
+    }
+
+    /**
+     * Acknowledges a handled message once the handler made its effects durable. The message stays in flight until
+     * then, and is fetched again if they never are.
+     */
+    private void ack(Long outboxId, CompletionStage<Void> durable) {
+        durable.whenComplete((v, err) -> {
+            if (err == null) {
+                acks.ack(outboxId);
+            } else {
+                LOG.warnf("Outbox message id=%d left to a later attempt: %s", outboxId, err.getMessage());
+                inFlight.release(outboxId);
+            }
+        });
+    }
+
+    private void fail(List<OutboxEntity> run, int index, String err, long durationNanos) {
+        final OutboxEntity outboxMsg = run.get(index);
+        acks.fail(outboxMsg.getId(), err);
+        blocked.block(outboxMsg.getAggregateId());
+        metrics.recordProjection(OutboxMetrics.Outcome.FAILURE, durationNanos, null);
+        release(run, index + 1);
+    }
+
+    /**
+     * Releases the messages of the batch from the given index without acknowledging them.
+     */
+    private void release(List<OutboxEntity> batch, int from) {
+        for (int i = from; i < batch.size(); i++) {
+            inFlight.release(batch.get(i).getId());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.outbox;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Ordered execution lanes of the outbox relay: each aggregate is hashed to a single-threaded lane, which preserves the
+ * order of its events. Lanes run on platform threads or on virtual threads.
+ */
+
+class PartitionLanes {
+
+    /**
+     * Thread flavour backing the lanes, selected by the {@code outbox.poller.mode} property.
+     */
+    enum Mode {
+        PLATFORM,
+        VIRTUAL;
+
+        static Mode of(String value) {
+            return Mode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private static final long VIRTUAL_KEEP_ALIVE_MS = 60_000;
+
+    private final Mode mode;
+    private final ThreadPoolExecutor[] lanes;
+
+    private PartitionLanes(Mode mode, ThreadPoolExecutor[] lanes) {
+        this.mode = mode;
+        this.lanes = lanes;
+    }
+
+    /**
+     * One platform thread per lane, lanes are expected to match the core count.
+     */
+    static PartitionLanes platform(int count, int queueCapacity) {
+        return new PartitionLanes(Mode.PLATFORM, IntStream.range(0, count)
+                .mapToObj(i -> lane(queueCapacity, r -> new Thread(r, "outbox-poller-" + i)))
+                .toArray(ThreadPoolExecutor[]::new));
+    }
+
+    /**
+     * One virtual thread per lane. Idle lanes release their thread, so a large lane count only costs their queues.
+     */
+    static PartitionLanes virtual(int count, int queueCapacity) {
+        return new PartitionLanes(Mode.VIRTUAL, IntStream.range(0, count)
+                .mapToObj(i -> {
+                    final ThreadPoolExecutor lane = lane(queueCapacity,
+                            Thread.ofVirtual().name("outbox-lane-" + i).factory());
+                    lane.setKeepAliveTime(VIRTUAL_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS);
+                    lane.allowCoreThreadTimeOut(true);
+                    return lane;
+                })
+                .toArray(ThreadPoolExecutor[]::new));
+    }
+
+    private static ThreadPoolExecutor lane(int queueCapacity, ThreadFactory threadFactory) {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory);
+    }
+
+    Mode mode() {
+        return mode;
+    }
+
+    int count() {
+        return lanes.length;
+    }
+
+    int laneOf(UUID aggregateId) {
+        return Math.floorMod(aggregateId.hashCode(), lanes.length);
+    }
+
+    /**
+     * @throws java.util.concurrent.RejectedExecutionException if the lane queue is full
+     */
+    void submit(int lane, Runnable task) {
+        lanes[lane].execute(task);
+    }
+
+    int remainingCapacity(int lane) {
+        return lanes[lane].getQueue().remainingCapacity();
+    }
+
+    int queueDepth(int lane) {
+        return lanes[lane].getQueue().size();
+    }
+
+    int totalRemainingCapacity() {
+        return Arrays.stream(lanes)
+                .mapToInt(l -> l.getQueue().remainingCapacity())
+                .sum();
+    }
+
+    int maxQueueDepth() {
+        return Arrays.stream(lanes)
+                .mapToInt(l -> l.getQueue().size())
+                .max()
+                .orElse(0);
+    }
+
+    int totalQueueDepth() {
+        return Arrays.stream(lanes)
+                .mapToInt(l -> l.getQueue().size())
+                .sum();
+    }
+
+    void shutdownNow() {
+        Arrays.stream(lanes).forEach(ThreadPoolExecutor::shutdownNow);
+    }
+}
@@ -0,0 +1,22 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.persistence;
+
+/**
+ * Maintenance of the id range partitions of the event log and outbox tables.
+ */
+public interface EventingPartitionRepository {
+    /**
+     * Creates the partitions for the next id ranges of the event log and outbox tables.
+     *
+     * @param ahead the number of ranges to prepare after the current one
+     * @return the number of created partitions
+     */
+    int createFuturePartitions(int ahead);
+
+    /**
+     * Detaches and drops one outbox partition whose whole id range was handed out and processed. The outbox is only
+     * locked once such a partition is found, and until the call returns.
+     *
+     * @return true if a partition was dropped, false if none is left or another instance is dropping them
+     */
+    boolean dropProcessedOutboxPartition();
+}
@@ -0,0 +1,26 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.persistence;
+
+import java.util.Locale;
+
+/**
+ * Naming of the PostgreSQL NOTIFY channels used to signal new outbox messages.
+ *
+ * One channel exists per aggregate type, so that consumers only get woken up
+ * for the aggregates they project.
+ */
+public final class OutboxChannel {
+    private static final String PREFIX = "outbox_";
+
+    private OutboxChannel() {
+    }
+
+    /**
+     * Gets the channel name for the given aggregate type.
+     *
+     * @param aggregateType the aggregate type (ex: Product)
+     * @return the channel name (ex: outbox_product)
+     */
+    public static String of(String aggregateType) {
+        return PREFIX + aggregateType.toLowerCase(Locale.ROOT);
+    }
+}
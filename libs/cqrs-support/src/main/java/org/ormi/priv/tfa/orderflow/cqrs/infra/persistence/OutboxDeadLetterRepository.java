@@ -0,0 +1,30 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.persistence;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.ormi.priv.tfa.orderflow.cqrs.infra.jpa.OutboxDeadLetterEntity;
+
+/**
+ * Outbox messages that exhausted their attempts. They block the later events of their aggregate until they are
+ * replayed or discarded.
+ */
+public interface OutboxDeadLetterRepository {
+    List<OutboxDeadLetterEntity> findByAggregateType(String aggregateType, int page, int size);
+
+    long countByAggregateType(String aggregateType);
+
+    /**
+     * Puts the dead letters back into the outbox for an immediate retry, with a fresh attempt count.
+     *
+     * @return the number of replayed messages
+     */
+    int replay(Collection<Long> ids);
+
+    /**
+     * Drops the dead letters for good. The later events of their aggregates are released.
+     *
+     * @return the number of discarded messages
+     */
+    int discard(Collection<Long> ids);
+}
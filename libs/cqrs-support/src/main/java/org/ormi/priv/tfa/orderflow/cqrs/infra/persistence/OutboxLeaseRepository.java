@@ -0,0 +1,52 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.persistence;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Leases on outbox hash partitions, shared by the instances of a consumer group.
+ *
+ * Every outbox message belongs to one of {@link #PARTITIONS} partitions derived
+ * from its aggregate id, and a partition is only consumed by the instance holding
+ * its lease. This keeps all the events of an aggregate on a single instance.
+ */
+public interface OutboxLeaseRepository {
+    /**
+     * Number of lease partitions, must match the outbox lease_partition column.
+     */
+    int PARTITIONS = 64;
+
+    /**
+     * Creates the lease rows of the partitions of the group, if missing. Called once when the instance joins.
+     */
+    void seed(String consumerGroup);
+
+    /**
+     * Records the instance as alive and evicts the instances whose heartbeat expired.
+     *
+     * @return the number of live instances in the group, including this one
+     */
+    int heartbeat(String consumerGroup, String instanceId, Duration ttl);
+
+    /**
+     * Extends the leases still held by the instance.
+     *
+     * @return the partitions still owned
+     */
+    Set<Integer> renew(String consumerGroup, String instanceId, Duration ttl);
+
+    /**
+     * Claims up to max free or expired partitions.
+     *
+     * @return the newly owned partitions
+     */
+    Set<Integer> claim(String consumerGroup, String instanceId, int max, Duration ttl);
+
+    void release(String consumerGroup, String instanceId, Collection<Integer> partitions);
+
+    /**
+     * Releases every lease of the instance and removes it from the group.
+     */
+    void leave(String consumerGroup, String instanceId);
+}
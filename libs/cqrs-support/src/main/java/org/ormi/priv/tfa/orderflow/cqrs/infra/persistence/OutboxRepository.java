@@ -1,6 +1,9 @@
 package org.ormi.priv.tfa.orderflow.cqrs.infra.persistence;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.ormi.priv.tfa.orderflow.cqrs.infra.jpa.OutboxEntity;
 
@@ -10,8 +13,43 @@ import org.ormi.priv.tfa.orderflow.cqrs.infra.jpa.OutboxEntity;
 
 public interface OutboxRepository {
     void publish(OutboxEntity entity);
-    List<OutboxEntity> fetchReadyByAggregateTypeOrderByAggregateVersion(String aggregateType, int limit, int maxRetries);
+    /**
+     * Fetches and locks the ready messages of several aggregate types in a single query, at most limits[type]
+     * messages per type, ordered by outbox id.
+     */
+    List<OutboxEntity> fetchReadyByAggregateTypesOrderByAggregateVersion(Map<String, Integer> limits,
+            Collection<Integer> partitions, int maxRetries);
     void delete(OutboxEntity entity);
     void markFailed(OutboxEntity entity, String err);
     void markFailed(OutboxEntity entity, String err, int retryAfter);
+    void deleteAllById(Collection<Long> ids);
+    /**
+     * Schedules the failed messages for a retry with an exponential backoff, and moves the messages that exhausted
+     * their attempts to the dead letter table.
+     */
+    void markAllFailed(Collection<Failure> failures, RetryPolicy policy);
+
+    /**
+     * Measures the pending messages of an aggregate type, dead letters excluded.
+     */
+    Backlog backlog(String aggregateType);
+
+    /**
+     * A failed outbox message.
+     */
+    public record Failure(Long id, String err) {
+    }
+
+    /**
+     * Retry policy of failed messages: the delay doubles on each attempt, from baseDelayMs up to maxDelayMs, with a
+     * random jitter of up to half the delay.
+     */
+    public record RetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs) {
+    }
+
+    /**
+     * Pending messages and occurrence time of the oldest one, null when nothing is pending.
+     */
+    public record Backlog(long pending, Instant oldestOccurredAt) {
+    }
 }
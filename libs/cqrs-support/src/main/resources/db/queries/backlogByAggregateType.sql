@@ -0,0 +1,7 @@
+SELECT
+    (SELECT count(*) FROM eventing.outbox o WHERE o.aggregate_type = :aggregateType) AS pending,
+    (SELECT e.occurred_at FROM eventing.outbox o
+    INNER JOIN eventing.event_log e ON e.id = o.event_id
+    WHERE o.aggregate_type = :aggregateType
+    ORDER BY o.id
+    LIMIT 1) AS oldest_occurred_at
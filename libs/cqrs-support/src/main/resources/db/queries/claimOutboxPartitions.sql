@@ -0,0 +1,13 @@
+UPDATE eventing.outbox_partition_lease l
+SET owner = :instanceId,
+    lease_until = CURRENT_TIMESTAMP + :ttlMs * INTERVAL '1 millisecond'
+WHERE l.consumer_group = :consumerGroup
+AND l.lease_partition IN (
+    SELECT c.lease_partition FROM eventing.outbox_partition_lease c
+    WHERE c.consumer_group = :consumerGroup
+    AND (c.owner IS NULL OR c.lease_until <= CURRENT_TIMESTAMP)
+    ORDER BY c.lease_partition
+    LIMIT :max
+    FOR UPDATE SKIP LOCKED
+)
+RETURNING l.lease_partition
@@ -0,0 +1,2 @@
+DELETE FROM eventing.outbox
+WHERE id = ANY(?)
@@ -0,0 +1,53 @@
+-- One quota per aggregate type: :aggregateTypes and :limits are parallel comma separated lists
+WITH quotas AS (
+    SELECT q.aggregate_type, q.type_limit
+    FROM unnest(string_to_array(:aggregateTypes, ','), CAST(string_to_array(:limits, ',') AS int[]))
+        AS q(aggregate_type, type_limit)
+),
+-- Fresh and retryable candidates are read from their own partial index, each type bounded by its own quota
+-- so that a burst on one aggregate type cannot starve the others
+candidates AS (
+    SELECT c.id FROM quotas q
+    CROSS JOIN LATERAL (
+        SELECT u.id FROM (
+            (SELECT o.id FROM eventing.outbox o
+            WHERE o.aggregate_type = q.aggregate_type
+            AND o.lease_partition IN (:partitions)
+            AND o.next_attempt_at IS NULL
+            AND o.attempts < :maxAttempts
+            ORDER BY o.aggregate_type, o.id
+            LIMIT q.type_limit)
+            UNION ALL
+            (SELECT o.id FROM eventing.outbox o
+            WHERE o.aggregate_type = q.aggregate_type
+            AND o.lease_partition IN (:partitions)
+            AND o.next_attempt_at <= CURRENT_TIMESTAMP
+            AND o.attempts < :maxAttempts
+            ORDER BY o.aggregate_type, o.next_attempt_at
+            LIMIT q.type_limit)
+        ) u
+        ORDER BY u.id
+        LIMIT q.type_limit
+    ) c
+)
+SELECT o.* FROM eventing.outbox o
+INNER JOIN candidates c ON c.id = o.id
+-- Only a prefix of each aggregate: skip events queued behind an earlier pending event that is not fetched
+-- along with them (waiting for a retry, left out by the quota or out of attempts), or that is fetched but
+-- replayed after them (hence with a greater id), or dead-lettered
+WHERE NOT EXISTS (
+    SELECT 1 FROM eventing.outbox o2
+    WHERE o2.aggregate_type = o.aggregate_type
+    AND o2.aggregate_id = o.aggregate_id
+    AND o2.aggregate_version < o.aggregate_version
+    AND (o2.id > o.id OR NOT EXISTS (SELECT 1 FROM candidates c2 WHERE c2.id = o2.id))
+)
+AND NOT EXISTS (
+    SELECT 1 FROM eventing.outbox_dead_letter d
+    WHERE d.aggregate_type = o.aggregate_type
+    AND d.aggregate_id = o.aggregate_id
+    AND d.aggregate_version < o.aggregate_version
+)
+-- Outbox ids follow the event log order, hence the aggregate version order within an aggregate
+ORDER BY o.id
+FOR UPDATE OF o SKIP LOCKED
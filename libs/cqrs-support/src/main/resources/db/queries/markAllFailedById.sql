@@ -0,0 +1,25 @@
+WITH failed AS (
+    SELECT * FROM unnest(?::bigint[], ?::text[]) AS f(id, err)
+),
+-- Messages failing their last attempt leave the outbox for the dead letter table
+exhausted AS (
+    DELETE FROM eventing.outbox o
+    USING failed f
+    WHERE o.id = f.id
+    AND o.attempts + 1 >= ?
+    RETURNING o.id, o.event_id, o.aggregate_type, o.aggregate_id, o.aggregate_version, o.attempts + 1, f.err
+),
+dead_lettered AS (
+    INSERT INTO eventing.outbox_dead_letter (id, event_id, aggregate_type, aggregate_id, aggregate_version, attempts,
+        last_error)
+    SELECT * FROM exhausted
+)
+UPDATE eventing.outbox o
+SET last_error = f.err,
+    attempts = o.attempts + 1,
+    -- Exponential backoff capped to the max delay, with a jitter spreading the retries of a same failure burst
+    next_attempt_at = CURRENT_TIMESTAMP
+        + LEAST(?::bigint, ?::bigint * power(2, o.attempts)) * (0.5 + random() / 2) * INTERVAL '1 millisecond'
+FROM failed f
+WHERE o.id = f.id
+AND o.attempts + 1 < ?
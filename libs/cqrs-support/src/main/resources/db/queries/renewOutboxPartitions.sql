@@ -0,0 +1,6 @@
+UPDATE eventing.outbox_partition_lease
+SET lease_until = CURRENT_TIMESTAMP + :ttlMs * INTERVAL '1 millisecond'
+WHERE consumer_group = :consumerGroup
+AND owner = :instanceId
+AND lease_until > CURRENT_TIMESTAMP
+RETURNING lease_partition
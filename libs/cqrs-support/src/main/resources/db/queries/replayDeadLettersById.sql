@@ -0,0 +1,10 @@
+WITH replayed AS (
+    DELETE FROM eventing.outbox_dead_letter d
+    WHERE d.id = ANY(?)
+    RETURNING d.event_id, d.aggregate_type, d.aggregate_id, d.aggregate_version
+)
+-- Retryable right away, a non null next attempt also holds back the later events of the aggregate
+INSERT INTO eventing.outbox (event_id, aggregate_type, aggregate_id, aggregate_version, attempts, next_attempt_at)
+SELECT r.event_id, r.aggregate_type, r.aggregate_id, r.aggregate_version, 0, CURRENT_TIMESTAMP
+FROM replayed r
+ORDER BY r.event_id
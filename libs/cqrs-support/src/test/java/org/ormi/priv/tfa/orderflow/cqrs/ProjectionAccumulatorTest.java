@@ -0,0 +1,201 @@
+package org.ormi.priv.tfa.orderflow.cqrs;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.ormi.priv.tfa.orderflow.cqrs.Projector.ProjectionAccumulator;
+import org.ormi.priv.tfa.orderflow.cqrs.Projector.ProjectionResult;
+
+/**
+ * Tests unitaires de l'accumulateur des projections séquentielles.
+ * Couvre les événements périmés, les no-op et l'arrêt à la première erreur.
+ */
+@DisplayName("ProjectionAccumulator - Tests unitaires")
+class ProjectionAccumulatorTest {
+
+    private static final UUID AGGREGATE_ID = UUID.randomUUID();
+
+    /**
+     * Événement de test, dont le nom décide du résultat de la projection.
+     */
+    private record TestEvent(String name) implements DomainEvent {
+        @Override
+        public UUID aggregateId() {
+            return AGGREGATE_ID;
+        }
+
+        @Override
+        public String aggregateType() {
+            return "Test";
+        }
+
+        @Override
+        public int version() {
+            return 1;
+        }
+
+        @Override
+        public DomainEventPayload payload() {
+            return new DomainEventPayload.Empty();
+        }
+    }
+
+    /**
+     * Projecteur concaténant les noms des événements, qui échoue sur "fail" et ignore "skip".
+     */
+    private static final class ConcatProjector implements Projector<String, EventEnvelope<TestEvent>> {
+        private final List<Long> projected = new ArrayList<>();
+
+        @Override
+        public ProjectionResult<String> project(Optional<String> current, EventEnvelope<TestEvent> ev) {
+            projected.add(ev.sequence());
+            return switch (ev.event().name()) {
+                case "fail" -> ProjectionResult.failed("Failed on " + ev.sequence());
+                case "skip" -> ProjectionResult.noOp("Skipped " + ev.sequence());
+                default -> ProjectionResult.projected(current.orElse("") + ev.event().name());
+            };
+        }
+    }
+
+    private static EventEnvelope<TestEvent> event(long sequence, String name) {
+        return EventEnvelope.with(new TestEvent(name), sequence);
+    }
+
+    private final ConcatProjector projector = new ConcatProjector();
+
+    @Nested
+    @DisplayName("Événements appliqués")
+    class AcceptTests {
+
+        @Test
+        @DisplayName("Doit appliquer les événements dans l'ordre")
+        void shouldApplyEventsInOrder() {
+            final ProjectionAccumulator<String> acc = new ProjectionAccumulator<>(Optional.empty(), 0L);
+
+            final ProjectionResult<String> result = projector.fold(acc,
+                    List.of(event(1, "a"), event(2, "b"), event(3, "c")));
+
+            assertTrue(result.isSuccess(), "La projection doit réussir");
+            assertEquals("abc", result.getProjection(), "Les événements doivent être appliqués dans l'ordre");
+            assertEquals(Optional.of("abc"), acc.current(), "L'état courant doit être le dernier projeté");
+            assertEquals(3L, acc.lastSequence(), "La dernière séquence doit être celle du dernier événement");
+        }
+
+        @Test
+        @DisplayName("Doit partir de l'état courant")
+        void shouldStartFromCurrentState() {
+            final ProjectionAccumulator<String> acc = new ProjectionAccumulator<>(Optional.of("x"), 0L);
+
+            assertEquals("xa", projector.fold(acc, List.of(event(1, "a"))).getProjection(),
+                    "L'événement doit s'appliquer à l'état courant");
+        }
+
+        @Test
+        @DisplayName("Doit ignorer les événements périmés")
+        void shouldSkipStaleEvents() {
+            final ProjectionAccumulator<String> acc = new ProjectionAccumulator<>(Optional.of("ab"), 2L);
+
+            final ProjectionResult<String> result = projector.fold(acc,
+                    List.of(event(1, "a"), event(2, "b"), event(3, "c")));
+
+            assertEquals("abc", result.getProjection(), "Seul l'événement récent doit être appliqué");
+            assertEquals(List.of(3L), projector.projected, "Les événements périmés ne doivent pas être projetés");
+        }
+
+        @Test
+        @DisplayName("Doit renvoyer un no-op si aucun événement n'est appliqué")
+        void shouldReturnNoOpWithoutEvents() {
+            final ProjectionAccumulator<String> acc = new ProjectionAccumulator<>(Optional.of("ab"), 2L);
+
+            final ProjectionResult<String> result = projector.fold(acc, List.of(event(1, "a"), event(2, "b")));
+
+            assertTrue(result.isNoOp(), "Aucun événement appliqué doit donner un no-op");
+            assertEquals(Optional.of("ab"), acc.current(), "L'état courant ne doit pas changer");
+        }
+
+        @Test
+        @DisplayName("Doit renvoyer un no-op depuis projectAll si tous les événements sont périmés")
+        void shouldReturnNoOpFromProjectAllWhenAllStale() {
+            final ProjectionResult<String> result = projector.projectAll(Optional.of("ab"),
+                    List.of(event(1, "a"), event(2, "b")), 2L);
+
+            // Not a success holding the current state: the caller must not save it again
+            assertTrue(result.isNoOp(), "Des événements tous périmés doivent donner un no-op");
+            assertFalse(result.isSuccess(), "L'état courant ne doit pas être renvoyé comme un succès");
+            assertTrue(projector.projected.isEmpty(), "Aucun événement périmé ne doit être projeté");
+        }
+
+        @Test
+        @DisplayName("Doit renvoyer un no-op depuis projectAll si tous les événements sont des no-op")
+        void shouldReturnNoOpFromProjectAllWhenAllNoOp() {
+            final ProjectionResult<String> result = projector.projectAll(Optional.of("ab"),
+                    List.of(event(3, "skip"), event(4, "skip")), 2L);
+
+            assertTrue(result.isNoOp(), "Des événements sans effet doivent donner un no-op");
+            assertEquals(List.of(3L, 4L), projector.projected, "Les événements récents doivent être projetés");
+        }
+
+        @Test
+        @DisplayName("Doit garder l'état et le résultat précédents sur un no-op")
+        void shouldKeepPreviousResultOnNoOp() {
+            final ProjectionAccumulator<String> acc = new ProjectionAccumulator<>(Optional.empty(), 0L);
+
+            final ProjectionResult<String> result = projector.fold(acc,
+                    List.of(event(1, "a"), event(2, "skip"), event(3, "c")));
+
+            assertEquals("ac", result.getProjection(), "Le no-op ne doit pas changer l'état");
+            assertEquals(3L, acc.lastSequence(), "Le no-op doit tout de même avancer la séquence");
+        }
+    }
+
+    @Nested
+    @DisplayName("Échec d'une projection")
+    class FailureTests {
+
+        @Test
+        @DisplayName("Doit s'arrêter au premier échec sans projeter les événements suivants")
+        void shouldStopAtFirstFailure() {
+            final ProjectionAccumulator<String> acc = new ProjectionAccumulator<>(Optional.empty(), 0L);
+
+            final ProjectionResult<String> result = projector.fold(acc,
+                    List.of(event(1, "a"), event(2, "fail"), event(3, "c")));
+
+            assertTrue(result.isFailure(), "Le résultat doit être l'échec");
+            assertEquals("Failed on 2", result.getError(), "L'erreur doit être celle du premier échec");
+            assertEquals(List.of(1L, 2L), projector.projected, "Les événements suivants ne doivent pas être projetés");
+            assertEquals(Optional.of("a"), acc.current(), "L'état doit rester celui d'avant l'échec");
+            assertEquals(2L, acc.lastSequence(), "La séquence doit rester celle de l'échec");
+        }
+
+        @Test
+        @DisplayName("Doit refuser les événements acceptés après un échec")
+        void shouldRejectEventsAfterFailure() {
+            final ProjectionAccumulator<String> acc = new ProjectionAccumulator<>(Optional.empty(), 0L);
+            assertFalse(acc.accept(projector, event(1, "fail")), "L'échec doit arrêter l'accumulation");
+
+            // Regression: a later event used to be projected past the failure and overwrite its result
+            assertFalse(acc.accept(projector, event(2, "b")), "Un événement après l'échec doit être refusé");
+
+            assertTrue(acc.result().isFailure(), "Le résultat doit rester l'échec");
+            assertEquals(List.of(1L), projector.projected, "L'événement après l'échec ne doit pas être projeté");
+            assertEquals(1L, acc.lastSequence(), "La séquence ne doit pas avancer après l'échec");
+        }
+
+        @Test
+        @DisplayName("Doit renvoyer l'échec depuis projectAll avec une version initiale")
+        void shouldReturnFailureFromProjectAll() {
+            final ProjectionResult<String> result = projector.projectAll(Optional.of("ab"),
+                    List.of(event(2, "b"), event(3, "fail"), event(4, "d")), 2L);
+
+            assertTrue(result.isFailure(), "Le résultat doit être l'échec");
+            assertEquals(List.of(3L), projector.projected, "Seul l'événement en échec doit être projeté");
+        }
+    }
+}
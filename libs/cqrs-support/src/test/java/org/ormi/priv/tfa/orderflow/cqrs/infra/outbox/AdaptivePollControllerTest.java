@@ -0,0 +1,161 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.outbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.outbox.AdaptivePollController.Reason;
+
+/**
+ * Tests unitaires du réglage adaptatif de la taille des lots et de l'intervalle de scrutation de l'outbox.
+ */
+@DisplayName("AdaptivePollController - Tests unitaires")
+class AdaptivePollControllerTest {
+
+    private static final long BASE_INTERVAL_MS = 100;
+    private static final long MAX_INTERVAL_MS = 1000;
+    private static final long FAST_FETCH_MS = 5;
+
+    private AdaptivePollController controller;
+
+    @BeforeEach
+    void setUp() {
+        controller = new AdaptivePollController(BASE_INTERVAL_MS, MAX_INTERVAL_MS);
+    }
+
+    /**
+     * Fetches full batches while the queues drain until the batch size reaches the given value.
+     */
+    private void growTo(int batchSize) {
+        while (controller.batchSize() < batchSize) {
+            controller.onFetch(controller.batchSize(), controller.batchSize(), FAST_FETCH_MS, 0);
+        }
+    }
+
+    @Test
+    @DisplayName("Doit démarrer au plus petit lot et à l'intervalle de base")
+    void shouldStartWithMinimumBatchAndBaseInterval() {
+        assertEquals(AdaptivePollController.MIN_BATCH_SIZE, controller.batchSize(), "Le lot initial doit être minimal");
+        assertEquals(BASE_INTERVAL_MS, controller.intervalMs(), "L'intervalle initial doit être celui de base");
+    }
+
+    @Nested
+    @DisplayName("Croissance")
+    class GrowthTests {
+
+        @Test
+        @DisplayName("Doit doubler le lot et scruter au plus vite quand un lot plein est absorbé")
+        void shouldDoubleBatchOnBacklog() {
+            final Reason reason = controller.onFetch(10, 10, FAST_FETCH_MS, 0);
+
+            assertEquals(Reason.BACKLOG, reason, "Un lot plein absorbé signale un arriéré");
+            assertEquals(20, controller.batchSize(), "Le lot doit doubler");
+            assertEquals(AdaptivePollController.MIN_INTERVAL_MS, controller.intervalMs(),
+                    "L'intervalle doit tomber au minimum");
+        }
+
+        @Test
+        @DisplayName("Doit plafonner le lot à la taille maximale")
+        void shouldCapBatchSize() {
+            growTo(AdaptivePollController.MAX_BATCH_SIZE);
+
+            assertEquals(AdaptivePollController.MAX_BATCH_SIZE, controller.batchSize(), "Le lot doit être plafonné");
+            assertNull(controller.onFetch(500, 500, FAST_FETCH_MS, 0), "Aucun réglage ne doit changer au plafond");
+            assertEquals(AdaptivePollController.MAX_BATCH_SIZE, controller.batchSize(), "Le lot doit rester plafonné");
+        }
+
+        @Test
+        @DisplayName("Doit ralentir sans grossir le lot quand les files des partitions s'allongent")
+        void shouldSlowDownWhenQueuesGrow() {
+            controller.onFetch(10, 10, FAST_FETCH_MS, 0);
+
+            final Reason reason = controller.onFetch(20, 20, FAST_FETCH_MS, 50);
+
+            assertEquals(Reason.QUEUES_SATURATED, reason, "Des files qui s'allongent signalent une saturation");
+            assertEquals(20, controller.batchSize(), "Le lot ne doit pas grossir");
+            assertEquals(20, controller.intervalMs(), "L'intervalle doit doubler");
+        }
+
+        @Test
+        @DisplayName("Doit borner le ralentissement des files saturées à l'intervalle de base")
+        void shouldBoundSaturationBackoffToBaseInterval() {
+            controller.onFetch(10, 10, FAST_FETCH_MS, 0);
+            int depth = 50;
+            for (int i = 0; i < 10; i++) {
+                depth += 50;
+                controller.onFetch(20, 20, FAST_FETCH_MS, depth);
+            }
+
+            assertEquals(BASE_INTERVAL_MS, controller.intervalMs(), "L'intervalle ne doit pas dépasser la base");
+            assertNull(controller.onFetch(20, 20, FAST_FETCH_MS, depth + 50), "Aucun réglage ne doit changer");
+        }
+    }
+
+    @Nested
+    @DisplayName("Réduction")
+    class ShrinkTests {
+
+        @Test
+        @DisplayName("Doit réduire de moitié le lot et revenir à la base quand la lecture est lente")
+        void shouldHalveBatchOnSlowFetch() {
+            growTo(80);
+
+            final Reason reason = controller.onFetch(80, 80,
+                    AdaptivePollController.FETCH_LATENCY_THRESHOLD_MS + 1, 0);
+
+            assertEquals(Reason.FETCH_LATENCY, reason, "Une lecture lente doit être signalée");
+            assertEquals(40, controller.batchSize(), "Le lot doit être réduit de moitié");
+            assertEquals(BASE_INTERVAL_MS, controller.intervalMs(), "L'intervalle doit revenir à la base");
+        }
+
+        @Test
+        @DisplayName("Doit réduire le lot et espacer la scrutation jusqu'au maximum quand l'outbox est vide")
+        void shouldBackOffWhenIdle() {
+            growTo(AdaptivePollController.MAX_BATCH_SIZE);
+
+            assertEquals(Reason.IDLE, controller.onFetch(0, 500, FAST_FETCH_MS, 0), "Une lecture vide signale l'inactivité");
+            assertEquals(250, controller.batchSize(), "Le lot doit être réduit de moitié");
+            assertEquals(BASE_INTERVAL_MS, controller.intervalMs(), "L'intervalle doit repartir de la base");
+
+            while (controller.onFetch(0, controller.batchSize(), FAST_FETCH_MS, 0) != null) {
+                // Backs off until nothing changes anymore
+            }
+
+            assertEquals(AdaptivePollController.MIN_BATCH_SIZE, controller.batchSize(), "Le lot doit être minimal");
+            assertEquals(MAX_INTERVAL_MS, controller.intervalMs(), "L'intervalle doit atteindre le maximum");
+        }
+
+        @Test
+        @DisplayName("Doit revenir à l'intervalle de base après un lot partiel")
+        void shouldReturnToBaseIntervalWhenCaughtUp() {
+            controller.onFetch(10, 10, FAST_FETCH_MS, 0);
+
+            final Reason reason = controller.onFetch(5, 20, FAST_FETCH_MS, 0);
+
+            assertEquals(Reason.CAUGHT_UP, reason, "Un lot partiel signale le rattrapage");
+            assertEquals(20, controller.batchSize(), "Le lot ne doit pas changer");
+            assertEquals(BASE_INTERVAL_MS, controller.intervalMs(), "L'intervalle doit revenir à la base");
+        }
+    }
+
+    @Nested
+    @DisplayName("Files pleines sans lecture")
+    class SaturatedTests {
+
+        @Test
+        @DisplayName("Doit doubler l'intervalle jusqu'à la base puis ne plus rien changer")
+        void shouldDoubleIntervalUpToBase() {
+            controller.onFetch(10, 10, FAST_FETCH_MS, 0);
+
+            assertEquals(Reason.QUEUES_SATURATED, controller.onSaturated(), "La saturation doit être signalée");
+            assertEquals(20, controller.intervalMs(), "L'intervalle doit doubler");
+            while (controller.onSaturated() != null) {
+                // Slows down until the base interval
+            }
+            assertEquals(BASE_INTERVAL_MS, controller.intervalMs(), "L'intervalle ne doit pas dépasser la base");
+            assertEquals(20, controller.batchSize(), "Le lot ne doit pas changer");
+        }
+    }
+}
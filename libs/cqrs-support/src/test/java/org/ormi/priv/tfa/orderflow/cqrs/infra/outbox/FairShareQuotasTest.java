@@ -0,0 +1,110 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.outbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests unitaires du partage équitable du lot de l'outbox entre les types d'agrégat.
+ */
+@DisplayName("FairShareQuotas - Tests unitaires")
+class FairShareQuotasTest {
+
+    private final FairShareQuotas quotas = new FairShareQuotas(List.of("Product", "Catalog", "Order"));
+
+    @Nested
+    @DisplayName("Sans historique")
+    class FirstFetchTests {
+
+        @Test
+        @DisplayName("Doit partager le lot à parts égales")
+        void shouldSplitEvenly() {
+            assertEquals(Map.of("Product", 30, "Catalog", 30, "Order", 30), quotas.allocate(90),
+                    "Chaque type doit recevoir un tiers du lot");
+        }
+
+        @Test
+        @DisplayName("Doit distribuer tout le lot quand il ne se divise pas exactement")
+        void shouldAllocateWholeBatch() {
+            final Map<String, Integer> allocated = quotas.allocate(100);
+
+            assertEquals(100, allocated.values().stream().mapToInt(Integer::intValue).sum(),
+                    "Le lot entier doit être distribué");
+            allocated.values().forEach(quota -> assertTrue(quota == 33 || quota == 34, "Les parts doivent être égales"));
+        }
+
+        @Test
+        @DisplayName("Doit garder au moins un message par type quand le lot est plus petit que le nombre de types")
+        void shouldKeepMinimumQuota() {
+            quotas.allocate(2).forEach((type, quota) -> assertEquals(FairShareQuotas.MIN_QUOTA, quota,
+                    "Chaque type doit rester interrogé"));
+        }
+
+        @Test
+        @DisplayName("Doit donner tout le lot à un type seul")
+        void shouldGiveWholeBatchToSingleType() {
+            assertEquals(Map.of("Product", 90), new FairShareQuotas(List.of("Product")).allocate(90),
+                    "Un type seul doit recevoir tout le lot");
+        }
+    }
+
+    @Nested
+    @DisplayName("Après une lecture")
+    class DemandTests {
+
+        @Test
+        @DisplayName("Doit redistribuer la part d'un type inactif aux types chargés")
+        void shouldShareIdleTypeQuota() {
+            final Map<String, Integer> first = quotas.allocate(90);
+            quotas.onFetched(first, Map.of("Catalog", 30, "Order", 30));
+
+            final Map<String, Integer> second = quotas.allocate(90);
+
+            assertEquals(FairShareQuotas.MIN_QUOTA, second.get("Product"), "Le type inactif doit garder le minimum");
+            assertEquals(89, second.get("Catalog") + second.get("Order"), "Le reste doit aller aux types chargés");
+            assertTrue(Math.abs(second.get("Catalog") - second.get("Order")) <= 1,
+                    "Les types chargés doivent se partager le reste à parts égales");
+        }
+
+        @Test
+        @DisplayName("Doit limiter un type peu chargé au double de ce qu'il a lu")
+        void shouldBoundPartialDemand() {
+            final Map<String, Integer> first = quotas.allocate(90);
+            quotas.onFetched(first, Map.of("Product", 10, "Catalog", 30, "Order", 30));
+
+            final Map<String, Integer> second = quotas.allocate(90);
+
+            assertEquals(20, second.get("Product"), "La demande estimée doit être le double de la lecture");
+            assertEquals(35, second.get("Catalog"), "Le reste doit être partagé");
+            assertEquals(35, second.get("Order"), "Le reste doit être partagé");
+        }
+
+        @Test
+        @DisplayName("Doit rendre sa part à un type qui se réveille")
+        void shouldRestoreShareOfWakingType() {
+            final Map<String, Integer> first = quotas.allocate(90);
+            quotas.onFetched(first, Map.of("Catalog", 30, "Order", 30));
+            final Map<String, Integer> second = quotas.allocate(90);
+            quotas.onFetched(second, Map.of("Product", 1, "Catalog", second.get("Catalog"), "Order",
+                    second.get("Order")));
+
+            assertEquals(Map.of("Product", 30, "Catalog", 30, "Order", 30), quotas.allocate(90),
+                    "Un type ayant rempli son quota doit retrouver sa part");
+        }
+
+        @Test
+        @DisplayName("Ne doit pas dépasser le lot quand tous les types sont peu chargés")
+        void shouldNotExceedBatch() {
+            final Map<String, Integer> first = quotas.allocate(90);
+            quotas.onFetched(first, Map.of("Product", 5, "Catalog", 5, "Order", 5));
+
+            assertEquals(Map.of("Product", 10, "Catalog", 10, "Order", 10), quotas.allocate(90),
+                    "Chaque type doit recevoir sa demande estimée");
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.outbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests unitaires du registre des messages de l'outbox en cours de traitement.
+ */
+@DisplayName("InFlightRegistry - Tests unitaires")
+class InFlightRegistryTest {
+
+    private final InFlightRegistry registry = new InFlightRegistry();
+
+    @Test
+    @DisplayName("Doit refuser un message déjà en cours de traitement")
+    void shouldSkipMessageAlreadyInFlight() {
+        assertTrue(registry.tryAcquire(1L, 3), "Le premier enregistrement doit réussir");
+
+        assertFalse(registry.tryAcquire(1L, 3), "Un message déjà en cours ne doit pas être resoumis");
+        assertEquals(1, registry.size(), "Le message ne doit être compté qu'une fois");
+    }
+
+    @Test
+    @DisplayName("Doit accepter de nouveau un message une fois libéré")
+    void shouldAcquireAgainAfterRelease() {
+        registry.tryAcquire(1L, 3);
+
+        registry.release(1L);
+
+        assertEquals(0, registry.size(), "Le registre doit être vide");
+        assertTrue(registry.tryAcquire(1L, 3), "Un message libéré doit pouvoir être resoumis");
+    }
+
+    @Test
+    @DisplayName("Doit suivre les messages en cours par partition de bail")
+    void shouldTrackInFlightPerLeasePartition() {
+        registry.tryAcquire(1L, 3);
+        registry.tryAcquire(2L, 3);
+        registry.tryAcquire(3L, 5);
+        registry.tryAcquire(1L, 3);
+
+        registry.release(1L);
+
+        assertFalse(registry.isDrained(3), "La partition 3 a encore un message en cours");
+        assertFalse(registry.isDrained(5), "La partition 5 a encore un message en cours");
+        registry.release(2L);
+        assertTrue(registry.isDrained(3), "La partition 3 doit être vidée");
+        assertTrue(registry.isDrained(7), "Une partition sans message doit être vidée");
+    }
+
+    @Test
+    @DisplayName("Doit ignorer la libération d'un message inconnu")
+    void shouldIgnoreUnknownRelease() {
+        registry.tryAcquire(1L, 3);
+
+        registry.release(2L);
+        registry.release(1L);
+        registry.release(1L);
+
+        assertEquals(0, registry.size(), "Le registre doit être vide");
+        assertTrue(registry.isDrained(3), "Le compteur de la partition ne doit pas devenir négatif");
+        assertTrue(registry.tryAcquire(4L, 3), "La partition doit rester utilisable");
+        assertFalse(registry.isDrained(3), "La partition doit compter le nouveau message");
+    }
+}
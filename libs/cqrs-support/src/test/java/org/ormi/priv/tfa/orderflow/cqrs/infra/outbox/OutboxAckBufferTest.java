@@ -0,0 +1,159 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.outbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.jpa.OutboxEntity;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxRepository;
+
+/**
+ * Tests unitaires de l'écriture par lots des acquittements de l'outbox.
+ */
+@DisplayName("OutboxAckBuffer - Tests unitaires")
+class OutboxAckBufferTest {
+
+    private static final OutboxRepository.RetryPolicy RETRY_POLICY = new OutboxRepository.RetryPolicy(5, 100, 1000);
+
+    private final RecordingOutboxRepository outbox = new RecordingOutboxRepository();
+    private final List<Long> acknowledged = new CopyOnWriteArrayList<>();
+    private final OutboxAckBuffer buffer = new OutboxAckBuffer(outbox, RETRY_POLICY, acknowledged::add);
+
+    @AfterEach
+    void tearDown() {
+        buffer.stop();
+    }
+
+    @Test
+    @DisplayName("Doit écrire les acquittements et les échecs en un lot chacun")
+    void shouldFlushInOneBatchEach() {
+        buffer.ack(1L);
+        buffer.ack(2L);
+        buffer.fail(3L, "boom");
+        buffer.ack(4L);
+
+        buffer.flush();
+
+        assertEquals(List.of(List.of(1L, 2L, 4L)), outbox.deletes, "Les acquittements doivent partir en un DELETE");
+        assertEquals(List.of(List.of(new OutboxRepository.Failure(3L, "boom"))), outbox.failures,
+                "Les échecs doivent partir en une mise à jour");
+        assertEquals(List.of(1L, 2L, 4L, 3L), acknowledged, "Chaque message écrit doit être libéré");
+    }
+
+    @Test
+    @DisplayName("Ne doit rien écrire quand rien n'est en attente")
+    void shouldNotWriteWhenEmpty() {
+        buffer.flush();
+
+        assertTrue(outbox.deletes.isEmpty(), "Aucun DELETE ne doit être émis");
+        assertTrue(outbox.failures.isEmpty(), "Aucune mise à jour ne doit être émise");
+    }
+
+    @Test
+    @DisplayName("Doit écrire le lot dès que le seuil de taille est atteint")
+    void shouldFlushOnSizeThreshold() throws InterruptedException {
+        outbox.expectedDeletes = new CountDownLatch(1);
+
+        LongStream.range(0, OutboxAckBuffer.FLUSH_SIZE).forEach(buffer::ack);
+
+        assertTrue(outbox.expectedDeletes.await(5, TimeUnit.SECONDS), "Le seuil doit déclencher l'écriture");
+        assertEquals(OutboxAckBuffer.FLUSH_SIZE, outbox.deletes.get(0).size(), "Le lot doit être complet");
+    }
+
+    @Test
+    @DisplayName("Doit garder les messages en cours et réessayer quand l'écriture échoue")
+    void shouldRetryFailedWrite() {
+        buffer.ack(1L);
+        outbox.failNextDelete = true;
+
+        buffer.flush();
+
+        assertTrue(acknowledged.isEmpty(), "Un message non acquitté doit rester en cours");
+        buffer.ack(2L);
+        buffer.flush();
+        assertEquals(List.of(List.of(1L, 2L)), outbox.deletes, "Le message doit être réécrit au lot suivant");
+        assertEquals(List.of(1L, 2L), acknowledged, "Les messages doivent être libérés une fois écrits");
+    }
+
+    @Test
+    @DisplayName("Doit écrire ce qui reste à l'arrêt")
+    void shouldFlushOnStop() {
+        buffer.start();
+        buffer.ack(1L);
+
+        buffer.stop();
+
+        assertEquals(List.of(1L), acknowledged, "Le message doit être acquitté à l'arrêt");
+    }
+
+    /**
+     * Records the batch writes, optionally failing the next DELETE.
+     */
+    private static class RecordingOutboxRepository implements OutboxRepository {
+
+        final List<List<Long>> deletes = new CopyOnWriteArrayList<>();
+        final List<List<Failure>> failures = new CopyOnWriteArrayList<>();
+        volatile boolean failNextDelete;
+        volatile CountDownLatch expectedDeletes = new CountDownLatch(0);
+
+        @Override
+        public void deleteAllById(Collection<Long> ids) {
+            if (failNextDelete) {
+                failNextDelete = false;
+                throw new IllegalStateException("Connection lost");
+            }
+            if (!ids.isEmpty()) {
+                deletes.add(new ArrayList<>(ids));
+                expectedDeletes.countDown();
+            }
+        }
+
+        @Override
+        public void markAllFailed(Collection<Failure> failed, RetryPolicy policy) {
+            if (!failed.isEmpty()) {
+                failures.add(new ArrayList<>(failed));
+            }
+        }
+
+        @Override
+        public void publish(OutboxEntity entity) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<OutboxEntity> fetchReadyByAggregateTypesOrderByAggregateVersion(Map<String, Integer> limits,
+                Collection<Integer> partitions, int maxRetries) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void delete(OutboxEntity entity) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void markFailed(OutboxEntity entity, String err) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void markFailed(OutboxEntity entity, String err, int retryAfter) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Backlog backlog(String aggregateType) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.outbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests unitaires des files bornées des voies d'exécution du relais de l'outbox.
+ */
+@DisplayName("PartitionLanes - Tests unitaires")
+class PartitionLanesTest {
+
+    private static final int QUEUE_CAPACITY = 2;
+
+    private PartitionLanes lanes;
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        lanes = PartitionLanes.platform(2, QUEUE_CAPACITY);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        lanes.shutdownNow();
+    }
+
+    /**
+     * Occupies the thread of a lane until the test ends.
+     */
+    private void block(int lane) throws InterruptedException {
+        lanes.submit(lane, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS), "La voie doit avoir démarré la tâche bloquante");
+    }
+
+    @Test
+    @DisplayName("Doit rejeter une tâche quand la file de la voie est pleine")
+    void shouldRejectWhenQueueIsFull() throws InterruptedException {
+        block(0);
+        lanes.submit(0, () -> {
+        });
+        lanes.submit(0, () -> {
+        });
+
+        assertEquals(0, lanes.remainingCapacity(0), "La file doit être pleine");
+        assertThrows(RejectedExecutionException.class, () -> lanes.submit(0, () -> {
+        }), "Une file pleine doit refuser la tâche");
+    }
+
+    @Test
+    @DisplayName("Doit laisser les autres voies accepter des tâches quand une file est pleine")
+    void shouldKeepOtherLanesAvailable() throws InterruptedException {
+        block(0);
+        lanes.submit(0, () -> {
+        });
+        lanes.submit(0, () -> {
+        });
+
+        assertEquals(QUEUE_CAPACITY, lanes.remainingCapacity(1), "L'autre voie doit être vide");
+        assertEquals(QUEUE_CAPACITY, lanes.totalRemainingCapacity(), "Seule l'autre voie doit avoir de la place");
+        assertEquals(QUEUE_CAPACITY, lanes.maxQueueDepth(), "La file la plus profonde doit être pleine");
+        assertEquals(QUEUE_CAPACITY, lanes.totalQueueDepth(), "Seules les tâches en attente doivent être comptées");
+    }
+
+    @Test
+    @DisplayName("Doit lire le mode quelle que soit la langue par défaut")
+    void shouldParseModeWhateverTheDefaultLocale() {
+        final Locale defaultLocale = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+
+            assertEquals(PartitionLanes.Mode.VIRTUAL, PartitionLanes.Mode.of(" virtual "), "Le mode doit être lu");
+            assertEquals(PartitionLanes.Mode.PLATFORM, PartitionLanes.Mode.of("platform"), "Le mode doit être lu");
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    @DisplayName("Doit toujours affecter un agrégat à la même voie")
+    void shouldHashAggregateToSameLane() {
+        final UUID aggregateId = UUID.randomUUID();
+
+        final int lane = lanes.laneOf(aggregateId);
+
+        assertTrue(lane >= 0 && lane < lanes.count(), "La voie doit exister");
+        assertEquals(lane, lanes.laneOf(UUID.fromString(aggregateId.toString())), "La voie doit être stable");
+    }
+}
@@ -0,0 +1,101 @@
+package org.ormi.priv.tfa.orderflow.kernel.product.views;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductEventV1.ProductEventV1Payload;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView.ProductViewEvent;
+
+/**
+ * Compares the event history of a product view kept as a persistent history with the former copy and sort of the
+ * whole list on every projected event.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductViewHistoryBenchmark {
+
+    @Param({ "10", "1000", "10000" })
+    public int events;
+
+    private ProductViewEvent[] replay;
+    private ProductViewEvent late;
+    private List<ProductViewEvent> list;
+    private ProductViewHistory history;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Instant now = Instant.now();
+        final ProductEventV1Payload payload = new ProductEventV1Payload.Empty();
+        replay = new ProductViewEvent[events];
+        for (int i = 0; i < events; i++) {
+            replay[i] = new ProductViewEvent(ProductEventType.PRODUCT_NAME_UPDATED, now, (long) i + 1, payload);
+        }
+        // The event before the latest one arrives last, as on a redelivery
+        late = replay[events - 2];
+        list = Stream.of(replay)
+                .filter(e -> e != late)
+                .toList();
+        history = ProductViewHistory.copyOf(list);
+    }
+
+    /**
+     * Whole life of a product, one event projected at a time.
+     */
+    @Benchmark
+    public List<ProductViewEvent> replayCopyAndSort() {
+        List<ProductViewEvent> current = List.of();
+        for (ProductViewEvent event : replay) {
+            current = mergeEvents(current, event);
+        }
+        return current;
+    }
+
+    @Benchmark
+    public List<ProductViewEvent> replayPersistent() {
+        ProductViewHistory current = ProductViewHistory.empty();
+        for (ProductViewEvent event : replay) {
+            current = current.with(event);
+        }
+        return current;
+    }
+
+    /**
+     * One event arriving behind the latest one.
+     */
+    @Benchmark
+    public List<ProductViewEvent> outOfOrderCopyAndSort() {
+        return mergeEvents(list, late);
+    }
+
+    @Benchmark
+    public List<ProductViewEvent> outOfOrderPersistent() {
+        return history.with(late);
+    }
+
+    private static List<ProductViewEvent> mergeEvents(List<ProductViewEvent> existingEvents,
+            ProductViewEvent newEvent) {
+        return Stream.concat(existingEvents.stream(), Stream.of(newEvent))
+                .sorted(Comparator.comparingLong(ProductViewEvent::getSequence))
+                .toList();
+    }
+}
@@ -1,20 +1,65 @@
 package org.ormi.priv.tfa.orderflow.kernel.product.persistence;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import org.ormi.priv.tfa.orderflow.kernel.product.ProductId;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductLifecycle;
 import org.ormi.priv.tfa.orderflow.kernel.product.SkuId;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductSummaryRow;
 import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView.ProductViewEvent;
 
 /**
  * Repository pour la lecture et la recherche des vues de produits (Read Model). Offre des fonctionnalités de recherche paginée.
+ *
+ * Une vue ne porte que ses derniers événements, l'historique complet se consulte page par page.
+ * La recherche se pagine par clé ({@link ProductViewSearch}), la pagination par numéro de page reste pour les clients
+ * existants : les pages des recherches par motif de SKU sont numérotées à partir de 1, la page 0 étant aussi la
+ * première. Les listes ne lisent que des résumés ({@link ProductSummaryRow}).
  */
 
 public interface ProductViewRepository {
     void save(ProductView productView);
+    default void saveAll(Collection<ProductView> productViews) {
+        productViews.forEach(this::save);
+    }
     Optional<ProductView> findById(ProductId id);
     Optional<ProductView> findBySkuId(SkuId skuId);
     long countPaginatedViewsBySkuIdPattern(String skuIdPattern);
+    Map<ProductLifecycle, Long> countViewsByStatus();
     List<ProductView> searchPaginatedViewsOrderBySkuId(String skuIdPattern, int page, int size);
+    List<ProductView> searchViews(ProductViewSearch search);
+    default List<ProductSummaryRow> searchPaginatedSummariesOrderBySkuId(String skuIdPattern, int page, int size) {
+        return searchPaginatedViewsOrderBySkuId(skuIdPattern, page, size).stream()
+                .map(ProductSummaryRow::of)
+                .toList();
+    }
+    default List<ProductSummaryRow> searchSummaries(ProductViewSearch search) {
+        return searchViews(search).stream()
+                .map(ProductSummaryRow::of)
+                .toList();
+    }
+    /**
+     * Gets the index of the first view of a page of a search by SKU pattern, pages being numbered from 1.
+     */
+    static long offsetOf(int page, int size) {
+        return (long) Math.max(page - 1, 0) * size;
+    }
+    default long estimateViewsBySkuIdPattern(String skuIdPattern) {
+        return countPaginatedViewsBySkuIdPattern(skuIdPattern);
+    }
+    List<ProductViewEvent> findPaginatedEventsOrderBySequence(ProductId id, int page, int size);
+    long countEvents(ProductId id);
+    /**
+     * Gets a stage completed once the views saved so far are durable, already completed when they are on return of
+     * {@link #save}.
+     */
+    default CompletionStage<Void> durable() {
+        return CompletableFuture.completedStage(null);
+    }
 }
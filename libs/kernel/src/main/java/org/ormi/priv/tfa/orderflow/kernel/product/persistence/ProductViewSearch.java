@@ -0,0 +1,65 @@
+package org.ormi.priv.tfa.orderflow.kernel.product.persistence;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductLifecycle;
+import org.ormi.priv.tfa.orderflow.kernel.product.SkuId;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductSummaryRow;
+
+/**
+ * Page d'une recherche de vues produit par motif de SKU, paginée par clé (keyset) : la page suivante reprend après la
+ * clé de tri et l'identifiant de la dernière vue lue, sans relire les précédentes.
+ */
+
+public record ProductViewSearch(
+        String skuIdPattern,
+        SortKey sort,
+        boolean descending,
+        Optional<Cursor> after,
+        int size) {
+
+    public enum SortKey {
+        SKU_ID,
+        NAME,
+        UPDATED_AT,
+        STATUS;
+
+        /**
+         * Clé de tri d'une ligne de résultat, telle que portée par un curseur.
+         */
+        public String keyOf(ProductSummaryRow row) {
+            return switch (this) {
+                case SKU_ID -> row.skuId();
+                case NAME -> row.name();
+                case UPDATED_AT -> row.updatedAt().toString();
+                case STATUS -> row.status().name();
+            };
+        }
+
+        /**
+         * Valeur de la colonne de tri d'une clé portée par un curseur.
+         *
+         * @throws IllegalArgumentException si la clé n'est pas de ce tri
+         */
+        public Comparable<?> parseKey(String key) {
+            try {
+                return switch (this) {
+                    case SKU_ID -> new SkuId(key).value();
+                    case NAME -> key;
+                    case UPDATED_AT -> Instant.parse(key);
+                    case STATUS -> ProductLifecycle.valueOf(key);
+                };
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid " + this + " key: " + key, e);
+            }
+        }
+    }
+
+    /**
+     * Position après la dernière vue d'une page.
+     */
+    public record Cursor(String key, UUID id) {
+    }
+}
@@ -0,0 +1,27 @@
+package org.ormi.priv.tfa.orderflow.kernel.product.views;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductLifecycle;
+
+/**
+ * Ligne de résultat d'une recherche de produits : les seules colonnes affichées par les listes, lues telles quelles
+ * sans désérialiser les événements ni les catalogues de la vue. Les valeurs ont été validées à l'écriture de la vue.
+ *
+ * La date de mise à jour sert au curseur de la page suivante lorsque la recherche est triée dessus.
+ */
+
+public record ProductSummaryRow(
+        UUID id,
+        String skuId,
+        String name,
+        ProductLifecycle status,
+        int catalogs,
+        Instant updatedAt) {
+
+    public static ProductSummaryRow of(ProductView view) {
+        return new ProductSummaryRow(view.getId().value(), view.getSkuId().value(), view.getName(), view.getStatus(),
+                view.getCatalogs().size(), view.getUpdatedAt());
+    }
+}
@@ -37,7 +37,7 @@ public class ProductView {
     @NotNull
     private final List<ProductViewCatalogRef> catalogs;
     @NotNull
-    private final List<ProductViewEvent> events;
+    private final ProductViewHistory events;
     @NotNull
     private final Instant createdAt;
     @NotNull
@@ -51,7 +51,7 @@ public class ProductView {
         String description,
         ProductLifecycle status,
         List<ProductViewCatalogRef> catalogs,
-        List<ProductViewEvent> events,
+        ProductViewHistory events,
         Instant createdAt,
         Instant updatedAt
     ) {
@@ -72,6 +72,9 @@ public class ProductView {
     }
 
     public static final class ProductViewBuilder {
+        // Thread-safe, building a factory per view is far more expensive than the validation itself
+        private static final Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
+
         private ProductId id;
         private Long version;
         private SkuId skuId;
@@ -79,7 +82,7 @@ public class ProductView {
         private String description;
         private ProductLifecycle status;
         private List<ProductViewCatalogRef> catalogs;
-        private List<ProductViewEvent> events;
+        private ProductViewHistory events;
         private Instant createdAt;
         private Instant updatedAt;
 
@@ -119,7 +122,7 @@ public class ProductView {
         }
 
         public ProductViewBuilder events(List<ProductViewEvent> events) {
-            this.events = events;
+            this.events = events == null ? null : ProductViewHistory.copyOf(events);
             return this;
         }
 
@@ -149,8 +152,7 @@ public class ProductView {
 
         public ProductView build() throws ConstraintViolationException {
             ProductView view = new ProductView(id, version, skuId, name, description, status, catalogs, events, createdAt, updatedAt);
-            final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
-            final var violations = validator.validate(view);
+            final var violations = VALIDATOR.validate(view);
             if (!violations.isEmpty()) {
                 throw new ConstraintViolationException(violations);
             }
@@ -0,0 +1,147 @@
+package org.ormi.priv.tfa.orderflow.kernel.product.views;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView.ProductViewEvent;
+
+/**
+ * Historique immuable des événements d'une vue produit, trié par séquence.
+ *
+ * Les versions successives partagent le même tableau : ajouter un événement en ordre à la dernière version occupe la
+ * case suivante sans copie. Seuls un ajout sur une version antérieure ou un événement hors ordre copient l'historique.
+ */
+public final class ProductViewHistory extends AbstractList<ProductViewEvent> implements RandomAccess {
+
+    private static final int MIN_CAPACITY = 8;
+    private static final ProductViewHistory EMPTY = new ProductViewHistory(new Buffer(new ProductViewEvent[0]), 0, 0);
+
+    private final Buffer buffer;
+    private final int from;
+    private final int to;
+
+    private ProductViewHistory(Buffer buffer, int from, int to) {
+        this.buffer = buffer;
+        this.from = from;
+        this.to = to;
+    }
+
+    public static ProductViewHistory empty() {
+        return EMPTY;
+    }
+
+    public static ProductViewHistory of(ProductViewEvent event) {
+        return EMPTY.with(event);
+    }
+
+    /**
+     * Gets the history of the given events, sorted by sequence. A history is returned as is.
+     */
+    public static ProductViewHistory copyOf(Collection<ProductViewEvent> events) {
+        if (events instanceof ProductViewHistory history) {
+            return history;
+        }
+        if (events.isEmpty()) {
+            return EMPTY;
+        }
+        final ProductViewEvent[] array = events.toArray(new ProductViewEvent[0]);
+        // Stable, equal sequences keep their order
+        Arrays.sort(array, Comparator.comparingLong(ProductViewEvent::getSequence));
+        final Buffer buffer = new Buffer(array);
+        buffer.length.set(array.length);
+        return new ProductViewHistory(buffer, 0, array.length);
+    }
+
+    /**
+     * Adds an event after the events of lower or equal sequence.
+     *
+     * @return a new history, this one is left unchanged
+     */
+    public ProductViewHistory with(ProductViewEvent event) {
+        if (isEmpty() || event.getSequence() >= lastSequence()) {
+            return append(event);
+        }
+        return insert(event);
+    }
+
+    /**
+     * Gets the latest events, sharing this history.
+     */
+    public ProductViewHistory latest(int count) {
+        return count >= size() ? this : new ProductViewHistory(buffer, to - count, to);
+    }
+
+    /**
+     * Gets the sequence of the latest event.
+     *
+     * @throws IllegalStateException if the history is empty
+     */
+    public long lastSequence() {
+        if (isEmpty()) {
+            throw new IllegalStateException("Empty history");
+        }
+        return buffer.events[to - 1].getSequence();
+    }
+
+    @Override
+    public ProductViewEvent get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return buffer.events[from + index];
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    private ProductViewHistory append(ProductViewEvent event) {
+        // Only the first version to claim the next slot may write it, later ones branch off with a copy
+        if (to < buffer.events.length && buffer.length.compareAndSet(to, to + 1)) {
+            buffer.events[to] = event;
+            return new ProductViewHistory(buffer, from, to + 1);
+        }
+        final int size = size();
+        final ProductViewEvent[] array = Arrays.copyOfRange(buffer.events, from,
+                from + Math.max(MIN_CAPACITY, size + (size >> 1) + 1));
+        array[size] = event;
+        final Buffer copy = new Buffer(array);
+        copy.length.set(size + 1);
+        return new ProductViewHistory(copy, 0, size + 1);
+    }
+
+    private ProductViewHistory insert(ProductViewEvent event) {
+        // Out of order events are usually close to the end, so the search starts from it
+        int index = to - 1;
+        while (index > from && buffer.events[index - 1].getSequence() > event.getSequence()) {
+            index--;
+        }
+        final int size = size();
+        final int at = index - from;
+        final ProductViewEvent[] array = new ProductViewEvent[Math.max(MIN_CAPACITY, size + (size >> 1) + 1)];
+        System.arraycopy(buffer.events, from, array, 0, at);
+        array[at] = event;
+        System.arraycopy(buffer.events, index, array, at + 1, size - at);
+        final Buffer copy = new Buffer(array);
+        copy.length.set(size + 1);
+        return new ProductViewHistory(copy, 0, size + 1);
+    }
+
+    /**
+     * Array shared by the versions of a history, each of them seeing its own prefix.
+     */
+    private static final class Buffer {
+        private final ProductViewEvent[] events;
+        // Number of slots written, a version whose end is the length may append in place
+        private final AtomicInteger length = new AtomicInteger();
+
+        private Buffer(ProductViewEvent[] events) {
+            this.events = events;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package org.ormi.priv.tfa.orderflow.kernel.product.views;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView.ProductViewEvent;
+
+/**
+ * Tests unitaires pour l'historique des événements d'une vue produit.
+ * Couvre l'ordre par séquence, le partage du tableau entre versions et les vues sur les derniers événements.
+ */
+@DisplayName("ProductViewHistory - Tests unitaires")
+class ProductViewHistoryTest {
+
+    private static ProductViewEvent event(long sequence) {
+        // Only the sequence matters to the history
+        return new ProductViewEvent(ProductEventType.PRODUCT_NAME_UPDATED, Instant.EPOCH.plusSeconds(sequence),
+                sequence, null);
+    }
+
+    private static List<Long> sequences(List<ProductViewEvent> events) {
+        final List<Long> sequences = new ArrayList<>();
+        for (ProductViewEvent event : events) {
+            sequences.add(event.getSequence());
+        }
+        return sequences;
+    }
+
+    private static ProductViewHistory historyOf(long... sequences) {
+        ProductViewHistory history = ProductViewHistory.empty();
+        for (long sequence : sequences) {
+            history = history.with(event(sequence));
+        }
+        return history;
+    }
+
+    @Nested
+    @DisplayName("Historique vide")
+    class EmptyTests {
+
+        @Test
+        @DisplayName("Doit être vide")
+        void shouldBeEmpty() {
+            assertEquals(0, ProductViewHistory.empty().size(), "L'historique vide ne doit contenir aucun événement");
+        }
+
+        @Test
+        @DisplayName("Doit refuser la dernière séquence")
+        void shouldRejectLastSequence() {
+            assertThrows(IllegalStateException.class, () -> ProductViewHistory.empty().lastSequence(),
+                    "Un historique vide n'a pas de dernière séquence");
+        }
+
+        @Test
+        @DisplayName("Doit refuser un index hors bornes")
+        void shouldRejectOutOfBoundsIndex() {
+            final ProductViewHistory history = historyOf(1);
+            assertThrows(IndexOutOfBoundsException.class, () -> history.get(1),
+                    "Un index au-delà de la taille doit être refusé");
+            assertThrows(IndexOutOfBoundsException.class, () -> history.get(-1),
+                    "Un index négatif doit être refusé");
+        }
+    }
+
+    @Nested
+    @DisplayName("Méthode with")
+    class WithTests {
+
+        @Test
+        @DisplayName("Doit ajouter les événements en ordre à la fin")
+        void shouldAppendInOrder() {
+            final ProductViewHistory history = historyOf(1, 2, 3);
+
+            assertEquals(List.of(1L, 2L, 3L), sequences(history), "Les événements doivent suivre leur séquence");
+            assertEquals(3L, history.lastSequence(), "La dernière séquence doit être celle du dernier ajout");
+        }
+
+        @Test
+        @DisplayName("Ne doit pas modifier la version d'origine")
+        void shouldLeaveOriginalUnchanged() {
+            final ProductViewHistory original = historyOf(1, 2);
+
+            original.with(event(3));
+
+            assertEquals(List.of(1L, 2L), sequences(original), "La version d'origine ne doit pas changer");
+        }
+
+        @Test
+        @DisplayName("Doit séparer deux versions ajoutant à la même version antérieure")
+        void shouldBranchFromSharedVersion() {
+            final ProductViewHistory base = historyOf(1, 2);
+
+            final ProductViewHistory first = base.with(event(3));
+            final ProductViewHistory second = base.with(event(4));
+
+            assertEquals(List.of(1L, 2L, 3L), sequences(first), "La première branche ne doit pas être écrasée");
+            assertEquals(List.of(1L, 2L, 4L), sequences(second), "La seconde branche doit avoir son propre ajout");
+        }
+
+        @Test
+        @DisplayName("Doit agrandir l'historique au-delà de sa capacité initiale")
+        void shouldGrowBeyondInitialCapacity() {
+            ProductViewHistory history = ProductViewHistory.empty();
+            final List<Long> expected = new ArrayList<>();
+            for (long sequence = 1; sequence <= 50; sequence++) {
+                history = history.with(event(sequence));
+                expected.add(sequence);
+            }
+
+            assertEquals(expected, sequences(history), "Tous les événements doivent être gardés en ordre");
+        }
+
+        @Test
+        @DisplayName("Doit insérer un événement hors ordre à sa place")
+        void shouldInsertOutOfOrderEvent() {
+            final ProductViewHistory history = historyOf(1, 2, 4, 5).with(event(3));
+
+            assertEquals(List.of(1L, 2L, 3L, 4L, 5L), sequences(history), "L'événement doit être inséré par séquence");
+            assertEquals(5L, history.lastSequence(), "La dernière séquence ne doit pas changer");
+        }
+
+        @Test
+        @DisplayName("Doit insérer un événement antérieur à tous les autres en tête")
+        void shouldInsertFirst() {
+            final ProductViewHistory history = historyOf(2, 3).with(event(1));
+
+            assertEquals(List.of(1L, 2L, 3L), sequences(history), "L'événement doit être placé en premier");
+        }
+
+        @Test
+        @DisplayName("Doit placer une séquence égale après les événements existants")
+        void shouldKeepEqualSequencesInArrivalOrder() {
+            final ProductViewEvent first = event(2);
+            final ProductViewEvent second = event(2);
+
+            final ProductViewHistory history = historyOf(1).with(first).with(event(3)).with(second);
+
+            assertSame(first, history.get(1), "L'événement déjà présent doit rester en premier");
+            assertSame(second, history.get(2), "L'événement ajouté doit suivre ceux de même séquence");
+        }
+    }
+
+    @Nested
+    @DisplayName("Méthode copyOf")
+    class CopyOfTests {
+
+        @Test
+        @DisplayName("Doit trier les événements par séquence")
+        void shouldSortBySequence() {
+            final ProductViewHistory history = ProductViewHistory.copyOf(List.of(event(3), event(1), event(2)));
+
+            assertEquals(List.of(1L, 2L, 3L), sequences(history), "Les événements doivent être triés");
+        }
+
+        @Test
+        @DisplayName("Doit renvoyer un historique tel quel")
+        void shouldReturnHistoryAsIs() {
+            final ProductViewHistory history = historyOf(1, 2);
+
+            assertSame(history, ProductViewHistory.copyOf(history), "Un historique ne doit pas être copié");
+        }
+
+        @Test
+        @DisplayName("Doit renvoyer l'historique vide pour une collection vide")
+        void shouldReturnEmptyForEmptyCollection() {
+            assertSame(ProductViewHistory.empty(), ProductViewHistory.copyOf(List.of()),
+                    "Une collection vide doit donner l'historique vide");
+        }
+
+        @Test
+        @DisplayName("Doit permettre d'ajouter à une copie")
+        void shouldAppendToCopy() {
+            final ProductViewHistory history = ProductViewHistory.copyOf(List.of(event(2), event(1))).with(event(3));
+
+            assertEquals(List.of(1L, 2L, 3L), sequences(history), "L'ajout doit suivre la copie");
+        }
+    }
+
+    @Nested
+    @DisplayName("Méthode latest")
+    class LatestTests {
+
+        @Test
+        @DisplayName("Doit garder les derniers événements")
+        void shouldKeepLatestEvents() {
+            final ProductViewHistory latest = historyOf(1, 2, 3, 4, 5).latest(2);
+
+            assertEquals(List.of(4L, 5L), sequences(latest), "Seuls les derniers événements doivent être gardés");
+            assertEquals(5L, latest.lastSequence(), "La dernière séquence doit être conservée");
+        }
+
+        @Test
+        @DisplayName("Doit renvoyer l'historique tel quel s'il est assez court")
+        void shouldReturnSameHistoryWhenShortEnough() {
+            final ProductViewHistory history = historyOf(1, 2);
+
+            assertSame(history, history.latest(2), "Un historique assez court doit être renvoyé tel quel");
+            assertSame(history, history.latest(5), "Un historique assez court doit être renvoyé tel quel");
+        }
+
+        @Test
+        @DisplayName("Doit permettre d'ajouter et d'insérer après une troncature")
+        void shouldAddAfterTruncation() {
+            final ProductViewHistory latest = historyOf(1, 2, 4, 5).latest(2);
+
+            assertEquals(List.of(4L, 5L, 6L), sequences(latest.with(event(6))), "L'ajout doit suivre la troncature");
+            assertEquals(List.of(3L, 4L, 5L), sequences(latest.with(event(3))),
+                    "L'insertion ne doit pas faire réapparaître les événements tronqués");
+        }
+    }
+}
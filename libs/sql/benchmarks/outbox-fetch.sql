@@ -0,0 +1,83 @@
+-- Outbox fetch benchmark: seeds :rows pending messages inside a transaction, compares the legacy
+-- fetch query with the current one, then rolls everything back.
+--
+-- Usage: psql -v rows=100000 -f outbox-fetch.sql
+\if :{?rows}
+\else
+  \set rows 10000
+\endif
+\set batch 500
+\set max_attempts 3
+\timing off
+
+BEGIN;
+
+-- 5 events per aggregate
+INSERT INTO eventing.event_log (aggregate_type, aggregate_id, aggregate_version, event_type, event_version, payload)
+SELECT 'Product', a.id, v, 'ProductRegistered', 1, '{}'::jsonb
+FROM (SELECT gen_random_uuid() AS id FROM generate_series(1, GREATEST(:rows / 5, 1))) a
+CROSS JOIN generate_series(1, 5) v;
+
+INSERT INTO eventing.outbox (event_id, aggregate_type, aggregate_id, aggregate_version)
+SELECT e.id, e.aggregate_type, e.aggregate_id, e.aggregate_version
+FROM eventing.event_log e
+WHERE NOT EXISTS (SELECT 1 FROM eventing.outbox o WHERE o.event_id = e.id)
+ORDER BY e.id;
+
+-- 1% waiting for a retry, 1% retryable now
+UPDATE eventing.outbox SET attempts = 1, next_attempt_at = CURRENT_TIMESTAMP + INTERVAL '30 seconds'
+WHERE id % 100 = 0;
+UPDATE eventing.outbox SET attempts = 1, next_attempt_at = CURRENT_TIMESTAMP - INTERVAL '30 seconds'
+WHERE id % 100 = 1;
+
+ANALYZE eventing.event_log;
+ANALYZE eventing.outbox;
+
+\echo '== legacy fetch'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT o.* FROM eventing.outbox o
+INNER JOIN eventing.event_log e ON o.event_id = e.id
+WHERE o.attempts < :max_attempts
+AND e.aggregate_type = 'Product'
+AND (o.next_attempt_at <= CURRENT_TIMESTAMP OR o.next_attempt_at IS NULL)
+AND NOT EXISTS (
+    SELECT 1 FROM eventing.outbox o2
+    JOIN eventing.event_log e2 ON o2.event_id = e2.id
+    WHERE e2.aggregate_id = e.aggregate_id
+    AND (o2.next_attempt_at > CURRENT_TIMESTAMP)
+)
+ORDER BY e.aggregate_id, e.aggregate_version
+LIMIT :batch
+FOR UPDATE SKIP LOCKED;
+
+\echo '== current fetch'
+EXPLAIN (ANALYZE, BUFFERS)
+WITH candidates AS (
+    (SELECT o.id FROM eventing.outbox o
+    WHERE o.aggregate_type = 'Product'
+    AND o.next_attempt_at IS NULL
+    AND o.attempts < :max_attempts
+    ORDER BY o.aggregate_type, o.id
+    LIMIT :batch)
+    UNION ALL
+    (SELECT o.id FROM eventing.outbox o
+    WHERE o.aggregate_type = 'Product'
+    AND o.next_attempt_at <= CURRENT_TIMESTAMP
+    AND o.attempts < :max_attempts
+    ORDER BY o.aggregate_type, o.next_attempt_at
+    LIMIT :batch)
+)
+SELECT o.* FROM eventing.outbox o
+INNER JOIN candidates c ON c.id = o.id
+WHERE NOT EXISTS (
+    SELECT 1 FROM eventing.outbox o2
+    WHERE o2.aggregate_type = o.aggregate_type
+    AND o2.aggregate_id = o.aggregate_id
+    AND o2.aggregate_version < o.aggregate_version
+    AND (o2.id > o.id OR NOT EXISTS (SELECT 1 FROM candidates c2 WHERE c2.id = o2.id))
+)
+ORDER BY o.id
+LIMIT :batch
+FOR UPDATE OF o SKIP LOCKED;
+
+ROLLBACK;
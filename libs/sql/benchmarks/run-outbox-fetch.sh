@@ -0,0 +1,11 @@
+#!/usr/bin/env bash
+# Runs the outbox fetch benchmark for 10k, 100k and 1M pending messages and prints the execution times.
+# Connection settings are taken from the usual PG* environment variables.
+set -euo pipefail
+
+cd "$(dirname "$0")"
+for rows in 10000 100000 1000000; do
+  echo "## ${rows} pending messages"
+  psql -X -q -v ON_ERROR_STOP=1 -v rows="${rows}" -f outbox-fetch.sql \
+    | grep -E '^== |Execution Time'
+done